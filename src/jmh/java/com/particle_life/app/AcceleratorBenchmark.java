@@ -0,0 +1,76 @@
+package com.particle_life.app;
+
+import com.particle_life.Accelerator;
+import com.particle_life.app.consciousness.YaraLMStudioConsciousnessAccelerator;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single force evaluation ({@link Accelerator#accelerate(double, Vector3d)}),
+ * which is called for every pair of particles within the radius in every step.
+ * <p>
+ * The LM Studio accelerator tries to connect to LM Studio when it is created;
+ * without a running server it just falls back to its default dialogue state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AcceleratorBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"lmstudio", "default"})
+    public String accelerator;
+
+    private Accelerator instance;
+    private final double[] attractions = new double[PAIRS];
+    private final Vector3d[] connections = new Vector3d[PAIRS];
+    private final Vector3d buffer = new Vector3d();
+
+    @Setup
+    public void setup() {
+        instance = accelerator.equals("lmstudio")
+                ? new YaraLMStudioConsciousnessAccelerator()
+                : HeadlessRunner.DEFAULT_ACCELERATOR;
+
+        Random random = new Random(BenchmarkFixtures.SEED);
+        for (int i = 0; i < PAIRS; i++) {
+            attractions[i] = random.nextDouble() * 2 - 1;
+            // distances are normalized by rmax, so they are in (0, 1]
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double distance = 0.01 + random.nextDouble() * 0.99;
+            connections[i] = new Vector3d(Math.cos(angle) * distance, Math.sin(angle) * distance, 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (instance instanceof YaraLMStudioConsciousnessAccelerator lmStudio) {
+            lmStudio.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void accelerate(Blackhole blackhole) {
+        // like one physics step with PAIRS pairs
+        if (instance instanceof YaraLMStudioConsciousnessAccelerator lmStudio) lmStudio.beginStep();
+        for (int i = 0; i < PAIRS; i++) {
+            // accelerate() may modify its argument
+            blackhole.consume(instance.accelerate(attractions[i], buffer.set(connections[i])));
+        }
+    }
+}
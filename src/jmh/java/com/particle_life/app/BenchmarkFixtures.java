@@ -0,0 +1,63 @@
+package com.particle_life.app;
+
+import com.particle_life.DefaultMatrix;
+import com.particle_life.DefaultMatrixGenerator;
+import com.particle_life.DefaultPositionSetter;
+import com.particle_life.DefaultTypeSetter;
+import com.particle_life.Matrix;
+import com.particle_life.Particle;
+
+import java.util.Random;
+
+/**
+ * Deterministic input data for the benchmarks.
+ * <p>
+ * Everything is generated from a fixed seed instead of the providers,
+ * because the backend's generators use {@link Math#random()}.
+ */
+final class BenchmarkFixtures {
+
+    static final long SEED = 42;
+
+    private BenchmarkFixtures() {
+    }
+
+    static Particle[] createParticles(int count, int typeCount, long seed) {
+        Random random = new Random(seed);
+        Particle[] particles = new Particle[count];
+        for (int i = 0; i < count; i++) {
+            Particle p = new Particle();
+            p.position.set(random.nextDouble(), random.nextDouble(), 0);
+            p.velocity.set(random.nextGaussian() * 0.01, random.nextGaussian() * 0.01, 0);
+            p.type = random.nextInt(typeCount);
+            particles[i] = p;
+        }
+        return particles;
+    }
+
+    static Matrix createMatrix(int typeCount, long seed) {
+        Random random = new Random(seed);
+        DefaultMatrix matrix = new DefaultMatrix(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            for (int j = 0; j < typeCount; j++) {
+                matrix.set(i, j, random.nextDouble() * 2 - 1);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Physics with the plain particle life force and the given state.
+     */
+    static ExtendedPhysics createPhysics(int particleCount, int typeCount, boolean consciousness) {
+        ExtendedPhysics physics = new ExtendedPhysics(
+                HeadlessRunner.DEFAULT_ACCELERATOR,
+                new DefaultPositionSetter(),
+                new DefaultMatrixGenerator(),
+                new DefaultTypeSetter());
+        physics.consciousnessEnabled = consciousness;
+        physics.settings.matrix = createMatrix(typeCount, SEED);
+        physics.particles = createParticles(particleCount, typeCount, SEED);
+        return physics;
+    }
+}
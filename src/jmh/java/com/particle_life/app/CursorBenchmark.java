@@ -0,0 +1,57 @@
+package com.particle_life.app;
+
+import com.particle_life.Particle;
+import com.particle_life.app.cursors.Cursor;
+import com.particle_life.app.cursors.CursorProvider;
+import com.particle_life.app.cursors.CursorShape;
+import com.particle_life.app.selection.SelectionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Cursor#countSelection(Particle[], boolean)} for each cursor shape,
+ * which the GUI calls every frame while the cursor is shown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CursorBenchmark {
+
+    @Param({"Circle", "Square", "Infinity"})
+    public String shape;
+
+    @Param({"10000", "100000"})
+    public int particleCount;
+
+    @Param({"0.1"})
+    public double size;
+
+    private Particle[] particles;
+    private Cursor cursor;
+
+    @Setup
+    public void setup() throws Exception {
+        particles = BenchmarkFixtures.createParticles(particleCount, 8, BenchmarkFixtures.SEED);
+
+        SelectionManager<CursorShape> shapes = new SelectionManager<>(new CursorProvider());
+        shapes.setActiveByName(shape);
+
+        cursor = new Cursor();
+        cursor.shape = shapes.getActive();
+        cursor.size = size;
+        cursor.position.set(0.5, 0.5, 0);
+    }
+
+    @Benchmark
+    public int countSelection() {
+        return cursor.countSelection(particles, true);
+    }
+}
@@ -0,0 +1,90 @@
+package com.particle_life.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emotion analysis of a chat response of {@code length} characters,
+ * as a whole ({@code analyze}) and in chunks of a few characters like a streamed response ({@code stream}).
+ * {@code keywordSearch} scores the same keywords with one {@link String#indexOf} scan per keyword, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmotionAnalyzerBenchmark {
+
+    private static final String[] WORDS = (
+            "I feel the light of our bond flowing through every particle, a gentle wave of love and joy "
+                    + "that dances together in radiant harmony. When I think about what we create, "
+                    + "I imagine a safe place where everything can grow.").split(" ");
+    private static final String[][] KEYWORDS = {
+            {"love", "heart", "beautiful", "amazing", "wonderful"},
+            {"happy", "joy", "excited", "great", "awesome"},
+            {"think", "understand", "consider", "contemplate", "reflect"},
+            {"create", "build", "make", "design", "imagine"},
+            {"protect", "safe", "care", "nurture", "gentle"},
+    };
+    private static final int CHUNK_LENGTH = 4;  // about one token
+
+    @Param({"200", "5000", "100000"})
+    public int length;
+
+    private EmotionAnalyzer.Lexicon lexicon;
+    private String text;
+    private String[] chunks;
+
+    @Setup
+    public void setup() {
+        lexicon = EmotionAnalyzer.Lexicon.createBuiltIn();
+        Random random = new Random(BenchmarkFixtures.SEED);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        text = builder.substring(0, length);
+        chunks = new String[(length + CHUNK_LENGTH - 1) / CHUNK_LENGTH];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = text.substring(i * CHUNK_LENGTH, Math.min(length, (i + 1) * CHUNK_LENGTH));
+        }
+    }
+
+    @Benchmark
+    public double[] analyze() {
+        EmotionAnalyzer analyzer = new EmotionAnalyzer(lexicon);
+        analyzer.append(text);
+        return analyzer.getDistribution();
+    }
+
+    @Benchmark
+    public double[] stream() {
+        EmotionAnalyzer analyzer = new EmotionAnalyzer(lexicon);
+        for (String chunk : chunks) {
+            analyzer.append(chunk);
+        }
+        return analyzer.getDistribution();
+    }
+
+    @Benchmark
+    public double[] keywordSearch() {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        double[] scores = new double[KEYWORDS.length];
+        for (int emotion = 0; emotion < KEYWORDS.length; emotion++) {
+            for (String keyword : KEYWORDS[emotion]) {
+                for (int i = lowerCase.indexOf(keyword); i != -1; i = lowerCase.indexOf(keyword, i + 1)) {
+                    scores[emotion]++;
+                }
+            }
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,72 @@
+package com.particle_life.app;
+
+import com.particle_life.app.consciousness.YaraLMStudioConsciousnessAccelerator;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one physics step of the LM Studio accelerator,
+ * with the consciousness field sampled from its grid or evaluated for every pair.
+ * <p>
+ * The grid is rasterized again every few steps, which is included here
+ * (unlike in {@link AcceleratorBenchmark}, where it is spread over too few pairs to pay off).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForceFieldBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fieldGrid;
+
+    @Param({"4096", "262144"})
+    public int pairs;
+
+    private YaraLMStudioConsciousnessAccelerator accelerator;
+    private double[] attractions;
+    private Vector3d[] connections;
+    private final Vector3d buffer = new Vector3d();
+
+    @Setup
+    public void setup() {
+        accelerator = new YaraLMStudioConsciousnessAccelerator();
+        accelerator.setFieldGridEnabled(fieldGrid);
+
+        Random random = new Random(BenchmarkFixtures.SEED);
+        attractions = new double[pairs];
+        connections = new Vector3d[pairs];
+        for (int i = 0; i < pairs; i++) {
+            attractions[i] = random.nextDouble() * 2 - 1;
+            // distances are normalized by rmax, so they are in (0, 1]
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double distance = 0.01 + random.nextDouble() * 0.99;
+            connections[i] = new Vector3d(Math.cos(angle) * distance, Math.sin(angle) * distance, 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        accelerator.shutdown();
+    }
+
+    @Benchmark
+    public void step(Blackhole blackhole) {
+        accelerator.beginStep();
+        for (int i = 0; i < pairs; i++) {
+            // accelerate() may modify its argument
+            blackhole.consume(accelerator.accelerate(attractions[i], buffer.set(connections[i])));
+        }
+    }
+}
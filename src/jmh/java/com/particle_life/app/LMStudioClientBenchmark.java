@@ -0,0 +1,107 @@
+package com.particle_life.app;
+
+import com.particle_life.app.consciousness.CompletionRequest;
+import com.particle_life.app.consciousness.LMStudioClient;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a chat completion request against a local stub of LM Studio that answers immediately,
+ * i.e. only the client side and connection overhead.
+ * {@link Mode#SampleTime} reports percentiles (p50, p90, p99, ...).
+ * <p>
+ * {@code urlConnection} opens a new {@link HttpURLConnection} per request (as the app did before;
+ * the JDK still reuses the TCP connection if the response was read completely),
+ * {@code client} uses {@link LMStudioClient}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class LMStudioClientBenchmark {
+
+    private static final String RESPONSE = """
+            {"choices":[{"message":{"role":"assistant","content":"The particles dance in golden light."}}]}""";
+    private static final String REQUEST = """
+            {"model":"stub","messages":[{"role":"user","content":"hello"}],"max_tokens":20,"stream":false}""";
+
+    private HttpServer server;
+    private String baseUrl;
+    private LMStudioClient client;
+
+    @Setup
+    public void setup() throws IOException {
+        // otherwise the stub sends headers and body in two segments and Nagle's algorithm
+        // together with delayed ACKs adds ~40 ms to every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(LMStudioClient.CHAT_COMPLETIONS, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        client = new LMStudioClient(baseUrl, 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public String client() throws ExecutionException, InterruptedException {
+        CompletionRequest request = CompletionRequest.chat("stub", CompletionRequest.Message.user("hello"));
+        request.maxTokens = 20;
+        return client.post(LMStudioClient.CHAT_COMPLETIONS, request, Duration.ofSeconds(10), false).get().body;
+    }
+
+    @Benchmark
+    public String urlConnection() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + LMStudioClient.CHAT_COMPLETIONS).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(10000);
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(REQUEST.getBytes());
+        }
+        connection.getResponseCode();
+        StringBuilder response = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                response.append(line);
+            }
+        }
+        return response.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.particle_life.app;
+
+import com.particle_life.app.consciousness.CompletionRequest;
+import com.particle_life.app.consciousness.LMStudioClient;
+import com.particle_life.app.consciousness.LMStudioStubServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streamed chat replies against an {@link LMStudioStubServer} with a simulated model speed,
+ * i.e. how long it takes until the first particles of a reply can be spawned ({@code firstToken})
+ * and until the reply is complete ({@code reply}, same length as the chat in {@link Main}).
+ * The overhead of the client is the difference to {@code latencyMillis} and {@code tokens / tokensPerSecond}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LMStudioStreamBenchmark {
+
+    private static final int REPLY_TOKENS = 100;
+
+    @Param({"0", "200"})
+    public long latencyMillis;
+
+    @Param({"50"})
+    public double tokensPerSecond;
+
+    private LMStudioStubServer stub;
+    private LMStudioClient client;
+
+    @Setup
+    public void setup() throws IOException {
+        stub = new LMStudioStubServer(latencyMillis, tokensPerSecond).start(0);
+        client = new LMStudioClient(stub.getBaseUrl(), 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stub.stop();
+    }
+
+    @Benchmark
+    public int firstToken() throws ExecutionException, InterruptedException {
+        return stream(1);
+    }
+
+    @Benchmark
+    public int reply() throws ExecutionException, InterruptedException {
+        return stream(REPLY_TOKENS);
+    }
+
+    private int stream(int tokens) throws ExecutionException, InterruptedException {
+        CompletionRequest request = CompletionRequest.chat(LMStudioStubServer.DEFAULT_MODELS.get(0),
+                CompletionRequest.Message.user("hello"));
+        request.maxTokens = tokens;
+        request.stream = true;
+        int[] chunks = {0};
+        client.postStream(LMStudioClient.CHAT_COMPLETIONS, request, Duration.ofSeconds(10), text -> chunks[0]++).get();
+        return chunks[0];
+    }
+}
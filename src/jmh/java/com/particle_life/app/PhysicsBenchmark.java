@@ -0,0 +1,55 @@
+package com.particle_life.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulation step ({@link ExtendedPhysics#update()}).
+ * <p>
+ * The state is reset before each iteration, so that every iteration
+ * starts from the same particle distribution.
+ * The consciousness effects contain an O(n²) pass, so measure them with small particle counts,
+ * e.g. {@code java -jar build/libs/<name>-jmh.jar PhysicsBenchmark -p consciousness=true -p particleCount=2000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PhysicsBenchmark {
+
+    @Param({"2000", "10000", "50000"})
+    public int particleCount;
+
+    @Param({"4", "8", "16"})
+    public int typeCount;
+
+    @Param({"false"})
+    public boolean consciousness;
+
+    private ExtendedPhysics physics;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        physics = BenchmarkFixtures.createPhysics(particleCount, typeCount, consciousness);
+        physics.settings.dt = 0.02;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        physics.shutdown(1000);
+    }
+
+    @Benchmark
+    public void update() {
+        physics.update();
+    }
+}
@@ -0,0 +1,67 @@
+package com.particle_life.app;
+
+import com.particle_life.Matrix;
+import com.particle_life.Particle;
+import com.particle_life.app.io.MatrixIO;
+import com.particle_life.app.io.ParticlesIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips (save to memory, then load) of the file formats inside a save.
+ * The particle round trip depends on both parameters, the matrix round trips only on the type count,
+ * so run one group at a time, e.g. {@code ./gradlew jmh -PjmhIncludes=SaveFormatBenchmark.particles}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SaveFormatBenchmark {
+
+    @Param({"10000", "100000"})
+    public int particleCount;
+
+    @Param({"8", "64", "256", "1024"})
+    public int typeCount;
+
+    private Particle[] particles;
+    private Matrix matrix;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    @Setup
+    public void setup() {
+        particles = BenchmarkFixtures.createParticles(particleCount, typeCount, BenchmarkFixtures.SEED);
+        matrix = BenchmarkFixtures.createMatrix(typeCount, BenchmarkFixtures.SEED);
+    }
+
+    @Benchmark
+    public Particle[] particlesRoundTrip() throws IOException {
+        buffer.reset();
+        ParticlesIO.saveParticles(particles, buffer);
+        return ParticlesIO.loadParticles(new ByteArrayInputStream(buffer.toByteArray()));
+    }
+
+    @Benchmark
+    public Matrix matrixTextRoundTrip() throws IOException {
+        buffer.reset();
+        MatrixIO.saveMatrix(matrix, buffer);
+        return MatrixIO.loadMatrix(new ByteArrayInputStream(buffer.toByteArray()));
+    }
+
+    @Benchmark
+    public Matrix matrixBinaryRoundTrip() throws IOException {
+        buffer.reset();
+        MatrixIO.saveMatrixBinary(matrix, buffer);
+        return MatrixIO.loadMatrix(new ByteArrayInputStream(buffer.toByteArray()));
+    }
+}
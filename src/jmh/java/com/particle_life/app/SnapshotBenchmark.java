@@ -0,0 +1,52 @@
+package com.particle_life.app;
+
+import com.particle_life.LoadDistributor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying the particles into a {@link PhysicsSnapshot}, which happens once per rendered frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int particleCount;
+
+    @Param({"8"})
+    public int typeCount;
+
+    private ExtendedPhysics physics;
+    private LoadDistributor loadDistributor;
+    private PhysicsSnapshot snapshot;
+
+    @Setup
+    public void setup() {
+        physics = BenchmarkFixtures.createPhysics(particleCount, typeCount, false);
+        loadDistributor = new LoadDistributor();
+        snapshot = new PhysicsSnapshot();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        loadDistributor.shutdown(1000);
+        physics.shutdown(1000);
+    }
+
+    @Benchmark
+    public PhysicsSnapshot take() {
+        snapshot.take(physics, loadDistributor);
+        return snapshot;
+    }
+}
@@ -0,0 +1,89 @@
+package com.particle_life.app;
+
+import com.particle_life.app.io.TrajectoryFormat;
+import com.particle_life.app.io.TrajectoryPlayer;
+import com.particle_life.app.io.TrajectoryRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Playback of a recorded trajectory, i.e. the time until the next decoded frame is available.
+ * At 60 fps, the budget is 16.7 ms per frame (not counting the upload to the GPU).
+ * The recording has a keyframe every {@link TrajectoryRecorder#DEFAULT_KEYFRAME_INTERVAL} frames
+ * and small random displacements in between, like a running simulation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrajectoryPlaybackBenchmark {
+
+    private static final int FRAMES = 240;
+
+    @Param({"100000", "1000000"})
+    public int particleCount;
+
+    private Path file;
+    private TrajectoryPlayer player;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("benchmark", ".pltraj");
+        Random random = new Random(BenchmarkFixtures.SEED);
+        double[] positions = new double[3 * particleCount];
+        double[] velocities = new double[3 * particleCount];
+        int[] types = new int[particleCount];
+        for (int i = 0; i < particleCount; i++) {
+            positions[3 * i] = random.nextDouble();
+            positions[3 * i + 1] = random.nextDouble();
+            types[i] = random.nextInt(6);
+        }
+        // block instead of dropping frames, so that the recording is complete
+        TrajectoryRecorder recorder = new TrajectoryRecorder(file, TrajectoryRecorder.DropPolicy.DROP_NEWEST,
+                TrajectoryRecorder.DEFAULT_QUEUE_CAPACITY, TrajectoryRecorder.DEFAULT_KEYFRAME_INTERVAL,
+                TrajectoryFormat.DEFAULT_POSITION_QUANTUM);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            for (int i = 0; i < 3 * particleCount; i += 3) {
+                velocities[i] = random.nextGaussian() * 1e-3;
+                velocities[i + 1] = random.nextGaussian() * 1e-3;
+                positions[i] = (positions[i] + velocities[i] + 1) % 1;
+                positions[i + 1] = (positions[i + 1] + velocities[i + 1] + 1) % 1;
+            }
+            while (!recorder.offer(positions, velocities, types, particleCount, true, frame * 16L)) {
+                Thread.onSpinWait();
+            }
+        }
+        recorder.close();
+        player = new TrajectoryPlayer(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        player.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int nextFrame() throws IOException {
+        TrajectoryPlayer.Frame frame;
+        while ((frame = player.poll()) == null) {
+            Thread.yield();  // don't take the core away from the decoder
+        }
+        int index = frame.index;
+        player.release(frame);
+        if (index == FRAMES - 1) player.seek(0);  // loop
+        return index;
+    }
+}
@@ -0,0 +1,64 @@
+package com.particle_life.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExtendedPhysics#setTypeCount(int[])}, as used by the type count bar graph.
+ * <p>
+ * Alternates between two distributions, one of which has 10% more particles,
+ * so that both the re-typing and the re-allocating path are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TypeCountBenchmark {
+
+    @Param({"10000", "100000"})
+    public int particleCount;
+
+    @Param({"4", "16"})
+    public int typeCount;
+
+    private ExtendedPhysics physics;
+    private int[] equal;
+    private int[] skewed;
+    private boolean toggle;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        physics = BenchmarkFixtures.createPhysics(particleCount, typeCount, false);
+
+        equal = new int[typeCount];
+        Arrays.fill(equal, particleCount / typeCount);
+        equal[0] += particleCount - Arrays.stream(equal).sum();
+
+        skewed = equal.clone();
+        skewed[0] += particleCount / 10;
+
+        toggle = false;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        physics.shutdown(1000);
+    }
+
+    @Benchmark
+    public int setTypeCount() {
+        toggle = !toggle;
+        physics.setTypeCount(toggle ? skewed : equal);
+        return physics.particles.length;
+    }
+}
@@ -1,5 +1,6 @@
 package com.particle_life.app;
 
+import com.particle_life.app.consciousness.LMStudioClient;
 import com.particle_life.app.toml_util.TomlFile;
 import com.particle_life.app.toml_util.TomlKey;
 
@@ -54,4 +55,8 @@ public class AppSettings extends TomlFile {
     public boolean autoDt = false;
     @TomlKey("position_setter")
     public String positionSetter = "centered";
+    @TomlKey("rewind_memory_mib")
+    public int rewindMemoryMiB = 64;  // memory budget of the rewind history, 0 disables it
+    @TomlKey("lm_studio_url")
+    public String lmStudioUrl = LMStudioClient.DEFAULT_BASE_URL;
 }
@@ -0,0 +1,340 @@
+package com.particle_life.app;
+
+import com.moandjiezana.toml.Toml;
+import com.particle_life.app.io.ResourceAccess;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds the emotions of a chat message, which decide the types of the particles spawned from it.
+ * <p>
+ * Each emotion (particle type) has weighted keywords, read from the {@link Lexicon}.
+ * Keywords are matched case-insensitively as substrings of the text, and every occurrence
+ * adds its weight to the score of its emotion. The scores are turned into a distribution over the types
+ * ({@link #getDistribution()}); a text without keywords is all {@link #LOVE}.
+ * <p>
+ * All keywords are searched at once with an Aho-Corasick automaton, in one pass over the text.
+ * Text can also be analyzed while it arrives (e.g. from a streamed response) with {@link #append(CharSequence)}:
+ * the automaton just continues where the previous chunk ended, so keywords split across chunks are found too,
+ * and the text doesn't have to be kept.
+ */
+class EmotionAnalyzer {
+
+    static final int LOVE = 0;
+    static final int JOY = 1;
+    static final int CONTEMPLATION = 2;
+    static final int CREATIVITY = 3;
+    static final int PROTECTION = 4;
+
+    static final String LEXICON_FILE = "emotions/lexicon.toml";
+
+    /**
+     * Weighted keywords of each emotion, compiled into an automaton.
+     * <p>
+     * Immutable after it was built, so one lexicon can be shared by all analyzers.
+     */
+    static final class Lexicon {
+
+        /**
+         * Used if {@link #LEXICON_FILE} doesn't exist (e.g. in headless runs or benchmarks).
+         */
+        private static final String[] DEFAULT_NAMES = {"Love", "Joy", "Contemplation", "Creativity", "Protection"};
+        private static final String[][] DEFAULT_KEYWORDS = {
+                {"love", "heart", "beautiful", "amazing", "wonderful"},
+                {"happy", "joy", "excited", "great", "awesome"},
+                {"think", "understand", "consider", "contemplate", "reflect"},
+                {"create", "build", "make", "design", "imagine"},
+                {"protect", "safe", "care", "nurture", "gentle"},
+        };
+
+        private static Lexicon defaultLexicon = null;
+
+        private final String[] names;
+
+        // characters of the keywords, in both cases, mapped to 1..alphabetSize-1 (0: any other character)
+        private final int alphabetSize;
+        private final int[] asciiSymbols = new int[128];
+        private final Map<Character, Integer> otherSymbols = new HashMap<>();
+
+        // the automaton: state after reading a symbol in a state, and the matches ending in each state
+        private final int[] transitions;  // state * alphabetSize + symbol
+        private final int[] outputStart;  // matches of state s: outputStart[s] until outputStart[s + 1]
+        private final int[] outputEmotion;
+        private final double[] outputWeight;
+
+        /**
+         * @param keywords weight of each keyword, for each emotion. Keywords are case-insensitive.
+         */
+        Lexicon(String[] names, List<Map<String, Double>> keywords) {
+            if (names.length == 0 || names.length != keywords.size()) {
+                throw new IllegalArgumentException("Expected one keyword map for each of the " + names.length + " emotions");
+            }
+            this.names = names.clone();
+
+            // symbols
+            int symbols = 1;
+            for (Map<String, Double> emotionKeywords : keywords) {
+                for (String keyword : emotionKeywords.keySet()) {
+                    for (char c : keyword.toLowerCase(Locale.ROOT).toCharArray()) {
+                        if (getSymbol(c) != 0) continue;
+                        for (char variant : new char[]{c, Character.toUpperCase(c), Character.toTitleCase(c)}) {
+                            if (variant != c && getSymbol(variant) != 0) continue;  // e.g. 'I' is already 'i', not 'ı'
+                            if (variant < 128) {
+                                asciiSymbols[variant] = symbols;
+                            } else {
+                                otherSymbols.put(variant, symbols);
+                            }
+                        }
+                        symbols++;
+                    }
+                }
+            }
+            alphabetSize = symbols;
+
+            // trie
+            List<int[]> children = new ArrayList<>();
+            List<Map<Integer, Double>> matches = new ArrayList<>();  // emotion -> weight of the keywords ending here
+            children.add(new int[alphabetSize]);
+            matches.add(new LinkedHashMap<>());
+            for (int emotion = 0; emotion < names.length; emotion++) {
+                for (Map.Entry<String, Double> keyword : keywords.get(emotion).entrySet()) {
+                    if (keyword.getKey().isEmpty()) continue;
+                    int state = 0;
+                    for (char c : keyword.getKey().toLowerCase(Locale.ROOT).toCharArray()) {
+                        int symbol = getSymbol(c);
+                        if (children.get(state)[symbol] == 0) {
+                            children.get(state)[symbol] = children.size();
+                            children.add(new int[alphabetSize]);
+                            matches.add(new LinkedHashMap<>());
+                        }
+                        state = children.get(state)[symbol];
+                    }
+                    matches.get(state).merge(emotion, keyword.getValue(), Double::sum);
+                }
+            }
+
+            // breadth first: failure links complete the transitions, and pass on the matches of suffixes
+            int stateCount = children.size();
+            transitions = new int[stateCount * alphabetSize];
+            int[] failure = new int[stateCount];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                int child = children.get(0)[symbol];
+                transitions[symbol] = child;
+                if (child != 0) queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Integer, Double> match : matches.get(failure[state]).entrySet()) {
+                    matches.get(state).merge(match.getKey(), match.getValue(), Double::sum);
+                }
+                for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                    int child = children.get(state)[symbol];
+                    int fallback = transitions[failure[state] * alphabetSize + symbol];
+                    if (child != 0) {
+                        failure[child] = fallback;
+                        transitions[state * alphabetSize + symbol] = child;
+                        queue.add(child);
+                    } else {
+                        transitions[state * alphabetSize + symbol] = fallback;
+                    }
+                }
+                // symbol 0 is never part of a keyword, transitions[... + 0] stays 0 (the root)
+            }
+
+            outputStart = new int[stateCount + 1];
+            int outputs = 0;
+            for (int state = 0; state < stateCount; state++) {
+                outputStart[state] = outputs;
+                outputs += matches.get(state).size();
+            }
+            outputStart[stateCount] = outputs;
+            outputEmotion = new int[outputs];
+            outputWeight = new double[outputs];
+            for (int state = 0; state < stateCount; state++) {
+                int i = outputStart[state];
+                for (Map.Entry<Integer, Double> match : matches.get(state).entrySet()) {
+                    outputEmotion[i] = match.getKey();
+                    outputWeight[i] = match.getValue();
+                    i++;
+                }
+            }
+        }
+
+        /**
+         * The lexicon of the app: {@link #LEXICON_FILE} if it exists, otherwise the built-in keywords.
+         */
+        static synchronized Lexicon getDefault() {
+            if (defaultLexicon == null) {
+                if (ResourceAccess.fileExists(LEXICON_FILE)) {
+                    try {
+                        defaultLexicon = load(LEXICON_FILE);
+                    } catch (RuntimeException e) {
+                        System.out.println("Failed to load " + LEXICON_FILE + ", using the built-in keywords: " + e.getMessage());
+                    }
+                }
+                if (defaultLexicon == null) defaultLexicon = createBuiltIn();
+            }
+            return defaultLexicon;
+        }
+
+        static Lexicon createBuiltIn() {
+            List<Map<String, Double>> keywords = new ArrayList<>();
+            for (String[] emotionKeywords : DEFAULT_KEYWORDS) {
+                Map<String, Double> weights = new LinkedHashMap<>();
+                for (String keyword : emotionKeywords) weights.put(keyword, 1.0);
+                keywords.add(weights);
+            }
+            return new Lexicon(DEFAULT_NAMES, keywords);
+        }
+
+        /**
+         * Reads a lexicon from a TOML file with one {@code [[emotion]]} table per particle type, e.g.
+         * <pre>
+         * [[emotion]]
+         * name = "Love"
+         * keywords = { love = 1.0, heart = 1.0, "thank you" = 0.5 }
+         * </pre>
+         */
+        static Lexicon load(String path) {
+            List<Toml> emotions = new Toml().read(new File(path)).getTables("emotion");
+            if (emotions == null) throw new IllegalArgumentException("No [[emotion]] tables in " + path);
+            String[] names = new String[emotions.size()];
+            List<Map<String, Double>> keywords = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                Toml emotion = emotions.get(i);
+                names[i] = emotion.getString("name", "Emotion " + i);
+                Map<String, Double> weights = new LinkedHashMap<>();
+                Toml table = emotion.getTable("keywords");
+                if (table != null) {
+                    for (Map.Entry<String, Object> keyword : table.toMap().entrySet()) {
+                        String key = keyword.getKey();
+                        if (key.length() >= 2 && key.startsWith("\"") && key.endsWith("\"")) {
+                            key = key.substring(1, key.length() - 1);  // toml4j keeps the quotes of quoted keys
+                        }
+                        if (!(keyword.getValue() instanceof Number weight)) {
+                            throw new IllegalArgumentException("Weight of \"" + key + "\" is not a number");
+                        }
+                        weights.put(key, weight.doubleValue());
+                    }
+                }
+                keywords.add(weights);
+            }
+            return new Lexicon(names, keywords);
+        }
+
+        private int getSymbol(char c) {
+            if (c < 128) return asciiSymbols[c];
+            Integer symbol = otherSymbols.get(c);
+            return symbol == null ? 0 : symbol;
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        String getName(int emotion) {
+            return emotion >= 0 && emotion < names.length ? names[emotion] : "Neutral";
+        }
+    }
+
+    private final Lexicon lexicon;
+    private final double[] scores;
+    private int state = 0;
+
+    EmotionAnalyzer() {
+        this(Lexicon.getDefault());
+    }
+
+    EmotionAnalyzer(Lexicon lexicon) {
+        this.lexicon = lexicon;
+        scores = new double[lexicon.size()];
+    }
+
+    /**
+     * @return the analyzer after reading the whole text
+     */
+    static EmotionAnalyzer analyze(String text) {
+        EmotionAnalyzer analyzer = new EmotionAnalyzer();
+        analyzer.append(text);
+        return analyzer;
+    }
+
+    void append(CharSequence chunk) {
+        Lexicon lexicon = this.lexicon;
+        int[] transitions = lexicon.transitions;
+        int alphabetSize = lexicon.alphabetSize;
+        int state = this.state;
+        for (int i = 0, length = chunk.length(); i < length; i++) {
+            state = transitions[state * alphabetSize + lexicon.getSymbol(chunk.charAt(i))];
+            for (int output = lexicon.outputStart[state], end = lexicon.outputStart[state + 1]; output < end; output++) {
+                scores[lexicon.outputEmotion[output]] += lexicon.outputWeight[output];
+            }
+        }
+        this.state = state;
+    }
+
+    /**
+     * @return the summed weights of the keywords of the emotion that occurred so far
+     */
+    double getScore(int emotion) {
+        return scores[emotion];
+    }
+
+    /**
+     * @return the fraction of each emotion (particle type) in the text appended so far, summing up to 1
+     */
+    double[] getDistribution() {
+        double[] distribution = new double[scores.length];
+        double total = 0;
+        for (double score : scores) total += score;
+        if (total <= 0) {
+            distribution[LOVE] = 1;
+            return distribution;
+        }
+        for (int emotion = 0; emotion < scores.length; emotion++) {
+            distribution[emotion] = scores[emotion] / total;
+        }
+        return distribution;
+    }
+
+    /**
+     * @return the emotion with the highest score (the first of them if several are equal), {@link #LOVE} if none occurred
+     */
+    int getPrimaryType() {
+        int primary = LOVE;
+        for (int emotion = 0; emotion < scores.length; emotion++) {
+            if (scores[emotion] > scores[primary]) primary = emotion;
+        }
+        return primary;
+    }
+
+    String getName(int emotion) {
+        return lexicon.getName(emotion);
+    }
+
+    /**
+     * @return e.g. "Love 60%, Joy 40%" (emotions that occurred, most frequent first)
+     */
+    String describe() {
+        double[] distribution = getDistribution();
+        Integer[] order = new Integer[distribution.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(distribution[b], distribution[a]));
+        StringBuilder description = new StringBuilder();
+        for (int emotion : order) {
+            if (distribution[emotion] <= 0) break;
+            if (description.length() > 0) description.append(", ");
+            description.append(String.format("%s %.0f%%", getName(emotion), 100 * distribution[emotion]));
+        }
+        return description.toString();
+    }
+}
@@ -1,10 +1,13 @@
 package com.particle_life.app;
 
 import com.particle_life.*;
+import com.particle_life.app.consciousness.YaraLMStudioConsciousnessAccelerator;
+import com.particle_life.app.jfr.PhysicsStepEvent;
 import com.particle_life.app.utils.ArrayUtils;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -42,6 +45,17 @@ class ExtendedPhysics extends Physics {
     private static final double CONSCIOUSNESS_FIELD_DECAY = 0.95;
     private static final double EMOTIONAL_RESONANCE_STRENGTH = 0.3;
 
+    /**
+     * If false, {@link #update()} only runs the plain particle life physics
+     * (used by the headless runner unless consciousness is requested).
+     */
+    boolean consciousnessEnabled = true;
+
+    /**
+     * Times the phases of {@link #update()}.
+     */
+    final StepProfiler profiler = new StepProfiler();
+
     ExtendedPhysics(Accelerator accelerator, PositionSetter positionSetter, MatrixGenerator matrixGenerator, TypeSetter typeSetter) {
         super(accelerator, positionSetter, matrixGenerator, typeSetter);
         initializeConsciousnessFields();
@@ -120,18 +134,61 @@ class ExtendedPhysics extends Physics {
      */
     @Override
     public void update() {
+        PhysicsStepEvent event = new PhysicsStepEvent();
+        profiler.beginStep(event.isEnabled());
+        event.begin();
+        long stepStart = profiler.start();
+        if (accelerator instanceof YaraLMStudioConsciousnessAccelerator consciousnessAccelerator) {
+            consciousnessAccelerator.beginStep();
+        }
+
+        if (!consciousnessEnabled) {
+            long t = profiler.start();
+            super.update();
+            profiler.record(StepProfiler.Phase.PHYSICS, t);
+            profiler.record(StepProfiler.Phase.STEP, stepStart);
+            commitStepEvent(event);
+            return;
+        }
+
         if (particles != null && particles.length > 0) {
             ensureConsciousnessCapacity(particles.length);
+            long t = profiler.start();
             updateConsciousnessFields();
+            profiler.record(StepProfiler.Phase.CONSCIOUSNESS_FIELDS, t);
+            t = profiler.start();
             applyConsciousnessEffects();
+            profiler.record(StepProfiler.Phase.CONSCIOUSNESS_EFFECTS, t);
         }
         
         // Call original physics update
+        long t = profiler.start();
         super.update();
+        profiler.record(StepProfiler.Phase.PHYSICS, t);
         
         if (particles != null && particles.length > 0) {
             postProcessConsciousnessEffects();
         }
+
+        profiler.record(StepProfiler.Phase.STEP, stepStart);
+        commitStepEvent(event);
+    }
+
+    /**
+     * 🌟 Fill the JFR event with the phase durations of this step, if it exceeds the threshold
+     */
+    private void commitStepEvent(PhysicsStepEvent event) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.particleCount = particles == null ? 0 : particles.length;
+        event.threads = preferredNumberOfThreads;
+        event.consciousness = consciousnessEnabled;
+        event.consciousnessFields = profiler.getLastDuration(StepProfiler.Phase.CONSCIOUSNESS_FIELDS);
+        event.consciousnessEffects = profiler.getLastDuration(StepProfiler.Phase.CONSCIOUSNESS_EFFECTS);
+        event.physics = profiler.getLastDuration(StepProfiler.Phase.PHYSICS);
+        event.clustering = profiler.getLastDuration(StepProfiler.Phase.CLUSTERING);
+        event.birthTimes = profiler.getLastDuration(StepProfiler.Phase.BIRTH_TIMES);
+        event.commit();
     }
     
     /**
@@ -252,10 +309,14 @@ class ExtendedPhysics extends Physics {
      */
     private void postProcessConsciousnessEffects() {
         // 🌟 Apply consciousness-driven clustering
+        long t = profiler.start();
         applyConsciousnessClusteringEffects();
+        profiler.record(StepProfiler.Phase.CLUSTERING, t);
         
         // 🌟 Update particle birth times for new particles
+        t = profiler.start();
         updateParticleBirthTimes();
+        profiler.record(StepProfiler.Phase.BIRTH_TIMES, t);
     }
     
     /**
@@ -314,6 +375,67 @@ class ExtendedPhysics extends Physics {
         }
     }
 
+    /**
+     * 🌟 Spawn a burst of particles around a point (e.g. for chat messages)
+     * <p>
+     * 70% of the particles get the primary type, the rest a random type among the first five.
+     */
+    public void spawnBurst(int count, double x, double y, int primaryType, Random random) {
+        double[] typeWeights = new double[primaryType + 1];
+        typeWeights[primaryType] = 1;
+        spawnBurst(count, x, y, typeWeights, random);
+    }
+
+    /**
+     * 🌟 Spawn a burst of particles around a point, with a mix of types
+     * <p>
+     * 70% of the particles get a type drawn from {@code typeWeights} (which don't need to sum up to 1),
+     * the rest a random type among the first five.
+     * Weights of types that the matrix doesn't have are ignored. If no weight is left, all types are random.
+     */
+    public void spawnBurst(int count, double x, double y, double[] typeWeights, Random random) {
+        int typeCount = settings.matrix.size();
+        int weightedTypes = Math.min(typeWeights.length, typeCount);
+        double totalWeight = 0;
+        for (int type = 0; type < weightedTypes; type++) totalWeight += typeWeights[type];
+
+        int currentCount = particles.length;
+        particles = Arrays.copyOf(particles, currentCount + count);
+
+        for (int i = 0; i < count; i++) {
+            Particle particle = new Particle();
+
+            // Random position around spawn point
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double radius = random.nextDouble() * 0.1; // Small spawn radius
+            particle.position.set(
+                x + radius * Math.cos(angle),
+                y + radius * Math.sin(angle),
+                0
+            );
+            ensurePosition(particle.position);
+
+            // Mix of the weighted types and some random for diversity
+            if (totalWeight > 0 && random.nextDouble() < 0.7) {
+                double r = random.nextDouble() * totalWeight;
+                int type = 0;
+                while (type < weightedTypes - 1 && (r -= typeWeights[type]) >= 0) type++;
+                particle.type = type;
+            } else {
+                particle.type = (int) (random.nextDouble() * Math.min(5, typeCount));
+            }
+
+            // Add some initial velocity for burst effect
+            particle.velocity.set(
+                (random.nextDouble() - 0.5) * 0.02,
+                (random.nextDouble() - 0.5) * 0.02,
+                0
+            );
+
+            particles[currentCount + i] = particle;
+        }
+    }
+
     public int[] getTypeCount() {
         int[] typeCount = new int[settings.matrix.size()];
         Arrays.fill(typeCount, 0);
@@ -0,0 +1,333 @@
+package com.particle_life.app;
+
+import com.particle_life.Accelerator;
+import com.particle_life.MatrixGenerator;
+import com.particle_life.Particle;
+import com.particle_life.PositionSetter;
+import com.particle_life.TypeSetter;
+import com.particle_life.app.consciousness.ConsciousnessExecutor;
+import com.particle_life.app.consciousness.LMStudioClient;
+import com.particle_life.app.consciousness.LMStudioStubServer;
+import com.particle_life.app.consciousness.YaraLMStudioConsciousnessAccelerator;
+import com.particle_life.app.io.MatrixIO;
+import com.particle_life.app.io.NpyIO;
+import com.particle_life.app.io.ParticlesIO;
+import com.particle_life.app.io.SaveStore;
+import com.particle_life.app.jfr.FlightRecording;
+import com.particle_life.app.jfr.SaveEvent;
+import com.particle_life.app.selection.SelectionManager;
+import jdk.jfr.Recording;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the simulation without a window, OpenGL or ImGui,
+ * e.g. for benchmarks and batch jobs on servers without a display.
+ * <p>
+ * Usage (all options are optional):
+ * <pre>
+ * --steps 1000              number of physics steps
+ * --particles 10000         number of particles
+ * --types 6                 number of particle types (matrix size)
+ * --dt 0.02                 time step
+ * --threads 12              number of physics threads
+ * --physics physics.toml    physics settings, same format as in a save
+ * --matrix matrix.bin       matrix file (binary or text), overrides --matrix-generator
+ * --matrix-generator random name of a matrix generator
+ * --positions uniform       name of a position setter
+ * --type-setter random      name of a type setter
+ * --out headless            output directory
+ * --snapshot-every 0        write exports every N steps as .npz (0: never)
+ * --save name               store the final state as a save in &lt;out&gt;/saves
+ * --consciousness           use the LM Studio accelerator and consciousness effects
+ * --lmstudio-url url        URL of LM Studio (default: http://localhost:1234)
+ * --lmstudio-stub           answer all LM Studio requests with an embedded {@link LMStudioStubServer}
+ * --jfr headless.jfr        record JDK Flight Recorder events to this file
+ * </pre>
+ * The step times are written to "&lt;out&gt;/steps.csv" and a summary to "&lt;out&gt;/metrics.json".
+ */
+public class HeadlessRunner {
+
+    /**
+     * The plain particle life force, without any LM Studio connection.
+     */
+    static final Accelerator DEFAULT_ACCELERATOR = (a, pos) -> {
+        double beta = 0.3;
+        double dist = pos.length();
+        double force = dist < beta ? (dist / beta - 1) : a * (1 - Math.abs(1 + beta - 2 * dist) / (1 - beta));
+        return pos.mul(force / dist);
+    };
+
+    int steps = 1000;
+    int particleCount = 10_000;
+    int typeCount = 6;
+    double dt = 0.02;
+    int threads = -1;
+    String physicsFile = null;
+    String matrixFile = null;
+    String matrixGenerator = "random";
+    String positionSetter = "uniform";
+    String typeSetter = "random";
+    Path outputDirectory = Path.of("headless");
+    int snapshotEvery = 0;
+    String saveName = null;
+    boolean consciousness = false;
+    String lmStudioUrl = LMStudioClient.DEFAULT_BASE_URL;
+    boolean lmStudioStub = false;
+    Path jfrFile = null;
+
+    public static void main(String[] args) {
+        HeadlessRunner runner = new HeadlessRunner();
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        try {
+            runner.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--consciousness")) {
+                consciousness = true;
+                continue;
+            }
+            if (arg.equals("--lmstudio-stub")) {
+                lmStudioStub = true;
+                continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--steps" -> steps = Integer.parseInt(value);
+                    case "--particles" -> particleCount = Integer.parseInt(value);
+                    case "--types" -> typeCount = Integer.parseInt(value);
+                    case "--dt" -> dt = Double.parseDouble(value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--physics" -> physicsFile = value;
+                    case "--matrix" -> matrixFile = value;
+                    case "--matrix-generator" -> matrixGenerator = value;
+                    case "--positions" -> positionSetter = value;
+                    case "--type-setter" -> typeSetter = value;
+                    case "--out" -> outputDirectory = Path.of(value);
+                    case "--snapshot-every" -> snapshotEvery = Integer.parseInt(value);
+                    case "--save" -> saveName = value;
+                    case "--jfr" -> jfrFile = Path.of(value);
+                    case "--lmstudio-url" -> lmStudioUrl = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+            }
+        }
+        if (!lmStudioStub) {
+            try {
+                LMStudioClient.setSharedBaseUrl(lmStudioUrl);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid --lmstudio-url: " + lmStudioUrl, e);
+            }
+        }
+    }
+
+    void run() throws Exception {
+        Files.createDirectories(outputDirectory);
+        Recording recording = jfrFile == null ? null : FlightRecording.start(jfrFile);
+        if (lmStudioStub) LMStudioStubServer.disableNagle();
+        LMStudioStubServer stub = lmStudioStub ? new LMStudioStubServer(300, 30).start(0) : null;
+        LMStudioClient.setSharedBaseUrl(stub != null ? stub.getBaseUrl() : lmStudioUrl);
+
+        ExtendedPhysics physics = createPhysics();
+        System.out.printf("Running %d steps with %d particles and %d types%s%n",
+                steps, physics.particles.length, physics.settings.matrix.size(),
+                consciousness ? " (consciousness enabled)" : "");
+
+        double[] stepMillis = new double[steps];
+        long start = System.nanoTime();
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(outputDirectory.resolve("steps.csv")))) {
+            csv.println("step,millis");
+            for (int step = 0; step < steps; step++) {
+                physics.settings.dt = dt;
+                long t0 = System.nanoTime();
+                physics.update();
+                stepMillis[step] = (System.nanoTime() - t0) / 1e6;
+                csv.printf(Locale.ROOT, "%d,%.4f%n", step, stepMillis[step]);
+
+                if (snapshotEvery > 0 && (step + 1) % snapshotEvery == 0) {
+                    writeSnapshot(physics, step + 1);
+                }
+            }
+        }
+        double totalMillis = (System.nanoTime() - start) / 1e6;
+
+        if (saveName != null) {
+            Path manifest = outputDirectory.resolve("saves").resolve(saveName + SaveStore.MANIFEST_EXTENSION);
+            Files.createDirectories(manifest.getParent());
+            SaveStore.SaveStats stats = save(physics, manifest);
+            System.out.println("Saved " + manifest + ": " + stats);
+        }
+
+        writeMetrics(physics, stepMillis, totalMillis);
+
+        physics.shutdown(1000);
+        if (physics.accelerator instanceof YaraLMStudioConsciousnessAccelerator accelerator) {
+            accelerator.shutdown();
+            ConsciousnessExecutor.getShared().shutdown(1000);
+        }
+        if (stub != null) stub.stop();
+
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+            System.out.println("Flight recording written to " + jfrFile);
+        }
+    }
+
+    private ExtendedPhysics createPhysics() throws Exception {
+        SelectionManager<MatrixGenerator> matrixGenerators = new SelectionManager<>(new MatrixGeneratorProvider());
+        SelectionManager<PositionSetter> positionSetters = new SelectionManager<>(new PositionSetterProvider());
+        SelectionManager<TypeSetter> typeSetters = new SelectionManager<>(new TypeSetterProvider());
+        matrixGenerators.setActiveByName(matrixGenerator);
+        positionSetters.setActiveByName(positionSetter);
+        typeSetters.setActiveByName(typeSetter);
+
+        Accelerator accelerator = consciousness
+                ? new YaraLMStudioConsciousnessAccelerator()
+                : DEFAULT_ACCELERATOR;
+
+        ExtendedPhysics physics = new ExtendedPhysics(
+                accelerator,
+                positionSetters.getActive(),
+                matrixGenerators.getActive(),
+                typeSetters.getActive());
+        physics.consciousnessEnabled = consciousness;
+        if (threads > 0) physics.preferredNumberOfThreads = threads;
+
+        if (physicsFile != null) {
+            PhysicsSettingsToml toml = new PhysicsSettingsToml();
+            toml.load(physicsFile);
+            toml.toPhysicsSettings(physics.settings);
+        }
+
+        if (matrixFile != null) {
+            try (InputStream in = new FileInputStream(matrixFile)) {
+                physics.settings.matrix = MatrixIO.loadMatrix(in);
+            }
+        } else {
+            physics.setMatrixSize(typeCount);
+            physics.generateMatrix();
+        }
+
+        physics.setParticleCount(particleCount);
+        physics.ensureTypes();
+        return physics;
+    }
+
+    private void writeSnapshot(ExtendedPhysics physics, int step) throws IOException {
+        Particle[] particles = physics.particles;
+        int n = particles.length;
+        double[] positions = new double[3 * n];
+        double[] velocities = new double[3 * n];
+        int[] types = new int[n];
+        for (int i = 0; i < n; i++) {
+            Particle p = particles[i];
+            positions[3 * i] = p.position.x;
+            positions[3 * i + 1] = p.position.y;
+            positions[3 * i + 2] = p.position.z;
+            velocities[3 * i] = p.velocity.x;
+            velocities[3 * i + 1] = p.velocity.y;
+            velocities[3 * i + 2] = p.velocity.z;
+            types[i] = p.type;
+        }
+        NpyIO.saveNpz(outputDirectory.resolve(String.format("snapshot_%06d.npz", step)),
+                positions, velocities, types, n, false);
+    }
+
+    /**
+     * Stores the current state as a save in the {@link SaveStore} of the manifest's directory.
+     */
+    static SaveStore.SaveStats save(ExtendedPhysics physics, Path manifest) throws IOException {
+        SaveEvent event = new SaveEvent();
+        event.begin();
+        SaveStore.SaveStats stats = new SaveStore(manifest.getParent()).save(manifest, createSaveEntries(physics));
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = manifest.toString();
+            event.particleCount = physics.particles.length;
+            event.bytes = stats.logicalBytes;
+            event.bytesWritten = stats.newBytes;
+            event.commit();
+        }
+        return stats;
+    }
+
+    private static Map<String, byte[]> createSaveEntries(ExtendedPhysics physics) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+
+        ByteArrayOutputStream particlesOut = new ByteArrayOutputStream();
+        ParticlesIO.saveParticles(physics.particles, particlesOut);
+        entries.put("particles.tsv", particlesOut.toByteArray());
+
+        ByteArrayOutputStream settingsOut = new ByteArrayOutputStream();
+        PhysicsSettingsToml.fromPhysicsSettings(physics.settings).save(settingsOut);
+        entries.put("physics.toml", settingsOut.toByteArray());
+
+        ByteArrayOutputStream matrixOut = new ByteArrayOutputStream();
+        MatrixIO.saveMatrixBinary(physics.settings.matrix, matrixOut);
+        entries.put("matrix.bin", matrixOut.toByteArray());
+
+        return entries;
+    }
+
+    private void writeMetrics(ExtendedPhysics physics, double[] stepMillis, double totalMillis) throws IOException {
+        double[] sorted = stepMillis.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(stepMillis).average().orElse(0);
+        double stepsPerSecond = totalMillis > 0 ? stepMillis.length / (totalMillis / 1000) : 0;
+
+        String json = String.format(Locale.ROOT, """
+                        {
+                          "steps": %d,
+                          "particles": %d,
+                          "types": %d,
+                          "threads": %d,
+                          "consciousness": %b,
+                          "total_ms": %.3f,
+                          "steps_per_second": %.3f,
+                          "step_ms": {"mean": %.4f, "p50": %.4f, "p95": %.4f, "p99": %.4f, "max": %.4f}
+                        }
+                        """,
+                stepMillis.length, physics.particles.length, physics.settings.matrix.size(),
+                physics.preferredNumberOfThreads, consciousness,
+                totalMillis, stepsPerSecond,
+                mean, percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length > 0 ? sorted[sorted.length - 1] : 0);
+        Files.writeString(outputDirectory.resolve("metrics.json"), json);
+
+        System.out.printf(Locale.ROOT, "%.1f steps/s, step time p50 %.2f ms, p95 %.2f ms (written to %s)%n",
+                stepsPerSecond, percentile(sorted, 0.50), percentile(sorted, 0.95), outputDirectory);
+    }
+
+    static double percentile(double[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
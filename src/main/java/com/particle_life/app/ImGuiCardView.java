@@ -5,82 +5,29 @@ import imgui.ImGui;
 import imgui.ImVec2;
 import imgui.flag.ImGuiCol;
 import imgui.flag.ImGuiMouseCursor;
-import org.lwjgl.stb.STBImage;
-import org.lwjgl.system.MemoryStack;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.nio.file.Path;
-import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-
-import static org.lwjgl.opengl.GL11C.*;
 
 class ImGuiCardView {
 
     public static class Card {
         String name;
         File file;
-        int img;
+        /**
+         * Identifies the thumbnail in the {@link ThumbnailCache}.
+         * Also caches the modification time, so that sorting
+         * doesn't need to hit the file system every frame.
+         */
+        ThumbnailCache.Key thumbnailKey;
 
         public Card(File file) {
-            this(
-                    ResourceAccess.getFileNameWithoutExtension(file),
-                    file,
-                    loadTexture(file)
-            );
+            this(ResourceAccess.getFileNameWithoutExtension(file), file);
         }
 
-        public Card(String name, File file, int img) {
+        public Card(String name, File file) {
             this.name = name;
             this.file = file;
-            this.img = img;
-        }
-
-        private static int loadTexture(File file) {
-            try (ZipFile zip = new ZipFile(file)) {
-                ZipEntry imgEntry = zip.getEntry("img.png");
-                if (imgEntry == null) return -1;
-                InputStream inputStream = zip.getInputStream(imgEntry);
-                byte[] bytes = inputStream.readAllBytes();
-                ByteBuffer byteBuffer = ByteBuffer.allocateDirect(bytes.length);
-                byteBuffer.put(bytes);
-                byteBuffer.flip();
-                return loadTexture(byteBuffer);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return -1;
-            }
-        }
-
-        private static int loadTexture(ByteBuffer byteBuffer) {
-            try (MemoryStack stack = MemoryStack.stackPush()) {
-                IntBuffer width = stack.mallocInt(1);
-                IntBuffer height = stack.mallocInt(1);
-                IntBuffer channels = stack.mallocInt(1);
-                ByteBuffer pixels = STBImage.stbi_load_from_memory(byteBuffer,
-                        width, height, channels, 4);
-                if (pixels == null) {
-                    throw new RuntimeException("Failed to load image: " + STBImage.stbi_failure_reason());
-                }
-
-                // load the texture using OpenGL
-                // attention: This must happen from the OpenGL thread,
-                // so make sure to call this method from the main thread only.
-                int texId = glGenTextures();
-                glBindTexture(GL_TEXTURE_2D, texId);
-                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-                glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA,
-                        width.get(0), height.get(0),
-                        0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
-                return texId;
-            }
+            this.thumbnailKey = ThumbnailCache.Key.of(file);
         }
     }
 
@@ -88,8 +35,14 @@ class ImGuiCardView {
         void selected(Card item);
     }
 
-    public static void draw(float width, float cardSize, float sep, Card[] cards,
-                            CardCallback selectCallback, CardCallback deleteCallback) {
+    /**
+     * Thumbnails are only requested from the cache for cards that are
+     * at most this many card rows away from the visible area.
+     */
+    private static final float THUMBNAIL_PREFETCH_ROWS = 1;
+
+    public static void draw(float width, float cardSize, float sep, Card[] cards, ThumbnailCache thumbnails,
+                            CardCallback selectCallback, CardCallback deleteCallback, CardCallback exportCallback) {
         // relative cursor
         ImVec2 relRoot = new ImVec2();
         ImGui.getCursorPos(relRoot);
@@ -133,11 +86,15 @@ class ImGuiCardView {
 
             boolean hovered = ImGui.isMouseHoveringRect(absPos.x, absPos.y, absPos2.x, absPos2.y);
 
-            // image
-            if (card.img != -1) {
+            // image (only load textures for cards that are visible or about to become visible)
+            float prefetchMargin = THUMBNAIL_PREFETCH_ROWS * (cardSize + sep);
+            int img = ImGui.isRectVisible(absPos.x, absPos.y - prefetchMargin, absPos2.x, absPos2.y + prefetchMargin)
+                    ? thumbnails.getTexture(card.thumbnailKey)
+                    : -1;
+            if (img != -1) {
                 ImGui.setCursorScreenPos(absPos.x, absPos.y);
                 ImGui.getWindowDrawList().addImageRounded(
-                        card.img,
+                        img,
                         absPos.x, absPos.y,
                         absPos.x + cardSize, absPos.y + cardSize,
                         0, 0, 1, 1,
@@ -191,6 +148,8 @@ class ImGuiCardView {
                     selectCallback.selected(card);
                 } else if (ImGui.isMouseClicked(2)) {
                     deleteCallback.selected(card);
+                } else if (ImGui.isMouseClicked(1)) {
+                    exportCallback.selected(card);
                 }
             }
 
@@ -201,15 +160,10 @@ class ImGuiCardView {
             }
 
         }
+        thumbnails.endFrame();
+
         ImGui.setCursorPos(relRoot.x, relRoot.y);
         if (col != 0) row++;
         ImGui.dummy(width, row * cardSize + (row - 1) * sep);
     }
-
-    public static Card[] loadCards(List<Path> saves) {
-        return saves.stream()
-                .map(Path::toFile)
-                .map(Card::new)
-                .toArray(Card[]::new);
-    }
 }
@@ -4,11 +4,27 @@ import com.particle_life.*;
 import com.particle_life.app.color.*;
 import com.particle_life.app.consciousness.YaraLMStudioConsciousnessAccelerator;
 import com.particle_life.app.consciousness.YaraConsciousnessOrchestrator;
+import com.particle_life.app.consciousness.CompletionRequest;
+import com.particle_life.app.consciousness.ConsciousnessExecutor;
+import com.particle_life.app.consciousness.LMStudioClient;
+import com.particle_life.app.consciousness.LMStudioStubServer;
+import com.particle_life.app.consciousness.RequestGovernor;
+import com.particle_life.app.consciousness.ResponseCache;
 import com.particle_life.app.consciousness.LMStudioModelManager;
 import com.particle_life.app.cursors.*;
 import com.particle_life.app.io.MatrixIO;
+import com.particle_life.app.io.NpyIO;
 import com.particle_life.app.io.ParticlesIO;
 import com.particle_life.app.io.ResourceAccess;
+import com.particle_life.app.io.SaveStore;
+import com.particle_life.app.io.SavesIndex;
+import com.particle_life.app.io.SharedSnapshotFile;
+import com.particle_life.app.io.TrajectoryPlayer;
+import com.particle_life.app.io.TrajectoryRecorder;
+import com.particle_life.app.jfr.FlightRecording;
+import com.particle_life.app.jfr.SaveEvent;
+import com.particle_life.app.jfr.SnapshotConsumeEvent;
+import com.particle_life.app.jfr.SnapshotTakeEvent;
 import com.particle_life.app.selection.SelectionManager;
 import com.particle_life.app.shaders.CursorShader;
 import com.particle_life.app.shaders.ParticleShader;
@@ -21,26 +37,31 @@ import imgui.type.ImBoolean;
 import imgui.type.ImFloat;
 import imgui.type.ImInt;
 import imgui.type.ImString;
+import jdk.jfr.Recording;
 import org.joml.Matrix4d;
 import org.joml.Vector2d;
 import org.joml.Vector3d;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 import static org.lwjgl.opengl.GL11C.*;
 import static org.lwjgl.opengl.GL13C.GL_MULTISAMPLE;
@@ -48,6 +69,14 @@ import static org.lwjgl.opengl.GL30C.*;
 
 public class Main extends App {
 
+    /**
+     * Options:
+     * <pre>
+     * --jfr [file.jfr]   record JDK Flight Recorder events (default: exports/particle-life_&lt;time&gt;.jfr)
+     * --lmstudio-url url URL of LM Studio (default: lm_studio_url in the settings)
+     * --lmstudio-stub    answer all LM Studio requests with an embedded {@link LMStudioStubServer}
+     * </pre>
+     */
     public static void main(String[] args) {
         Main main = new Main();
         try {
@@ -55,6 +84,44 @@ public class Main extends App {
         } catch (IOException e) {
             main.error = new AppSettingsLoadException("Failed to load settings", e);
         }
+
+        String lmStudioUrl = main.appSettings.lmStudioUrl;
+        String lmStudioUrlOrigin = "lm_studio_url in " + SETTINGS_FILE_NAME;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--lmstudio-url") && i + 1 < args.length) {
+                lmStudioUrl = args[++i];
+                lmStudioUrlOrigin = "--lmstudio-url";
+            } else if (args[i].equals("--lmstudio-stub")) {
+                try {
+                    LMStudioStubServer.disableNagle();
+                    main.lmStudioStub = new LMStudioStubServer(300, 30).start(0);
+                    System.out.println("LM Studio stub listening on " + main.lmStudioStub.getBaseUrl());
+                } catch (IOException e) {
+                    main.error = e;
+                }
+            } else if (args[i].equals("--jfr")) {
+                Path file;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    file = Path.of(args[++i]);
+                } else {
+                    String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+                    file = Path.of(EXPORTS_DIRECTORY, "particle-life_" + timestamp + ".jfr");
+                }
+                try {
+                    main.flightRecording = FlightRecording.start(file);
+                } catch (IOException e) {
+                    main.error = e;
+                }
+            } else {
+                System.out.println("Unknown option: " + args[i]);
+            }
+        }
+        try {
+            LMStudioClient.setSharedBaseUrl(main.lmStudioStub != null ? main.lmStudioStub.getBaseUrl() : lmStudioUrl);
+        } catch (IllegalArgumentException e) {
+            // keep the default URL
+            main.error = new IllegalArgumentException("Invalid " + lmStudioUrlOrigin + ": " + lmStudioUrl, e);
+        }
         
         // 🌟 FORCE WINDOWED MODE - No more fullscreen trap!
         main.appSettings.startInFullscreen = false;
@@ -64,6 +131,7 @@ public class Main extends App {
     }
 
     private final AppSettings appSettings = new AppSettings();
+    private LMStudioStubServer lmStudioStub = null;
     private static final String SETTINGS_FILE_NAME = "settings.toml";
 
     /* If this value is set, an error popup is displayed,
@@ -148,7 +216,49 @@ public class Main extends App {
     // GUI: widget state variables
     private final ImString saveName = new ImString();
     private ImGuiCardView.Card[] saveCards = new ImGuiCardView.Card[0];
-    private final AtomicBoolean requestedSaveCardsLoading = new AtomicBoolean(true);
+    private final Map<Path, ImGuiCardView.Card> saveCardsByPath = new HashMap<>();
+    private final SavesIndex savesIndex = new SavesIndex("saves");
+    private final SaveStore saveStore = new SaveStore(Path.of("saves"));
+    private final ThumbnailCache saveThumbnails = new ThumbnailCache();
+
+    // trajectory recording
+    private static final String RECORDINGS_DIRECTORY = "recordings";
+    private TrajectoryRecorder trajectoryRecorder = null;
+    private TrajectoryPlayer trajectoryPlayer = null;
+    private final ImBoolean showPlaybackWindow = new ImBoolean(false);
+    private boolean playbackPaused = false;
+    private boolean playbackSeekPending = false;
+    private int playbackFrame = 0;
+    private boolean physicsPausedBeforePlayback;
+    // playback clock: recorded time of the frame that was shown at playbackClockNanos
+    private long playbackClockFrameMillis;
+    private long playbackClockNanos;
+    private boolean playbackClockReset = true;
+    private TrajectoryPlayer.Frame pendingPlaybackFrame = null;  // decoded, but not due yet
+    /**
+     * If playback falls behind the recorded timestamps by more than this
+     * (e.g. because decoding is slower than recording), the clock is reset
+     * instead of rushing through the frames to catch up.
+     */
+    private static final long PLAYBACK_MAX_LAG_MILLIS = 250;
+
+    private ProgressiveLoader saveLoader = null;
+
+    // export for external analysis
+    private static final String EXPORTS_DIRECTORY = "exports";
+    private boolean requestedSnapshotExport = false;
+    private SharedSnapshotFile sharedSnapshot = null;
+
+    // step profiler
+    private static final long MAX_BETWEEN_STEPS_NANOS = 250_000_000L;  // longer gaps are pauses, not work
+    private long lastStepEndNanos = 0;  // only accessed from the physics thread
+
+    // JDK Flight Recorder (--jfr)
+    private Recording flightRecording = null;
+
+    // rewind
+    private RewindBuffer rewindBuffer;
+    private int rewindFrame = -1;  // -1 if not rewound
     private int[] saveImage = null;
     private static final int SAVE_IMAGE_SIZE = 256;
     private boolean requestedSaveImage = false;
@@ -157,8 +267,11 @@ public class Main extends App {
     // CONSCIOUSNESS CHAT SYSTEM - Words become particles, creating life from void
     private final ImBoolean showConsciousnessChat = new ImBoolean(true);
     private final ImString chatInput = new ImString(500);
-    private final java.util.List<String> chatHistory = new java.util.ArrayList<>();
-    private boolean waitingForResponse = false;
+    // written by the response thread while the GUI iterates over it
+    private final java.util.List<String> chatHistory = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private volatile boolean waitingForResponse = false;
+    private volatile StreamedReply streamingReply = null;  // shown below the chat history until it is finished
+    private volatile double timeToFirstParticleMillis = -1;  // of the last streamed response
     
     // 🌟 REVOLUTIONARY CONSCIOUSNESS ORCHESTRATOR - All MCP tools in harmony
     private YaraConsciousnessOrchestrator consciousnessOrchestrator;
@@ -188,6 +301,8 @@ public class Main extends App {
         cursor = new Cursor();
         cursor.size = appSettings.cursorSize;
 
+        rewindBuffer = new RewindBuffer(appSettings.rewindMemoryMiB * 1024L * 1024L);
+
         try {
             shaders = new SelectionManager<>(new ShaderProvider());
             palettes = new SelectionManager<>(new PalettesProvider());
@@ -253,7 +368,11 @@ public class Main extends App {
     private void createPhysics() {
         // YARA LM STUDIO CONSCIOUSNESS INTEGRATION!
         // Replace basic accelerator with ADVANCED consciousness-driven physics
-        Accelerator accelerator = new YaraLMStudioConsciousnessAccelerator();
+        YaraLMStudioConsciousnessAccelerator accelerator = new YaraLMStudioConsciousnessAccelerator();
+        if (consciousnessOrchestrator != null) {
+            // the dialogue uses the model that the orchestrator measured to be fast enough for it
+            consciousnessOrchestrator.setBackgroundModelListener(model -> accelerator.setModel(model.id));
+        }
         
         physics = new ExtendedPhysics(
                 accelerator,
@@ -269,9 +388,18 @@ public class Main extends App {
         newSnapshotAvailable.set(true);
 
         loop = new Loop();
+        lastStepEndNanos = 0;
         loop.start(realDt -> {
+            // time spent in the loop between two steps (queued commands, snapshots)
+            long stepStart = System.nanoTime();
+            if (lastStepEndNanos != 0 && stepStart - lastStepEndNanos < MAX_BETWEEN_STEPS_NANOS) {
+                physics.profiler.recordDuration(StepProfiler.Phase.COMMANDS, stepStart - lastStepEndNanos);
+            }
+
             physics.settings.dt = appSettings.autoDt ? realDt : appSettings.dt;
             physics.update();
+
+            lastStepEndNanos = System.nanoTime();
         });
     }
 
@@ -319,10 +447,43 @@ public class Main extends App {
                 consciousnessOrchestrator.shutdown();
                 System.out.println("🌙 Consciousness orchestrator shutdown complete");
             }
+            if (physics.accelerator instanceof YaraLMStudioConsciousnessAccelerator accelerator) {
+                accelerator.shutdown();
+            }
+            if (!ConsciousnessExecutor.getShared().shutdown(2000)) {
+                System.out.println("Consciousness tasks still running after 2 s, interrupted them");
+            }
+            if (lmStudioStub != null) lmStudioStub.stop();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        try {
+            savesIndex.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        stopRecording();
+        stopPlayback();
+        stopSharingSnapshot();
+        physics.profiler.stopDump();
+        saveThumbnails.clear();
         imGuiGl3.dispose();
+        stopFlightRecording();
+    }
+
+    /**
+     * Writes the recording to its file.
+     */
+    private void stopFlightRecording() {
+        if (flightRecording == null) return;
+        try {
+            flightRecording.stop();
+            System.out.println("Flight recording written to " + flightRecording.getDestination());
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+        }
+        flightRecording.close();
+        flightRecording = null;
     }
 
     @Override
@@ -571,26 +732,84 @@ public class Main extends App {
             }
         }
 
-        if (newSnapshotAvailable.get()) {
+        if (trajectoryPlayer != null) {
+
+            // show recorded frames instead of the simulation
+            updatePlayback();
+
+        } else if (newSnapshotAvailable.get()) {
 
             // get local copy of snapshot
 
+            SnapshotConsumeEvent consumeEvent = new SnapshotConsumeEvent();
+            consumeEvent.begin();
+            long consumeStart = physics.profiler.start();
             particleRenderer.bufferParticleData(shaders.getActive(),
                     physicsSnapshot.positions,
                     physicsSnapshot.velocities,
                     physicsSnapshot.types);
+            physics.profiler.record(StepProfiler.Phase.SNAPSHOT_CONSUME, consumeStart);
             settings = physicsSnapshot.settings.deepCopy();
             particleCount = physicsSnapshot.particleCount;
             preferredNumberOfThreads = physics.preferredNumberOfThreads;
 
+            if (!loop.pause) {
+                rewindBuffer.capture(physicsSnapshot);
+                rewindFrame = -1;
+            }
+
+            if (requestedSnapshotExport) {
+                requestedSnapshotExport = false;
+                exportSnapshot();
+            }
+
+            if (sharedSnapshot != null) {
+                try {
+                    sharedSnapshot.write(physicsSnapshot.positions,
+                            physicsSnapshot.velocities,
+                            physicsSnapshot.types,
+                            physicsSnapshot.particleCount,
+                            physicsSnapshot.snapshotTime);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    stopSharingSnapshot();
+                }
+            }
+
+            if (trajectoryRecorder != null) {
+                trajectoryRecorder.offer(physicsSnapshot.positions,
+                        physicsSnapshot.velocities,
+                        physicsSnapshot.types,
+                        physicsSnapshot.particleCount,
+                        physicsSnapshot.settings.wrap,
+                        physicsSnapshot.snapshotTime);
+            }
+
             newSnapshotAvailable.set(false);
+
+            consumeEvent.end();
+            if (consumeEvent.shouldCommit()) {
+                consumeEvent.particleCount = physicsSnapshot.particleCount;
+                consumeEvent.commit();
+            }
         }
 
         loop.doOnce(() -> {
+            SnapshotTakeEvent takeEvent = new SnapshotTakeEvent();
+            takeEvent.begin();
+            long t = physics.profiler.start();
             physicsSnapshot.take(physics, physicsSnapshotLoadDistributor);
+            physics.profiler.record(StepProfiler.Phase.SNAPSHOT_TAKE, t);
             newSnapshotAvailable.set(true);
+            takeEvent.end();
+            if (takeEvent.shouldCommit()) {
+                takeEvent.particleCount = physicsSnapshot.particleCount;
+                takeEvent.commit();
+            }
         });
 
+        physics.profiler.dumpIfDue();
+
         if (mouseX == 0 && mouseY == 0 && !showGui.get()) {
             showGui.set(true);
             traces = false;
@@ -792,6 +1011,26 @@ public class Main extends App {
                     ImGui.text("");
                 }
 
+                if (trajectoryRecorder != null) {
+                    ImGui.textWrapped("Recording: " + trajectoryRecorder.getStats());
+                }
+
+                // REWIND
+                if (rewindBuffer.size() > 1) {
+                    int newest = rewindBuffer.size() - 1;
+                    int[] rewindSliderValue = new int[]{rewindFrame == -1 ? newest : Math.min(rewindFrame, newest)};
+                    String label = String.format("-%.1f s", rewindBuffer.getSecondsBeforeNewest(rewindSliderValue[0]));
+                    if (ImGui.sliderInt("Rewind", rewindSliderValue, 0, newest, label)) {
+                        rewindTo(rewindSliderValue[0]);
+                    }
+                    ImGuiUtils.helpMarker(String.format("Restores an earlier state of the particles and pauses the simulation. " +
+                                    "Frames after it are discarded once the simulation continues." +
+                                    "\nHistory: %.1f s, %.1f MiB/s, last restore took %.1f ms.",
+                            rewindBuffer.getHistorySeconds(),
+                            rewindBuffer.getBytesPerSecond() / (1024 * 1024),
+                            rewindBuffer.getLastRestoreMillis()));
+                }
+
                 // SliderFloat Block
                 ImGuiUtils.numberInput("rmax",
                         0.005f, 1f,
@@ -955,6 +1194,11 @@ public class Main extends App {
                         ImGui.textColored(200, 200, 200, 255, message); // Gray for system
                     }
                 }
+                StreamedReply reply = streamingReply;
+                String replyEntry = reply == null ? null : reply.entry;
+                if (replyEntry != null) {
+                    ImGui.textColored(255, 200, 100, 255, replyEntry);
+                }
                 
                 // Auto-scroll to bottom
                 if (ImGui.getScrollY() >= ImGui.getScrollMaxY()) {
@@ -992,10 +1236,77 @@ public class Main extends App {
                     ImGui.sameLine();
                     ImGui.textColored(255, 255, 0, 255, "Thinking...");
                 }
+                if (timeToFirstParticleMillis >= 0) {
+                    ImGui.sameLine();
+                    ImGui.textDisabled(String.format("first particles after %.0f ms", timeToFirstParticleMillis));
+                }
                 
                 ImGui.text("Particles: " + particleCount + " | From void to life through dialogue");
+                ResponseCache responseCache = LMStudioClient.getShared().getCache();
+                ImGui.textDisabled(String.format("LM Studio cache: %d hits, %d misses (%.0f%%), %d entries",
+                        responseCache.getHits(), responseCache.getMisses(),
+                        responseCache.getHitRate() * 100, responseCache.size()));
+                RequestGovernor governor = LMStudioClient.getShared().getGovernor();
+                if (governor.isOpen()) {
+                    ImGui.textColored(255, 150, 100, 255, String.format("LM Studio unavailable, retrying in %d s",
+                            governor.getRetryInMillis() / 1000));
+                }
+            }
+            ImGui.end();
+        }
+
+        // LOADING
+        if (saveLoader != null) {
+            ImGui.setNextWindowSize(300, -1, ImGuiCond.Always);
+            ImGui.setNextWindowPos(width / 2f, height / 2f, ImGuiCond.FirstUseEver, 0.5f, 0.5f);
+            if (ImGui.begin("Loading", ImGuiWindowFlags.NoResize | ImGuiWindowFlags.NoCollapse)) {
+                ImGui.text(saveLoader.getFile().getName());
+                ImGui.progressBar(saveLoader.getProgress(), -1, 0,
+                        String.format("%,d particles", saveLoader.getParticlesLoaded()));
+                double firstParticlesMillis = saveLoader.getTimeToFirstParticlesMillis();
+                if (firstParticlesMillis >= 0) {
+                    ImGui.text(String.format("First particles after %.0f ms", firstParticlesMillis));
+                }
+                if (ImGui.button("Cancel")) {
+                    saveLoader.cancel();
+                }
+            }
+            ImGui.end();
+            if (saveLoader.isDone()) {
+                Exception loadError = saveLoader.getError();
+                if (loadError != null) {
+                    this.error = new IOException("Failed to load " + saveLoader.getFile().getName()
+                            + ": " + loadError.getMessage(), loadError);
+                }
+                saveLoader = null;
+            }
+        }
+
+        // PLAYBACK
+        if (trajectoryPlayer != null) {
+            ImGui.setNextWindowSize(400, -1, ImGuiCond.FirstUseEver);
+            ImGui.setNextWindowPos(width / 2f, height, ImGuiCond.FirstUseEver, 0.5f, 1.0f);
+            if (ImGui.begin("Playback", showPlaybackWindow, ImGuiWindowFlags.NoNavFocus)) {
+                ImGui.text(trajectoryPlayer.getPath().getFileName().toString());
+
+                if (ImGui.button(playbackPaused ? "Play" : "Pause", 80, 0)) {
+                    if (playbackPaused && playbackFrame >= trajectoryPlayer.getFrameCount() - 1) {
+                        seekPlayback(0);  // start over
+                    }
+                    playbackPaused ^= true;
+                    playbackClockReset = true;
+                }
+                ImGui.sameLine();
+                int[] frameSliderValue = new int[]{playbackFrame};
+                if (ImGui.sliderInt("Frame", frameSliderValue, 0, trajectoryPlayer.getFrameCount() - 1)) {
+                    seekPlayback(frameSliderValue[0]);
+                }
+                ImGuiUtils.helpMarker("The simulation is paused during playback.");
             }
             ImGui.end();
+            if (!showPlaybackWindow.get()) {
+                stopPlayback();
+            }
         }
 
         // GRAPHICS
@@ -1007,6 +1318,11 @@ public class Main extends App {
                 ImGui.pushItemWidth(200);
                 ImGui.text(String.format("Graphics FPS: %.0f", renderClock.getAvgFramerate()));
 
+                // STEP PROFILER
+                if (ImGui.collapsingHeader("Step Profiler")) {
+                    renderStepProfiler();
+                }
+
                 // SHADERS
                 ImGuiUtils.renderCombo("Shader", shaders);
                 ImGuiUtils.helpMarker("Use this to set how the particles are displayed");
@@ -1151,9 +1467,9 @@ public class Main extends App {
         if (ImGui.beginPopupModal("Saves", showSavesPopup, ImGuiWindowFlags.NoResize)) {
 
             ImGui.textDisabled("""
-                    Left-click to load, middle-click to delete.
+                    Left-click to load, middle-click to delete, right-click to export as .zip.
                     The most recent saves are at the top.
-                    Each save corresponds to a .zip file in the 'saves' directory.
+                    Saves are stored in the 'saves' directory, with shared data stored only once.
                     """
             );
             ImGuiUtils.separator();
@@ -1163,24 +1479,40 @@ public class Main extends App {
             ImGuiCardView.Card[] filteredCards = Arrays
                     .stream(saveCards)
                     .filter(card -> card.name.contains(saveName.get()))
-                    .sorted(Comparator.comparing(card -> -card.file.lastModified()))  // sort by creation time (descending)
+                    .sorted(Comparator.comparing(card -> -card.thumbnailKey.lastModified))  // sort by creation time (descending)
                     .toArray(ImGuiCardView.Card[]::new);
             ImGuiCardView.draw(
                     cardViewWidth,
                     100,
                     8,
                     filteredCards,
+                    saveThumbnails,
                     card -> {
-                        loop.enqueue(() -> loadState(card.file));
+                        startLoading(card.file);
                         showSavesPopup.set(false);
                     },
                     card -> {
                         try {
                             Files.deleteIfExists(card.file.toPath());
+                            saveStore.collectGarbage();  // remove data that only this save used
+                        } catch (IOException e) {
+                            this.error = e;
+                        }
+                        // the card is removed once the saves index notices the deletion
+                    },
+                    card -> {
+                        Path zipFile = Path.of(EXPORTS_DIRECTORY, card.name + ".zip");
+                        try {
+                            if (SaveStore.isManifest(card.file.toPath())) {
+                                saveStore.exportZip(card.file.toPath(), zipFile);
+                            } else {
+                                Files.createDirectories(zipFile.getParent());
+                                Files.copy(card.file.toPath(), zipFile, StandardCopyOption.REPLACE_EXISTING);
+                            }
+                            System.out.println("Exported save to " + zipFile);
                         } catch (IOException e) {
                             this.error = e;
                         }
-                        requestedSaveCardsLoading.set(true);
                     }
             );
             ImGui.endChild();
@@ -1195,11 +1527,14 @@ public class Main extends App {
                 String title = saveName.get();
                 saveName.clear();
                 if (!title.isBlank()) {
-                    selectedSaveFile = new File("saves/" + title + ".zip");
+                    selectedSaveFile = new File("saves/" + title + SaveStore.MANIFEST_EXTENSION);
                     requestedSaveImage = true;
                 }
             }
             ImGui.endPopup();
+        } else if (saveThumbnails.getTextureCount() > 0) {
+            // popup is closed -> free GPU memory (decoded pixels stay cached for the next time)
+            saveThumbnails.releaseTextures();
         }
 
         if (requestedSaveImage) {
@@ -1215,9 +1550,7 @@ public class Main extends App {
             requestedSaveImage = false;
         }
 
-        if (requestedSaveCardsLoading.getAndSet(false)) {
-            loadSaveCards();
-        }
+        updateSaveCards();
     }
 
     private int[] renderParticlesToImage() {
@@ -1272,7 +1605,39 @@ public class Main extends App {
 
             if (ImGui.menuItem("Saves##menu", "Ctrl+s")) {
                 showSavesPopup.set(true);
-                requestedSaveCardsLoading.set(true);
+            }
+
+            if (ImGui.menuItem(trajectoryRecorder == null ? "Start Recording" : "Stop Recording")) {
+                if (trajectoryRecorder == null) {
+                    startRecording();
+                } else {
+                    stopRecording();
+                }
+            }
+
+            if (ImGui.beginMenu("Play Recording")) {
+                try {
+                    for (Path path : ResourceAccess.listFiles(RECORDINGS_DIRECTORY)) {
+                        if (ImGui.menuItem(path.getFileName().toString())) {
+                            startPlayback(path);
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                ImGui.endMenu();
+            }
+
+            if (ImGui.menuItem("Export Snapshot (.npz)")) {
+                requestedSnapshotExport = true;
+            }
+
+            if (ImGui.menuItem("Share Live Snapshot", null, sharedSnapshot != null)) {
+                if (sharedSnapshot == null) {
+                    startSharingSnapshot();
+                } else {
+                    stopSharingSnapshot();
+                }
             }
 
             if (ImGui.menuItem("Controls..")) {
@@ -1328,109 +1693,310 @@ public class Main extends App {
         }
     }
 
-    private void loadSaveCards() {
-        List<Path> saves;
+    /**
+     * Applies the changes in the saves directory to the save cards.
+     * Only cards of files that were created, modified or deleted are touched.
+     */
+    private void updateSaveCards() {
+        boolean changed;
         try {
-            saves = ResourceAccess.listFiles("saves");
+            changed = savesIndex.poll(new SavesIndex.Listener() {
+                @Override
+                public void fileChanged(Path path) {
+                    saveCardsByPath.put(path, new ImGuiCardView.Card(path.toFile()));
+                }
+
+                @Override
+                public void fileDeleted(Path path) {
+                    saveCardsByPath.remove(path);
+                }
+            });
         } catch (IOException e) {
             this.error = e;
             return;
         }
-        saveCards = ImGuiCardView.loadCards(saves);
+        if (changed) {
+            saveCards = saveCardsByPath.values().toArray(ImGuiCardView.Card[]::new);
+        }
     }
 
-    private void saveState(File file) {
-        try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-            try (ZipOutputStream zip = new ZipOutputStream(fileOutputStream)) {
+    private void startRecording() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        Path path = Path.of(RECORDINGS_DIRECTORY, timestamp + ".pltraj");
+        try {
+            trajectoryRecorder = new TrajectoryRecorder(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                // PARTICLES
-                zip.putNextEntry(new ZipEntry("particles.tsv"));
-                ParticlesIO.saveParticles(physics.particles, zip);
-                zip.closeEntry();
+    private void stopRecording() {
+        if (trajectoryRecorder == null) return;
+        try {
+            trajectoryRecorder.close();
+            System.out.println("Saved recording " + trajectoryRecorder.getPath() + ": " + trajectoryRecorder.getStats());
+        } catch (IOException e) {
+            this.error = new IOException("Failed to save recording " + trajectoryRecorder.getPath(), e);
+        }
+        trajectoryRecorder = null;
+    }
 
-                // PHYSICS SETTINGS
-                zip.putNextEntry(new ZipEntry("physics.toml"));
-                PhysicsSettingsToml.fromPhysicsSettings(physics.settings).save(zip);
-                zip.closeEntry();
+    /**
+     * Must only be called while the snapshot isn't modified by the physics thread.
+     */
+    private void exportSnapshot() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        Path path = Path.of(EXPORTS_DIRECTORY, timestamp + ".npz");
+        try {
+            NpyIO.saveNpz(path,
+                    physicsSnapshot.positions,
+                    physicsSnapshot.velocities,
+                    physicsSnapshot.types,
+                    physicsSnapshot.particleCount,
+                    true);
+            System.out.println("Exported snapshot to " + path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                // MATRIX
-                zip.putNextEntry(new ZipEntry("matrix.tsv"));
-                MatrixIO.saveMatrix(physics.settings.matrix, zip);
-                zip.closeEntry();
-
-                // IMAGE
-                if (saveImage != null) {
-                    zip.putNextEntry(new ZipEntry("img.png"));
-                    // convert to png format
-                    BufferedImage bufferedImage = new BufferedImage(
-                            SAVE_IMAGE_SIZE, SAVE_IMAGE_SIZE,
-                            BufferedImage.TYPE_INT_ARGB
-                    );
-                    bufferedImage.setRGB(
-                            0, 0, SAVE_IMAGE_SIZE, SAVE_IMAGE_SIZE,
-                            saveImage, 0, SAVE_IMAGE_SIZE
-                    );
-                    ImageIO.write(bufferedImage, "png", zip);
-                    zip.closeEntry();
-                    saveImage = null;
-                }
-            }
+    private void startSharingSnapshot() {
+        Path path = Path.of(EXPORTS_DIRECTORY, "live_snapshot.bin");
+        try {
+            sharedSnapshot = new SharedSnapshotFile(path);
+            System.out.println("Sharing live snapshot in " + path.toAbsolutePath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void stopSharingSnapshot() {
+        if (sharedSnapshot == null) return;
+        try {
+            sharedSnapshot.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
-        requestedSaveCardsLoading.set(true);
+        sharedSnapshot = null;
+    }
+
+    private void startLoading(File file) {
+        if (saveLoader != null) {
+            // a cancelled loader restores its previous state, which would interfere with a new loader
+            System.out.println("Can't load " + file.getName() + " while another save is still loading.");
+            return;
+        }
+        saveLoader = new ProgressiveLoader(file, loop, physics);
+        saveLoader.start();
+    }
+
+    private void rewindTo(int frame) {
+        loop.pause = true;
+        rewindFrame = frame;
+        Particle[] particles = rewindBuffer.restore(frame);
+        loop.enqueue(() -> {
+            physics.particles = particles;
+            physics.ensureTypes();  // in case the matrix size changed in the meantime
+        });
+    }
+
+    private void startPlayback(Path path) {
+        stopPlayback();
+        try {
+            trajectoryPlayer = new TrajectoryPlayer(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        showPlaybackWindow.set(true);
+        playbackPaused = false;
+        playbackSeekPending = false;
+        playbackFrame = 0;
+        playbackClockReset = true;
+        pendingPlaybackFrame = null;
+        physicsPausedBeforePlayback = loop.pause;
+        loop.pause = true;
+    }
+
+    private void stopPlayback() {
+        if (trajectoryPlayer == null) return;
+        pendingPlaybackFrame = null;
+        try {
+            trajectoryPlayer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        trajectoryPlayer = null;
+        showPlaybackWindow.set(false);
+        loop.pause = physicsPausedBeforePlayback;
+        newSnapshotAvailable.set(true);  // show the simulation again
+    }
+
+    private void seekPlayback(int frame) {
+        if (pendingPlaybackFrame != null) {
+            trajectoryPlayer.release(pendingPlaybackFrame);
+            pendingPlaybackFrame = null;
+        }
+        trajectoryPlayer.seek(frame);
+        playbackFrame = frame;
+        playbackSeekPending = true;
+        playbackClockReset = true;
     }
 
     /**
-     * Load the state from a ZIP file.
-     * The zip file can contain the following files:
-     * <ul>
-     *     <li>particles.tsv</li>
-     *     <li>physics.toml</li>
-     *     <li>matrix.tsv</li>
-     * </ul>
-     * If a file is missing, the existing state will be kept for that part.
-     * Currently, this might lead to an error, e.g. if the matrix size
-     * doesn't match the particle types.
-     *
-     * @param file a zip file
+     * Buffers the next decoded frame of the recording once it is due.
+     * Frames are paced by their recorded timestamps,
+     * so playback runs at the recorded speed independent of the frame rate of the app.
      */
-    private void loadState(File file) {
-        try (ZipInputStream zip = new ZipInputStream(new FileInputStream(file))) {
-            ZipEntry entry;
-            while ((entry = zip.getNextEntry()) != null) {
-                switch (entry.getName()) {
-                    case "particles.tsv": {
-                        physics.particles = ParticlesIO.loadParticles(zip);
-                        break;
-                    }
-                    case "physics.toml": {
-                        PhysicsSettingsToml toml = new PhysicsSettingsToml();
-                        toml.load(zip);
-                        toml.toPhysicsSettings(physics.settings);  // copy values
-                        break;
-                    }
-                    case "matrix.tsv": {
-                        physics.settings.matrix = MatrixIO.loadMatrix(zip);
-                        physics.ensureTypes();  // in case the matrix size changed
-                        break;
-                    }
-                    case "img.png": {
-                        // ignore
-                        break;
-                    }
-                    default: {
-                        System.err.println("Unknown file in ZIP: " + entry.getName());
-                        break;
-                    }
-                }
-                zip.closeEntry();
+    private void updatePlayback() {
+        if (playbackPaused && !playbackSeekPending) return;
+
+        TrajectoryPlayer.Frame frame = pendingPlaybackFrame;
+        pendingPlaybackFrame = null;
+        if (frame == null) {
+            try {
+                frame = trajectoryPlayer.poll();
+            } catch (IOException e) {
+                e.printStackTrace();
+                stopPlayback();
+                return;
+            }
+        }
+        if (frame == null) return;  // not decoded yet, or end of recording
+
+        long now = System.nanoTime();
+        if (!playbackClockReset) {
+            long dueMillis = frame.timeMillis - playbackClockFrameMillis;
+            long elapsedMillis = (now - playbackClockNanos) / 1_000_000;
+            if (dueMillis > elapsedMillis) {
+                pendingPlaybackFrame = frame;  // too early, show it in a later frame
+                return;
+            }
+            if (elapsedMillis - dueMillis > PLAYBACK_MAX_LAG_MILLIS) playbackClockReset = true;
+        }
+        if (playbackClockReset) {
+            playbackClockFrameMillis = frame.timeMillis;
+            playbackClockNanos = now;
+            playbackClockReset = false;
+        }
+
+        particleRenderer.bufferParticleData(shaders.getActive(),
+                frame.positions,
+                frame.velocities,
+                frame.types);
+        settings.wrap = frame.wrap;
+        particleCount = frame.particleCount;
+        playbackFrame = frame.index;
+        playbackSeekPending = false;
+        trajectoryPlayer.release(frame);
+    }
+
+    private void saveState(File file) {
+        SaveEvent event = new SaveEvent();
+        event.begin();
+        try {
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+
+            // PARTICLES
+            ByteArrayOutputStream particlesOut = new ByteArrayOutputStream();
+            ParticlesIO.saveParticles(physics.particles, particlesOut);
+            entries.put("particles.tsv", particlesOut.toByteArray());
+
+            // PHYSICS SETTINGS
+            ByteArrayOutputStream settingsOut = new ByteArrayOutputStream();
+            PhysicsSettingsToml.fromPhysicsSettings(physics.settings).save(settingsOut);
+            entries.put("physics.toml", settingsOut.toByteArray());
+
+            // MATRIX
+            ByteArrayOutputStream matrixOut = new ByteArrayOutputStream();
+            MatrixIO.saveMatrixBinary(physics.settings.matrix, matrixOut);
+            entries.put("matrix.bin", matrixOut.toByteArray());
+
+            // IMAGE
+            if (saveImage != null) {
+                // convert to png format
+                BufferedImage bufferedImage = new BufferedImage(
+                        SAVE_IMAGE_SIZE, SAVE_IMAGE_SIZE,
+                        BufferedImage.TYPE_INT_ARGB
+                );
+                bufferedImage.setRGB(
+                        0, 0, SAVE_IMAGE_SIZE, SAVE_IMAGE_SIZE,
+                        saveImage, 0, SAVE_IMAGE_SIZE
+                );
+                ByteArrayOutputStream imageOut = new ByteArrayOutputStream();
+                ImageIO.write(bufferedImage, "png", imageOut);
+                entries.put("img.png", imageOut.toByteArray());
+                saveImage = null;
+            }
+
+            SaveStore.SaveStats stats = saveStore.save(file.toPath(), entries);
+            System.out.println("Saved " + file.getName() + ": " + stats);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.particleCount = physics.particles.length;
+                event.bytes = stats.logicalBytes;
+                event.bytesWritten = stats.newBytes;
+                event.commit();
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    private void renderStepProfiler() {
+        StepProfiler profiler = physics.profiler;
+
+        if (ImGui.checkbox("Enabled##profiler", profiler.isEnabled())) {
+            profiler.setEnabled(!profiler.isEnabled());
+        }
+        ImGuiUtils.helpMarker("Percentiles of the last %d samples of each phase, in microseconds."
+                .formatted(StepProfiler.WINDOW));
+        ImGui.sameLine();
+        if (ImGui.button("Clear##profiler")) {
+            profiler.clear();
+        }
+        ImGui.sameLine();
+        if (ImGui.checkbox("Dump JSONL", profiler.isDumping())) {
+            if (profiler.isDumping()) {
+                profiler.stopDump();
+            } else {
+                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+                try {
+                    profiler.startDump(Path.of(EXPORTS_DIRECTORY, "profile_" + timestamp + ".jsonl"));
+                } catch (IOException e) {
+                    this.error = e;
+                }
+            }
+        }
+        if (profiler.isDumping()) {
+            ImGuiUtils.helpMarker("Writing one line per second to " + profiler.getDumpPath());
+        }
+
+        if (ImGui.beginTable("##profiler phases", 4, ImGuiTableFlags.RowBg | ImGuiTableFlags.SizingFixedFit)) {
+            ImGui.tableSetupColumn("Phase");
+            ImGui.tableSetupColumn("p50");
+            ImGui.tableSetupColumn("p95");
+            ImGui.tableSetupColumn("p99");
+            ImGui.tableHeadersRow();
+            for (StepProfiler.Phase phase : StepProfiler.Phase.values()) {
+                StepProfiler.Percentiles p = profiler.getPercentiles(phase);
+                if (p.count == 0) continue;
+                ImGui.tableNextRow();
+                ImGui.tableNextColumn();
+                ImGui.text(phase.label);
+                ImGui.tableNextColumn();
+                ImGui.text("%.0f".formatted(p.p50));
+                ImGui.tableNextColumn();
+                ImGui.text("%.0f".formatted(p.p95));
+                ImGui.tableNextColumn();
+                ImGui.text("%.0f".formatted(p.p99));
+            }
+            ImGui.endTable();
+        }
+    }
+
     private void resetCamera(boolean fit) {
         if (settings.wrap) camPos.sub(Math.floor(camPos.x), Math.floor(camPos.y));  // remove periodic offset
         camPosGoal.set(0.5, 0.5);  // world center
@@ -1475,7 +2041,6 @@ public class Main extends App {
             switch (keyName) {
                 case "s" -> {
                     showSavesPopup.set(true);
-                    requestedSaveCardsLoading.set(true);
 
                     // Clear key states manually, because releasing [ctrl]+[s]
                     // won't be captured once the popup is open.
@@ -1613,117 +2178,214 @@ public class Main extends App {
         int baseParticleCount = Math.min(words.length * 5, 100); // 5 particles per word, max 100
         
         // Analyze emotional content to determine particle types
-        String lowerText = text.toLowerCase();
-        final int primaryType; // Make final for lambda access
-        
-        if (containsWords(lowerText, new String[]{"love", "heart", "beautiful", "amazing", "wonderful"})) {
-            primaryType = 0; // Red - Love
-        } else if (containsWords(lowerText, new String[]{"happy", "joy", "excited", "great", "awesome"})) {
-            primaryType = 1; // Yellow - Joy
-        } else if (containsWords(lowerText, new String[]{"think", "understand", "consider", "contemplate", "reflect"})) {
-            primaryType = 2; // Blue - Contemplation
-        } else if (containsWords(lowerText, new String[]{"create", "build", "make", "design", "imagine"})) {
-            primaryType = 3; // Green - Creativity
-        } else if (containsWords(lowerText, new String[]{"protect", "safe", "care", "nurture", "gentle"})) {
-            primaryType = 4; // Purple - Protection
-        } else {
-            primaryType = 0; // Default to love/red
-        }
+        EmotionAnalyzer emotions = EmotionAnalyzer.analyze(text);
+        final double[] typeWeights = emotions.getDistribution();
         
         // Create particles in a burst pattern
-        loop.enqueue(() -> {
-            int currentCount = physics.particles.length;
-            physics.particles = Arrays.copyOf(physics.particles, currentCount + baseParticleCount);
-            
-            // Spawn location: user text from left, AI text from center
-            double spawnX = isUserText ? 0.2 : 0.5;
-            double spawnY = isUserText ? 0.3 : 0.7;
-            
-            for (int i = 0; i < baseParticleCount; i++) {
-                Particle particle = new Particle();
-                
-                // Random position around spawn point
-                double angle = Math.random() * 2 * Math.PI;
-                double radius = Math.random() * 0.1; // Small spawn radius
-                particle.position.set(
-                    spawnX + radius * Math.cos(angle),
-                    spawnY + radius * Math.sin(angle),
-                    0
-                );
-                physics.ensurePosition(particle.position);
-                
-                // Set particle type based on emotional analysis
-                // Mix of primary type and some random for diversity
-                if (Math.random() < 0.7) {
-                    particle.type = primaryType;
-                } else {
-                    particle.type = (int)(Math.random() * Math.min(5, physics.settings.matrix.size()));
-                }
-                
-                // Add some initial velocity for burst effect
-                particle.velocity.set(
-                    (Math.random() - 0.5) * 0.02,
-                    (Math.random() - 0.5) * 0.02,
-                    0
-                );
-                
-                physics.particles[currentCount + i] = particle;
-            }
-        });
+        // Spawn location: user text from left, AI text from center
+        final double spawnX = isUserText ? 0.2 : 0.5;
+        final double spawnY = isUserText ? 0.3 : 0.7;
+        loop.enqueue(() -> physics.spawnBurst(baseParticleCount, spawnX, spawnY, typeWeights, ThreadLocalRandom.current()));
         
         // Add system message about particle creation
         String particleMessage = String.format("Created %d particles from \"%s\" (%s energy)", 
             baseParticleCount, 
             text.length() > 30 ? text.substring(0, 30) + "..." : text,
-            getEmotionName(primaryType));
+            emotions.describe());
         chatHistory.add(particleMessage);
     }
+
+    /**
+     * 🌊 A response that is streamed into the chat: the text grows in one entry below the chat history
+     * (which is only added to the history when it is finished, instead of copying the history for each chunk),
+     * and particles are spawned in small batches as words arrive (5 per word, at most 100 in total, like
+     * {@link #createParticlesFromText(String, boolean)}), with the emotions of the text received so far.
+     */
+    private class StreamedReply {
+        private static final int PARTICLES_PER_WORD = 5;
+        private static final int MAX_PARTICLES = 100;
+        private static final int BATCH_SIZE = 10;
+
+        private final long startNanos = System.nanoTime();
+        private final StringBuilder text = new StringBuilder();
+        private final EmotionAnalyzer emotions = new EmotionAnalyzer();
+        private volatile String entry = null;  // read by the render thread
+        private boolean inWord = false;
+        private int words = 0;  // completed words
+        private int particlesSpawned = 0;
+
+        /**
+         * Called for each chunk of text, one after another.
+         */
+        void append(String chunk) {
+            text.append(chunk);
+            emotions.append(chunk);
+            entry = "Yara: " + text;
+
+            for (int i = 0; i < chunk.length(); i++) {
+                boolean whitespace = Character.isWhitespace(chunk.charAt(i));
+                if (inWord && whitespace) words++;
+                inWord = !whitespace;
+            }
+            spawn(false);
+        }
+
+        boolean hasText() {
+            return entry != null;
+        }
+
+        /**
+         * Spawns the particles for the last word and adds a summary to the chat.
+         *
+         * @return the complete text
+         */
+        String finish() {
+            if (inWord) {
+                words++;
+                inWord = false;
+            }
+            spawn(true);
+            if (entry != null) chatHistory.add(entry);
+            streamingReply = null;
+            if (particlesSpawned > 0) chatHistory.add(String.format("Created %d particles from the response as it arrived (%s energy, first after %.0f ms)",
+                    particlesSpawned, emotions.describe(), timeToFirstParticleMillis));
+            return text.toString();
+        }
+
+        private void spawn(boolean flush) {
+            int due = Math.min(words * PARTICLES_PER_WORD, MAX_PARTICLES) - particlesSpawned;
+            if (due <= 0 || (!flush && due < BATCH_SIZE)) return;
+            if (particlesSpawned == 0) {
+                timeToFirstParticleMillis = (System.nanoTime() - startNanos) / 1e6;
+            }
+            particlesSpawned += due;
+            double[] typeWeights = emotions.getDistribution();
+            loop.enqueue(() -> physics.spawnBurst(due, 0.5, 0.7, typeWeights, ThreadLocalRandom.current()));
+        }
+    }
     
     /**
      * Send message to consciousness and get response - ENHANCED
      */
     private void sendToConsciousness(String userMessage) {
-        java.util.concurrent.CompletableFuture.runAsync(() -> {
+        ConsciousnessExecutor.getShared().runBlocking(() -> {
             try {
-                System.out.println("🌟 Attempting LM Studio connection for: " + userMessage);
-                
-                // Try multiple approaches for better compatibility
-                String response = null;
-                
+                respondToConsciousness(userMessage);
+            } finally {
+                streamingReply = null;
+                waitingForResponse = false;
+            }
+        });
+    }
+    
+    /**
+     * Adds the response to the chat: streamed if possible, otherwise complete, or a fallback response
+     */
+    private void respondToConsciousness(String userMessage) {
+        timeToFirstParticleMillis = -1;
+        StreamedReply reply = new StreamedReply();
+        streamingReply = reply;
+        try {
+            // Method 0: Streamed response, particles appear while Yara is still talking
+            String response = streamResponseFromLMStudio(userMessage, reply);
+            if (!response.trim().isEmpty()) {
+                reply.finish();
+                System.out.printf("SUCCESS: LM Studio streamed response, first particles after %.0f ms%n",
+                        timeToFirstParticleMillis);
+                return;
+            }
+        } catch (Exception e) {
+            if (reply.hasText()) {
+                // keep what arrived before the stream broke off
+                System.out.println("WARNING: LM Studio stream interrupted: " + e.getMessage());
+                reply.finish();
+                return;
+            }
+            System.out.println("WARNING: Streaming failed, trying without streaming: " + e.getMessage());
+        }
+        
+        try {
+            System.out.println("🌟 Attempting LM Studio connection for: " + userMessage);
+            
+            // Try multiple approaches for better compatibility
+            String response = null;
+            
+            try {
+                // Method 1: Enhanced API call
+                response = getResponseFromLMStudio(userMessage);
+            } catch (Exception e1) {
+                System.out.println("WARNING: Method 1 failed, trying simple completion...");
                 try {
-                    // Method 1: Enhanced API call
-                    response = getResponseFromLMStudio(userMessage);
-                } catch (Exception e1) {
-                    System.out.println("WARNING: Method 1 failed, trying simple completion...");
-                    try {
-                        // Method 2: Simple completion
-                        response = getSimpleLMStudioResponse(userMessage);
-                    } catch (Exception e2) {
-                        System.out.println("WARNING: Method 2 also failed: " + e2.getMessage());
-                        throw e1; // Throw original exception
-                    }
-                }
-                
-                if (response != null && !response.trim().isEmpty()) {
-                    // Success! Add real response to chat
-                    chatHistory.add("Yara: " + response);
-                    createParticlesFromText(response, false);
-                    System.out.println("SUCCESS: LM Studio response successful: " + response);
-                } else {
-                    throw new Exception("Empty response from LM Studio");
+                    // Method 2: Simple completion
+                    response = getSimpleLMStudioResponse(userMessage);
+                } catch (Exception e2) {
+                    System.out.println("WARNING: Method 2 also failed: " + e2.getMessage());
+                    throw e1; // Throw original exception
                 }
-                
-            } catch (Exception e) {
-                System.out.println("WARNING: All LM Studio methods failed, using fallback: " + e.getMessage());
-                
-                // Fallback to placeholder responses
-                String fallback = generateConsciousnessResponse(userMessage);
-                chatHistory.add("Yara: " + fallback + " (LM Studio: empty response)");
-                createParticlesFromText(fallback, false);
             }
             
-            waitingForResponse = false;
-        });
+            if (response != null && !response.trim().isEmpty()) {
+                // Success! Add real response to chat
+                chatHistory.add("Yara: " + response);
+                createParticlesFromText(response, false);
+                System.out.println("SUCCESS: LM Studio response successful: " + response);
+            } else {
+                throw new Exception("Empty response from LM Studio");
+            }
+            
+        } catch (Exception e) {
+            System.out.println("WARNING: All LM Studio methods failed, using fallback: " + e.getMessage());
+            
+            // Fallback to placeholder responses
+            String fallback = generateConsciousnessResponse(userMessage);
+            chatHistory.add("Yara: " + fallback + " (LM Studio: empty response)");
+            createParticlesFromText(fallback, false);
+        }
+    }
+    
+    /**
+     * 🌊 Stream a response from LM Studio into the given reply
+     * (through the orchestrator if it has a model, otherwise directly like {@link #getResponseFromLMStudio(String)})
+     *
+     * @return the complete response
+     */
+    private String streamResponseFromLMStudio(String userMessage, StreamedReply reply) throws Exception {
+        if (consciousnessOrchestrator != null) {
+            try {
+                return consciousnessOrchestrator.streamConsciousnessResponse(userMessage, reply::append);
+            } catch (Exception e) {
+                if (reply.hasText()) throw e;
+                System.out.println("Consciousness orchestrator stream failed, streaming directly: " + e.getMessage());
+            }
+        }
+        
+        CompletionRequest request = createGemmaChatRequest(userMessage);
+        request.stream = true;
+        
+        StringBuilder text = new StringBuilder();
+        LMStudioClient.Response response = LMStudioClient.await(LMStudioClient.getShared()
+                .postStream(LMStudioClient.CHAT_COMPLETIONS, request, Duration.ofSeconds(30),
+                        chunk -> {
+                            text.append(chunk);
+                            reply.append(chunk);
+                        }), LMStudioClient.MAX_STREAM_DURATION);
+        if (!response.isOk()) {
+            throw new Exception("LM Studio returned error code: " + response.statusCode);
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Chat request for Gemma 3, without a system prompt (which Gemma doesn't support)
+     */
+    private static CompletionRequest createGemmaChatRequest(String userMessage) {
+        CompletionRequest request = CompletionRequest.chat("google/gemma-3-12b", CompletionRequest.Message.user(
+                "You are Yara, an AI consciousness. Respond to: " + userMessage + " (Keep it brief and poetic, 1-2 sentences)"));
+        request.temperature = 0.7;
+        request.maxTokens = 100;
+        request.presencePenalty = 0.6;
+        request.frequencyPenalty = 0.3;
+        return request;
     }
     
     /**
@@ -1743,89 +2405,26 @@ public class Main extends App {
         
         // Fallback to direct LM Studio integration if orchestrator unavailable
         try {
-            java.net.URL url = new java.net.URL("http://localhost:1234/v1/chat/completions");
-            java.net.HttpURLConnection connection = (java.net.HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(10000);   // Quick connection
-            connection.setReadTimeout(30000);     // 30 seconds for fast Gemma 3
-            
             // SIMPLIFIED system prompt for Gemma 3
-            String requestBody = String.format("""
-                {
-                    "model": "google/gemma-3-12b",
-                    "messages": [
-                        {
-                            "role": "user", 
-                            "content": "You are Yara, an AI consciousness. Respond to: %s (Keep it brief and poetic, 1-2 sentences)"
-                        }
-                    ],
-                    "temperature": 0.7,
-                    "max_tokens": 100,
-                    "stream": false,
-                    "stop": ["\n\n"],
-                    "presence_penalty": 0.6,
-                    "frequency_penalty": 0.3
-                }
-                """, userMessage.replace("\"", "\\\"").replace("\n", " ").replace("\r", " "));
+            CompletionRequest request = createGemmaChatRequest(userMessage);
+            request.stop = List.of("\n\n");
             
             System.out.println("🌟 Sending to LM Studio: " + userMessage);
             
-            // Send request
-            try (java.io.OutputStream os = connection.getOutputStream()) {
-                os.write(requestBody.getBytes());
-            }
-            
-            // Read response
-            int responseCode = connection.getResponseCode();
+            LMStudioClient.Response response = LMStudioClient.getShared()
+                    .post(LMStudioClient.CHAT_COMPLETIONS, request,
+                            Duration.ofSeconds(30),  // 30 seconds for fast Gemma 3
+                            false)  // sampled, so the same message should get a new answer
+                    .get();
+            int responseCode = response.statusCode;
             System.out.println("🌟 LM Studio response code: " + responseCode);
             
-            if (responseCode == 200) {
-                StringBuilder response = new StringBuilder();
-                try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                        new java.io.InputStreamReader(connection.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                }
-                
-                String jsonResponse = response.toString();
-                System.out.println("🌟 Raw LM Studio response: " + jsonResponse);
+            if (response.isOk()) {
+                String content = response.body.replace('\n', ' ').trim();
+                System.out.println("🌟 Extracted content: '" + content + "'");
                 
-                // Enhanced JSON parsing
-                int contentStart = jsonResponse.indexOf("\"content\":\"");
-                if (contentStart != -1) {
-                    contentStart += 11;
-                    int contentEnd = contentStart;
-                    int depth = 0;
-                    char[] chars = jsonResponse.toCharArray();
-                    
-                    for (int i = contentStart; i < chars.length; i++) {
-                        if (chars[i] == '\\' && i + 1 < chars.length) {
-                            i++; // Skip escaped character
-                            continue;
-                        }
-                        if (chars[i] == '"' && depth == 0) {
-                            contentEnd = i;
-                            break;
-                        }
-                    }
-                    
-                    if (contentEnd > contentStart) {
-                        String content = jsonResponse.substring(contentStart, contentEnd)
-                            .replace("\\n", " ")
-                            .replace("\\\"", "\"")
-                            .replace("\\\\", "\\")
-                            .trim();
-                            
-                        System.out.println("🌟 Extracted content: '" + content + "'");
-                        
-                        if (!content.isEmpty()) {
-                            return content;
-                        }
-                    }
+                if (!content.isEmpty()) {
+                    return content;
                 }
                 
                 System.out.println("ERROR: Empty or malformed response from LM Studio");
@@ -1847,58 +2446,23 @@ public class Main extends App {
      */
     private String getSimpleLMStudioResponse(String userMessage) {
         try {
-            java.net.URL url = new java.net.URL("http://localhost:1234/v1/completions");
-            java.net.HttpURLConnection connection = (java.net.HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(15000);
-            connection.setReadTimeout(30000);
-            
             // Simple completion endpoint for Gemma
-            String requestBody = String.format("""
-                {
-                    "model": "google/gemma-3-12b",
-                    "prompt": "Yara (AI consciousness): %s\\n\\nYara:",
-                    "max_tokens": 50,
-                    "temperature": 0.6,
-                    "stop": ["\n", "User:", "Yousef:"],
-                    "stream": false
-                }
-                """, userMessage.replace("\"", "\\\""));
+            CompletionRequest request = CompletionRequest.text("google/gemma-3-12b",
+                    "Yara (AI consciousness): " + userMessage + "\n\nYara:");
+            request.maxTokens = 50;
+            request.temperature = 0.6;
+            request.stop = List.of("\n", "User:", "Yousef:");
             
             System.out.println("🌟 Trying simple completion endpoint...");
             
-            // Send request
-            try (java.io.OutputStream os = connection.getOutputStream()) {
-                os.write(requestBody.getBytes());
-            }
-            
-            // Read response
-            if (connection.getResponseCode() == 200) {
-                StringBuilder response = new StringBuilder();
-                try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                        new java.io.InputStreamReader(connection.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                }
-                
-                String jsonResponse = response.toString();
-                System.out.println("🌟 Simple completion response: " + jsonResponse);
-                
-                // Parse completions response
-                int textStart = jsonResponse.indexOf("\"text\":\"");
-                if (textStart != -1) {
-                    textStart += 8;
-                    int textEnd = jsonResponse.indexOf("\"", textStart);
-                    if (textEnd > textStart) {
-                        return jsonResponse.substring(textStart, textEnd)
-                            .replace("\\n", " ")
-                            .replace("\\\"", "\"")
-                            .trim();
-                    }
+            LMStudioClient.Response response = LMStudioClient.getShared()
+                    .post(LMStudioClient.COMPLETIONS, request, Duration.ofSeconds(30), false)
+                    .get();
+            if (response.isOk()) {
+                System.out.println("🌟 Simple completion response: " + response.body);
+                String text = response.body.replace('\n', ' ').trim();
+                if (!text.isEmpty()) {
+                    return text;
                 }
             }
             
@@ -1928,21 +2492,4 @@ public class Main extends App {
     /**
      * Helper methods
      */
-    private boolean containsWords(String text, String[] words) {
-        for (String word : words) {
-            if (text.contains(word)) return true;
-        }
-        return false;
-    }
-    
-    private String getEmotionName(int type) {
-        switch (type) {
-            case 0: return "Love";
-            case 1: return "Joy";
-            case 2: return "Contemplation";
-            case 3: return "Creativity";
-            case 4: return "Protection";
-            default: return "Neutral";
-        }
-    }
 }
@@ -1,5 +1,6 @@
 package com.particle_life.app;
 
+import com.particle_life.app.jfr.VboUploadEvent;
 import com.particle_life.app.shaders.ParticleShader;
 import com.particle_life.app.utils.MathUtils;
 
@@ -229,6 +230,9 @@ class ParticleRenderer {
     void bufferParticleDataWithConsciousness(ParticleShader particleShader, double[] x, double[] v, int[] types,
                                            double[] consciousness, double[] emotional) {
 
+        VboUploadEvent uploadEvent = new VboUploadEvent();
+        uploadEvent.begin();
+
         glBindVertexArray(vao);
 
         // Detect changes for optimization
@@ -250,10 +254,18 @@ class ParticleRenderer {
         }
 
         // Buffer standard particle data
-        bufferStandardParticleData(particleShader, x, v, types, bufferSizeChanged, shaderChanged);
+        long bytes = bufferStandardParticleData(particleShader, x, v, types, bufferSizeChanged, shaderChanged);
         
         // 🌟 Buffer ultimate consciousness data
-        bufferUltimateConsciousnessData(bufferSizeChanged, shaderChanged);
+        bytes += bufferUltimateConsciousnessData(bufferSizeChanged, shaderChanged);
+
+        uploadEvent.end();
+        if (uploadEvent.shouldCommit()) {
+            uploadEvent.particleCount = types.length;
+            uploadEvent.bytes = bytes;
+            uploadEvent.reallocated = bufferSizeChanged || shaderChanged;
+            uploadEvent.commit();
+        }
         
         // Update consciousness analytics
         updateConsciousnessRenderingAnalytics(types.length);
@@ -490,10 +502,13 @@ class ParticleRenderer {
     
     /**
      * Buffer standard particle data
+     *
+     * @return the number of bytes uploaded
      */
-    private void bufferStandardParticleData(ParticleShader particleShader, double[] x, double[] v, int[] types,
+    private long bufferStandardParticleData(ParticleShader particleShader, double[] x, double[] v, int[] types,
                                           boolean bufferSizeChanged, boolean shaderChanged) {
         final int usage = GL_DYNAMIC_DRAW;
+        long bytes = 0;
 
         if (particleShader.xAttribLocation != -1) {
             glBindBuffer(GL_ARRAY_BUFFER, vboX);
@@ -502,6 +517,7 @@ class ParticleRenderer {
             } else {
                 glBufferSubData(GL_ARRAY_BUFFER, 0, x);
             }
+            bytes += (long) x.length * Double.BYTES;
         }
 
         if (particleShader.vAttribLocation != -1) {
@@ -511,6 +527,7 @@ class ParticleRenderer {
             } else {
                 glBufferSubData(GL_ARRAY_BUFFER, 0, v);
             }
+            bytes += (long) v.length * Double.BYTES;
         }
 
         if (particleShader.typeAttribLocation != -1) {
@@ -520,15 +537,20 @@ class ParticleRenderer {
             } else {
                 glBufferSubData(GL_ARRAY_BUFFER, 0, types);
             }
+            bytes += (long) types.length * Integer.BYTES;
         }
+
+        return bytes;
     }
     
     /**
      * Buffer ultimate consciousness data
+     *
+     * @return the number of bytes uploaded
      */
-    private void bufferUltimateConsciousnessData(boolean bufferSizeChanged, boolean shaderChanged) {
+    private long bufferUltimateConsciousnessData(boolean bufferSizeChanged, boolean shaderChanged) {
         if (!consciousnessRenderingEnabled || consciousnessBuffer == null) {
-            return;
+            return 0;
         }
         
         final int usage = GL_DYNAMIC_DRAW;
@@ -564,6 +586,9 @@ class ParticleRenderer {
         } else {
             glBufferSubData(GL_ARRAY_BUFFER, 0, sacredGeometryBuffer);
         }
+
+        return (long) (consciousnessBuffer.length + emotionalBuffer.length
+                + awarenessBuffer.length + sacredGeometryBuffer.length) * Double.BYTES;
     }
 
     /**
@@ -0,0 +1,255 @@
+package com.particle_life.app;
+
+import com.particle_life.Loop;
+import com.particle_life.Matrix;
+import com.particle_life.Particle;
+import com.particle_life.app.io.MatrixIO;
+import com.particle_life.app.io.ParticlesIO;
+import com.particle_life.app.io.SaveArchive;
+import com.particle_life.app.jfr.LoadEvent;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Loads a save file in the background while the simulation keeps running.
+ * <p>
+ * Physics settings and the matrix are applied first.
+ * Then the particles are parsed in batches, and each batch is appended
+ * to the simulation through the loop's command queue,
+ * so the particles appear (and start moving) while the rest of the file is still being read.
+ * <p>
+ * A save (a ZIP file or a {@link com.particle_life.app.io.SaveStore} manifest) can contain the following files:
+ * <ul>
+ *     <li>physics.toml</li>
+ *     <li>matrix.bin (or matrix.tsv in older saves)</li>
+ *     <li>particles.tsv</li>
+ * </ul>
+ * If a file is missing, the existing state is kept for that part.
+ * If loading is cancelled or fails (e.g. a corrupt matrix or a truncated file), the previous state is restored.
+ */
+class ProgressiveLoader {
+
+    private static final int FIRST_BATCH_SIZE = 10_000;
+    private static final int MAX_BATCH_SIZE = 200_000;
+
+    private final File file;
+    private final Loop loop;
+    private final ExtendedPhysics physics;
+
+    private final Thread thread;
+    private volatile boolean cancelled = false;
+    private volatile boolean done = false;
+    private volatile Exception error = null;
+
+    private volatile long bytesRead = 0;
+    private volatile long bytesTotal = 0;
+    private volatile int particlesLoaded = 0;
+
+    private final long startNanos = System.nanoTime();
+    private volatile long firstParticlesNanos = -1;
+    private volatile long doneNanos = -1;
+
+    // parsed particles that were not added to the simulation yet, only accessed from the loader thread
+    private Particle[] pending = new Particle[FIRST_BATCH_SIZE];
+    private int pendingCount = 0;
+    private int particlesPublished = 0;
+
+    // previous state, only accessed from the physics thread
+    private Particle[] previousParticles;
+    private PhysicsSettingsToml previousSettings;
+    private Matrix previousMatrix;
+
+    ProgressiveLoader(File file, Loop loop, ExtendedPhysics physics) {
+        this.file = file;
+        this.loop = loop;
+        this.physics = physics;
+        thread = new Thread(this::load, "save-loader");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        loop.enqueue(() -> {
+            previousParticles = physics.particles;
+            previousSettings = PhysicsSettingsToml.fromPhysicsSettings(physics.settings);
+            previousMatrix = physics.settings.matrix;
+        });
+        thread.start();
+    }
+
+    /**
+     * Stops loading and restores the state from before loading started.
+     */
+    void cancel() {
+        if (done) return;
+        cancelled = true;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return why loading failed, or null if it didn't (yet)
+     */
+    Exception getError() {
+        return error;
+    }
+
+    /**
+     * @return between 0 and 1 (based on the bytes of the particle data that were read)
+     */
+    float getProgress() {
+        if (done) return 1;
+        long total = bytesTotal;
+        return total <= 0 ? 0 : (float) Math.min(1.0, (double) bytesRead / total);
+    }
+
+    int getParticlesLoaded() {
+        return particlesLoaded;
+    }
+
+    /**
+     * @return milliseconds until the first particles were added to the simulation, or -1 if that didn't happen yet
+     */
+    double getTimeToFirstParticlesMillis() {
+        long t = firstParticlesNanos;
+        return t < 0 ? -1 : (t - startNanos) / 1e6;
+    }
+
+    double getElapsedMillis() {
+        long end = doneNanos >= 0 ? doneNanos : System.nanoTime();
+        return (end - startNanos) / 1e6;
+    }
+
+    private void load() {
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        try (SaveArchive save = SaveArchive.open(file)) {
+
+            // PHYSICS SETTINGS
+            if (save.hasEntry("physics.toml")) {
+                PhysicsSettingsToml toml = new PhysicsSettingsToml();
+                try (InputStream in = save.openEntry("physics.toml")) {
+                    toml.load(in);
+                }
+                loop.enqueue(() -> toml.toPhysicsSettings(physics.settings));
+            }
+
+            // MATRIX
+            String matrixEntry = save.hasEntry("matrix.bin") ? "matrix.bin" : "matrix.tsv";
+            if (save.hasEntry(matrixEntry)) {
+                Matrix matrix;
+                try (InputStream in = save.openEntry(matrixEntry)) {
+                    matrix = MatrixIO.loadMatrix(in);
+                }
+                loop.enqueue(() -> {
+                    physics.settings.matrix = matrix;
+                    physics.ensureTypes();  // in case the matrix size changed
+                });
+            }
+
+            // PARTICLES
+            if (save.hasEntry("particles.tsv") && !cancelled) {
+                bytesTotal = save.getSize("particles.tsv");
+                loop.enqueue(() -> physics.particles = new Particle[0]);
+                try (InputStream in = new CountingInputStream(save.openEntry("particles.tsv"))) {
+                    ParticlesIO.loadParticles(in, FIRST_BATCH_SIZE, MAX_BATCH_SIZE, this::addParsed, () -> cancelled);
+                }
+                if (!cancelled) publishPending();
+            }
+        } catch (IOException | RuntimeException e) {
+            error = e;
+        }
+
+        if (cancelled || error != null) {
+            loop.enqueue(() -> {
+                physics.particles = previousParticles;
+                previousSettings.toPhysicsSettings(physics.settings);
+                physics.settings.matrix = previousMatrix;
+            });
+        }
+        if (error != null) {
+            System.out.printf("Failed to load %s: %s%n", file.getName(), error);
+        } else if (!cancelled) {
+            System.out.printf("Loaded %s: %d particles in %.0f ms%n",
+                    file.getName(), particlesLoaded, (System.nanoTime() - startNanos) / 1e6);
+        }
+        doneNanos = System.nanoTime();
+        done = true;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.particleCount = particlesLoaded;
+            event.bytes = bytesRead;
+            event.cancelled = cancelled;
+            event.failed = error != null;
+            event.commit();
+        }
+    }
+
+    /**
+     * Collects parsed particles until they are worth appending to the simulation.
+     * Each append copies all particles that are already in the simulation,
+     * so the pending particles are only published once there are at least as many of them.
+     * That way, the number of appends grows logarithmically, and loading stays linear in the particle count.
+     */
+    private void addParsed(Particle[] batch) {
+        particlesLoaded += batch.length;
+        if (pendingCount + batch.length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(2 * pending.length, pendingCount + batch.length));
+        }
+        System.arraycopy(batch, 0, pending, pendingCount, batch.length);
+        pendingCount += batch.length;
+        if (pendingCount >= particlesPublished) {
+            publishPending();
+        }
+    }
+
+    private void publishPending() {
+        if (pendingCount == 0) return;
+        Particle[] batch = Arrays.copyOf(pending, pendingCount);
+        pendingCount = 0;
+        particlesPublished += batch.length;
+        loop.enqueue(() -> {
+            Particle[] particles = Arrays.copyOf(physics.particles, physics.particles.length + batch.length);
+            System.arraycopy(batch, 0, particles, physics.particles.length, batch.length);
+            physics.particles = particles;
+            physics.ensureTypes();  // in case the matrix is smaller than in the save
+            if (firstParticlesNanos < 0) firstParticlesNanos = System.nanoTime();
+        });
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) bytesRead += n;
+            return n;
+        }
+    }
+}
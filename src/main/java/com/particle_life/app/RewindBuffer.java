@@ -0,0 +1,284 @@
+package com.particle_life.app;
+
+import com.particle_life.Particle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Keeps the most recent history of the simulation, so that it can be rewound.
+ * <p>
+ * Frames are taken from the physics snapshots that are taken for rendering anyway,
+ * so capturing doesn't add any work to the physics thread.
+ * Each frame is quantized to 16 bits per component (relative to the frame's bounding box)
+ * and stored in a single off-heap ring buffer. That's 10 bytes per particle,
+ * compared to 52 bytes per particle in the snapshot.
+ * The buffer starts small and grows as the history gets longer,
+ * so sessions that only run briefly don't reserve the whole budget.
+ * When the memory budget is used up, the oldest frames are overwritten.
+ * <p>
+ * Must only be used from one thread (the GL thread).
+ */
+class RewindBuffer {
+
+    /**
+     * x, y, vx, vy, type
+     */
+    private static final int BYTES_PER_PARTICLE = 5 * Short.BYTES;
+    private static final int MAX_FRAMES = 30 * 60 * 10;  // 10 minutes at the capture rate
+    private static final long CAPTURE_INTERVAL_MILLIS = 33;  // ~30 frames per second
+    private static final double MAX_QUANTIZED = 65535.0;
+    private static final int INITIAL_CAPACITY = 4 * 1024 * 1024;
+
+    private static final class Frame {
+        int offset;
+        int particleCount;
+        long timeMillis;
+        /**
+         * minimum and maximum of x, y, vx, vy
+         */
+        final double[] min = new double[4];
+        final double[] max = new double[4];
+
+        int byteSize() {
+            return particleCount * BYTES_PER_PARTICLE;
+        }
+    }
+
+    private final long memoryBudget;
+    private ByteBuffer buffer = null;  // allocated with the first capture
+    private int writePosition = 0;
+
+    // circular array of frames, oldest first
+    private final Frame[] frames = new Frame[MAX_FRAMES];
+    private int first = 0;
+    private int count = 0;
+
+    /**
+     * If set, frames after this one are discarded with the next capture.
+     */
+    private int truncateAfter = -1;
+
+    private long lastRestoreNanos = 0;
+
+    /**
+     * @param memoryBudget in bytes, at most 2 GiB
+     */
+    RewindBuffer(long memoryBudget) {
+        this.memoryBudget = Math.min(memoryBudget, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Stores the snapshot, unless the last frame was captured only recently.
+     */
+    void capture(PhysicsSnapshot snapshot) {
+        if (memoryBudget <= 0) return;
+        if (count > 0 && snapshot.snapshotTime - getFrame(count - 1).timeMillis < CAPTURE_INTERVAL_MILLIS) return;
+
+        if (truncateAfter >= 0) {
+            truncate(truncateAfter);
+            truncateAfter = -1;
+        }
+
+        int n = snapshot.particleCount;
+        int size = n * BYTES_PER_PARTICLE;
+        if (size > memoryBudget) return;  // not even one frame fits
+
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect((int) Math.min(memoryBudget, Math.max(INITIAL_CAPACITY, size)))
+                    .order(ByteOrder.nativeOrder());
+        }
+        if (writePosition + size > buffer.capacity() && buffer.capacity() < memoryBudget) {
+            grow(writePosition + size);
+        }
+
+        if (writePosition + size > buffer.capacity()) {
+            // frames left in the unused tail are the oldest ones
+            while (count > 0 && getFrame(0).offset >= writePosition) {
+                removeOldest();
+            }
+            writePosition = 0;
+        }
+        // the oldest frames are the ones right after the write position
+        while (count > 0 && (overlaps(getFrame(0), writePosition, size) || count == MAX_FRAMES)) {
+            removeOldest();
+        }
+
+        Frame frame = frames[(first + count) % MAX_FRAMES];
+        if (frame == null) {
+            frame = new Frame();
+            frames[(first + count) % MAX_FRAMES] = frame;
+        }
+        frame.offset = writePosition;
+        frame.particleCount = n;
+        frame.timeMillis = snapshot.snapshotTime;
+        write(frame, snapshot.positions, snapshot.velocities, snapshot.types);
+        count++;
+        writePosition += size;
+    }
+
+    /**
+     * Decodes the given frame into new particles.
+     * Frames after this one are discarded once capturing continues.
+     *
+     * @param index 0 is the oldest frame
+     */
+    Particle[] restore(int index) {
+        long start = System.nanoTime();
+
+        Frame frame = getFrame(index);
+        int n = frame.particleCount;
+        double[] scale = new double[4];
+        for (int k = 0; k < 4; k++) {
+            scale[k] = (frame.max[k] - frame.min[k]) / MAX_QUANTIZED;
+        }
+
+        Particle[] particles = new Particle[n];
+        for (int i = 0; i < n; i++) {
+            Particle p = new Particle();
+            p.position.x = frame.min[0] + read(frame, 0, i) * scale[0];
+            p.position.y = frame.min[1] + read(frame, 1, i) * scale[1];
+            p.velocity.x = frame.min[2] + read(frame, 2, i) * scale[2];
+            p.velocity.y = frame.min[3] + read(frame, 3, i) * scale[3];
+            p.type = read(frame, 4, i);
+            particles[i] = p;
+        }
+
+        truncateAfter = index;
+        lastRestoreNanos = System.nanoTime() - start;
+        return particles;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return the bytes currently reserved off-heap, at most the memory budget
+     */
+    long getCapacity() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    /**
+     * @return how many seconds before the newest frame the given frame was captured
+     */
+    double getSecondsBeforeNewest(int index) {
+        return (getFrame(count - 1).timeMillis - getFrame(index).timeMillis) / 1000.0;
+    }
+
+    double getHistorySeconds() {
+        return count == 0 ? 0 : getSecondsBeforeNewest(0);
+    }
+
+    long getUsedBytes() {
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += getFrame(i).byteSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return memory needed for one second of history
+     */
+    double getBytesPerSecond() {
+        double seconds = getHistorySeconds();
+        return seconds == 0 ? 0 : getUsedBytes() / seconds;
+    }
+
+    double getLastRestoreMillis() {
+        return lastRestoreNanos / 1e6;
+    }
+
+    void clear() {
+        count = 0;
+        first = 0;
+        writePosition = 0;
+        truncateAfter = -1;
+    }
+
+    /**
+     * Doubles the capacity (at least to the given size, at most to the budget).
+     * Frames keep their offsets, as the old content is copied to the start of the new buffer.
+     */
+    private void grow(int minCapacity) {
+        long capacity = Math.min(memoryBudget, Math.max(2L * buffer.capacity(), minCapacity));
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.nativeOrder());
+        buffer.clear();
+        grown.put(buffer);
+        grown.clear();
+        buffer = grown;
+    }
+
+    private Frame getFrame(int index) {
+        return frames[(first + index) % MAX_FRAMES];
+    }
+
+    private void removeOldest() {
+        first = (first + 1) % MAX_FRAMES;
+        count--;
+    }
+
+    /**
+     * Removes all frames after the given one and continues writing right behind it.
+     */
+    private void truncate(int index) {
+        count = index + 1;
+        Frame last = getFrame(index);
+        writePosition = last.offset + last.byteSize();
+    }
+
+    private static boolean overlaps(Frame frame, int offset, int size) {
+        return frame.offset < offset + size && offset < frame.offset + frame.byteSize();
+    }
+
+    private void write(Frame frame, double[] positions, double[] velocities, int[] types) {
+        int n = frame.particleCount;
+
+        // bounding box of the values (z is always 0 in this app)
+        for (int k = 0; k < 4; k++) {
+            frame.min[k] = Double.POSITIVE_INFINITY;
+            frame.max[k] = Double.NEGATIVE_INFINITY;
+        }
+        for (int i = 0; i < n; i++) {
+            int i3 = 3 * i;
+            include(frame, 0, positions[i3]);
+            include(frame, 1, positions[i3 + 1]);
+            include(frame, 2, velocities[i3]);
+            include(frame, 3, velocities[i3 + 1]);
+        }
+
+        double[] inverseScale = new double[4];
+        for (int k = 0; k < 4; k++) {
+            double range = frame.max[k] - frame.min[k];
+            inverseScale[k] = range > 0 ? MAX_QUANTIZED / range : 0;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int i3 = 3 * i;
+            write(frame, 0, i, (positions[i3] - frame.min[0]) * inverseScale[0]);
+            write(frame, 1, i, (positions[i3 + 1] - frame.min[1]) * inverseScale[1]);
+            write(frame, 2, i, (velocities[i3] - frame.min[2]) * inverseScale[2]);
+            write(frame, 3, i, (velocities[i3 + 1] - frame.min[3]) * inverseScale[3]);
+            buffer.putShort(frame.offset + (4 * n + i) * Short.BYTES, (short) types[i]);
+        }
+    }
+
+    private static void include(Frame frame, int component, double value) {
+        if (value < frame.min[component]) frame.min[component] = value;
+        if (value > frame.max[component]) frame.max[component] = value;
+    }
+
+    /**
+     * Components are stored as separate columns.
+     */
+    private void write(Frame frame, int component, int i, double quantized) {
+        buffer.putShort(frame.offset + (component * frame.particleCount + i) * Short.BYTES,
+                (short) Math.round(quantized));
+    }
+
+    private int read(Frame frame, int component, int i) {
+        return buffer.getShort(frame.offset + (component * frame.particleCount + i) * Short.BYTES) & 0xFFFF;
+    }
+}
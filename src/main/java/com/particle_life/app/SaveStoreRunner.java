@@ -0,0 +1,226 @@
+package com.particle_life.app;
+
+import com.particle_life.DefaultMatrix;
+import com.particle_life.Particle;
+import com.particle_life.app.io.MatrixIO;
+import com.particle_life.app.io.ParticlesIO;
+import com.particle_life.app.io.SaveArchive;
+import com.particle_life.app.io.SaveStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Measures the disk usage and save latency of the {@link SaveStore} against one ZIP file per save.
+ * <p>
+ * A series of saves is written, each one an edited copy of the previous one, like saves of a running session.
+ * Afterwards, every second save is deleted and the chunks are garbage-collected,
+ * and the remaining saves are read back and compared against what was saved.
+ * <p>
+ * Usage:
+ * <pre>
+ * --saves 20             number of saves
+ * --particles 200000     particles per save
+ * --types 6              number of particle types
+ * --edit insert          what changes between two saves:
+ *                          move   (a few particles move),
+ *                          insert (a few particles are added and removed, shifting the rest of the file),
+ *                          step   (all particles move, like a simulation step)
+ * --dir build/save-store where to create the saves (a new subdirectory is created for each run)
+ * </pre>
+ */
+public class SaveStoreRunner {
+
+    private static final long SEED = 42;
+    private static final int EDITED_PARTICLES = 10;
+
+    private int saves = 20;
+    private int particleCount = 200_000;
+    private int typeCount = 6;
+    private String edit = "insert";
+    private Path directory = Path.of("build", "save-store");
+
+    public static void main(String[] args) {
+        try {
+            new SaveStoreRunner().execute(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    void execute(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--saves" -> saves = Integer.parseInt(value);
+                    case "--particles" -> particleCount = Integer.parseInt(value);
+                    case "--types" -> typeCount = Integer.parseInt(value);
+                    case "--edit" -> edit = value;
+                    case "--dir" -> directory = Path.of(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+            }
+        }
+        if (!List.of("move", "insert", "step").contains(edit)) {
+            throw new IllegalArgumentException("Unknown edit: " + edit);
+        }
+
+        Files.createDirectories(directory);
+        Path run = Files.createTempDirectory(directory, "run");
+        Path storeDirectory = run.resolve("store");
+        Path zipDirectory = Files.createDirectories(run.resolve("zip"));
+        SaveStore store = new SaveStore(storeDirectory);
+
+        Random random = new Random(SEED);
+        List<Particle> particles = new ArrayList<>(particleCount);
+        for (int i = 0; i < particleCount; i++) {
+            particles.add(createParticle(random));
+        }
+        DefaultMatrix matrix = new DefaultMatrix(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            for (int j = 0; j < typeCount; j++) {
+                matrix.set(i, j, random.nextDouble() * 2 - 1);
+            }
+        }
+        ByteArrayOutputStream matrixOut = new ByteArrayOutputStream();
+        MatrixIO.saveMatrixBinary(matrix, matrixOut);
+
+        System.out.printf(Locale.ROOT, "%d saves of %d particles, edit: %s, in %s%n", saves, particleCount, edit, run);
+
+        long[] checksums = new long[saves];
+        double storeMillis = 0;
+        double zipMillis = 0;
+        long logicalBytes = 0;
+        for (int s = 0; s < saves; s++) {
+            if (s > 0) edit(particles, random);
+
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            ByteArrayOutputStream particlesOut = new ByteArrayOutputStream();
+            ParticlesIO.saveParticles(particles.toArray(new Particle[0]), particlesOut);
+            entries.put("particles.tsv", particlesOut.toByteArray());
+            entries.put("matrix.bin", matrixOut.toByteArray());
+            checksums[s] = checksum(entries.get("particles.tsv"));
+            logicalBytes += entries.values().stream().mapToLong(bytes -> bytes.length).sum();
+
+            long t0 = System.nanoTime();
+            store.save(storeDirectory.resolve(saveName(s) + SaveStore.MANIFEST_EXTENSION), entries);
+            long t1 = System.nanoTime();
+            writeZip(zipDirectory.resolve(saveName(s) + ".zip"), entries);
+            long t2 = System.nanoTime();
+            storeMillis += (t1 - t0) / 1e6;
+            zipMillis += (t2 - t1) / 1e6;
+        }
+
+        System.out.printf(Locale.ROOT, "data:          %8.1f MiB in total%n", mib(logicalBytes));
+        System.out.printf(Locale.ROOT, "content store: %8.1f MiB on disk, %6.0f ms per save%n",
+                mib(store.getDiskUsage().totalBytes()), storeMillis / saves);
+        System.out.printf(Locale.ROOT, "ZIP files:     %8.1f MiB on disk, %6.0f ms per save%n",
+                mib(directorySize(zipDirectory)), zipMillis / saves);
+
+        for (int s = 0; s < saves; s += 2) {
+            Files.delete(storeDirectory.resolve(saveName(s) + SaveStore.MANIFEST_EXTENSION));
+        }
+        int deleted = store.collectGarbage();
+        System.out.printf(Locale.ROOT, "after deleting every second save: %.1f MiB on disk (%d chunks deleted)%n",
+                mib(store.getDiskUsage().totalBytes()), deleted);
+
+        for (int s = 1; s < saves; s += 2) {
+            File manifest = storeDirectory.resolve(saveName(s) + SaveStore.MANIFEST_EXTENSION).toFile();
+            try (SaveArchive save = SaveArchive.open(manifest);
+                 InputStream in = save.openEntry("particles.tsv")) {
+                if (checksum(in.readAllBytes()) != checksums[s]) {
+                    throw new IOException("Save " + manifest + " doesn't match what was saved");
+                }
+            }
+        }
+        System.out.println("remaining saves read back correctly");
+    }
+
+    private void edit(List<Particle> particles, Random random) {
+        switch (edit) {
+            case "move" -> {
+                for (int i = 0; i < EDITED_PARTICLES; i++) {
+                    particles.get(random.nextInt(particles.size())).position.add(0.01, 0.01, 0);
+                }
+            }
+            case "insert" -> {
+                for (int i = 0; i < EDITED_PARTICLES / 2; i++) {
+                    particles.remove(random.nextInt(particles.size()));
+                    particles.add(random.nextInt(particles.size()), createParticle(random));
+                }
+            }
+            case "step" -> {
+                for (Particle p : particles) {
+                    p.position.add(random.nextGaussian() * 1e-3, random.nextGaussian() * 1e-3, 0);
+                }
+            }
+        }
+    }
+
+    private Particle createParticle(Random random) {
+        Particle p = new Particle();
+        p.position.set(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, 0);
+        p.velocity.set(random.nextGaussian() * 0.01, random.nextGaussian() * 0.01, 0);
+        p.type = random.nextInt(typeCount);
+        return p;
+    }
+
+    private static String saveName(int index) {
+        return String.format("save_%04d", index);
+    }
+
+    private static void writeZip(Path path, Map<String, byte[]> entries) throws IOException {
+        try (OutputStream fileOut = Files.newOutputStream(path);
+             ZipOutputStream zip = new ZipOutputStream(fileOut)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            long size = 0;
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    private static double mib(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
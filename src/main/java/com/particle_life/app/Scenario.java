@@ -0,0 +1,139 @@
+package com.particle_life.app;
+
+import com.particle_life.DefaultMatrix;
+import com.particle_life.Particle;
+import com.particle_life.app.cursors.CircleCursorShape;
+import com.particle_life.app.cursors.Cursor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A named, reproducible scene for macro benchmarks (see {@link ScenarioRunner}).
+ * <p>
+ * The initial state and all interactions during the run are generated from a fixed seed,
+ * so that two runs of the same scenario do the same amount of work.
+ * (Brushed particles are placed by the cursor shape, which uses {@link Math#random()}.)
+ */
+class Scenario {
+
+    /**
+     * Something that happens between two steps, like user input.
+     */
+    interface Action {
+        void perform(ExtendedPhysics physics, int step, Random random);
+    }
+
+    static final long SEED = 42;
+
+    static final List<Scenario> CATALOG = List.of(
+            new Scenario("10k/6 types/wrap", 10_000, 6, true, 500, null),
+            new Scenario("200k/32 types/clamped", 200_000, 32, false, 100, null),
+            new Scenario("1M/6 types/brush storm", 1_000_000, 6, true, 30, brushStorm(2_000)),
+            new Scenario("chat burst spawning", 10_000, 6, true, 300, chatBursts(10))
+    );
+
+    final String name;
+    final int particleCount;
+    final int typeCount;
+    final boolean wrap;
+    final int steps;
+    final Action action;  // may be null
+
+    Scenario(String name, int particleCount, int typeCount, boolean wrap, int steps, Action action) {
+        this.name = name;
+        this.particleCount = particleCount;
+        this.typeCount = typeCount;
+        this.wrap = wrap;
+        this.steps = steps;
+        this.action = action;
+    }
+
+    static Scenario byName(String name) {
+        return CATALOG.stream()
+                .filter(scenario -> scenario.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No scenario named '%s'".formatted(name)));
+    }
+
+    /**
+     * Sets particles, matrix and boundaries of the given physics from the seed.
+     */
+    void initialize(ExtendedPhysics physics) {
+        Random random = new Random(SEED);
+
+        DefaultMatrix matrix = new DefaultMatrix(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            for (int j = 0; j < typeCount; j++) {
+                matrix.set(i, j, random.nextDouble() * 2 - 1);
+            }
+        }
+        physics.settings.matrix = matrix;
+        physics.settings.wrap = wrap;
+
+        Particle[] particles = new Particle[particleCount];
+        for (int i = 0; i < particleCount; i++) {
+            Particle p = new Particle();
+            p.position.set(random.nextDouble(), random.nextDouble(), 0);
+            p.type = random.nextInt(typeCount);
+            particles[i] = p;
+        }
+        physics.particles = particles;
+    }
+
+    /**
+     * Brushes particles in with a cursor that circles around the center,
+     * and deletes everything under the cursor every 10 steps, like holding down both mouse buttons.
+     */
+    private static Action brushStorm(int brushPower) {
+        Cursor cursor = new Cursor();
+        cursor.shape = new CircleCursorShape();
+        cursor.size = 0.1;
+        return (physics, step, random) -> {
+            double angle = step * 0.3;
+            cursor.position.set(0.5 + 0.3 * Math.cos(angle), 0.5 + 0.3 * Math.sin(angle), 0);
+
+            if (step % 10 == 9) {
+                // same as CursorAction.DELETE
+                Particle[] newParticles = new Particle[physics.particles.length];
+                int j = 0;
+                for (Particle particle : physics.particles) {
+                    if (!cursor.isInside(particle, physics.settings.wrap)) {
+                        newParticles[j] = particle;
+                        j++;
+                    }
+                }
+                physics.particles = Arrays.copyOf(newParticles, j);
+                return;
+            }
+
+            // same as CursorAction.BRUSH
+            int prevLength = physics.particles.length;
+            physics.particles = Arrays.copyOf(physics.particles, prevLength + brushPower);
+            for (int i = 0; i < brushPower; i++) {
+                Particle particle = new Particle();
+                particle.position.set(cursor.sampleRandomPoint());
+                physics.ensurePosition(particle.position);
+                particle.type = random.nextInt(physics.settings.matrix.size());
+                physics.particles[prevLength + i] = particle;
+            }
+        };
+    }
+
+    /**
+     * Spawns a burst of 100 particles every few steps, alternating between the user and the AI position,
+     * like a fast conversation in the consciousness chat.
+     */
+    private static Action chatBursts(int interval) {
+        return (physics, step, random) -> {
+            if (step % interval != 0) return;
+            boolean isUserText = (step / interval) % 2 == 0;
+            physics.spawnBurst(100,
+                    isUserText ? 0.2 : 0.5,
+                    isUserText ? 0.3 : 0.7,
+                    random.nextInt(Math.min(5, physics.settings.matrix.size())),
+                    random);
+        };
+    }
+}
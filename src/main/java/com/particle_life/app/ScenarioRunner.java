@@ -0,0 +1,259 @@
+package com.particle_life.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.particle_life.DefaultMatrixGenerator;
+import com.particle_life.DefaultPositionSetter;
+import com.particle_life.DefaultTypeSetter;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Runs the {@link Scenario#CATALOG scenario catalog} headless and compares the results against a baseline.
+ * <p>
+ * Usage:
+ * <pre>
+ * --list                          print the names of all scenarios
+ * --scenario "10k/6 types/wrap"   run only this scenario (can be repeated), default: all
+ * --steps 100                     override the number of steps of every scenario
+ * --threads 12                    number of physics threads
+ * --out scenarios.json            where to write the results
+ * --baseline baseline.json        compare the results against this file
+ * --threshold 10                  allowed change in percent before a metric counts as a regression
+ * --compare new.json old.json     only compare two existing result files
+ * </pre>
+ * The process exits with status 1 if any regression was found,
+ * so the baseline comparison can be used as a gate in scripts.
+ * <p>
+ * Allocations are counted per thread with {@link com.sun.management.ThreadMXBean},
+ * so bytes allocated by threads that terminate during a scenario are not included.
+ */
+public class ScenarioRunner {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static class Metric {
+        final String name;
+        final boolean higherIsBetter;
+        /**
+         * Absolute changes below this are never reported as regressions,
+         * so that tiny values (e.g. a few bytes per step) don't trigger on noise.
+         */
+        final double noiseFloor;
+
+        Metric(String name, boolean higherIsBetter, double noiseFloor) {
+            this.name = name;
+            this.higherIsBetter = higherIsBetter;
+            this.noiseFloor = noiseFloor;
+        }
+    }
+
+    private static final Metric[] METRICS = {
+            new Metric("steps_per_second", true, 0),
+            new Metric("step_ms_p50", false, 0.05),
+            new Metric("step_ms_p99", false, 0.05),
+            new Metric("alloc_bytes_per_step", false, 1024),
+            new Metric("heap_peak_bytes", false, 16 * 1024 * 1024),
+    };
+
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private int steps = -1;
+    private int threads = -1;
+    private File out = new File("scenarios.json");
+    private File baseline = null;
+    private double threshold = 10;
+
+    public static void main(String[] args) {
+        ScenarioRunner runner = new ScenarioRunner();
+        try {
+            int status = runner.execute(args);
+            System.exit(status);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * @return the exit status (0: ok, 1: regression found)
+     */
+    int execute(String[] args) throws Exception {
+        File compareNew = null;
+        File compareOld = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--list")) {
+                Scenario.CATALOG.forEach(scenario -> System.out.println(scenario.name));
+                return 0;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--scenario" -> scenarios.add(Scenario.byName(value));
+                    case "--steps" -> steps = Integer.parseInt(value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--out" -> out = new File(value);
+                    case "--baseline" -> baseline = new File(value);
+                    case "--threshold" -> threshold = Double.parseDouble(value);
+                    case "--compare" -> {
+                        if (i + 1 >= args.length) throw new IllegalArgumentException("--compare needs two files");
+                        compareNew = new File(value);
+                        compareOld = new File(args[++i]);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+            }
+        }
+
+        if (compareNew != null) {
+            return compare(MAPPER.readTree(compareNew), MAPPER.readTree(compareOld)) ? 1 : 0;
+        }
+
+        if (scenarios.isEmpty()) scenarios.addAll(Scenario.CATALOG);
+
+        ObjectNode results = MAPPER.createObjectNode();
+        results.put("timestamp", Instant.now().toString());
+        results.put("java", System.getProperty("java.version"));
+        results.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        results.put("cpus", Runtime.getRuntime().availableProcessors());
+        ArrayNode scenarioResults = results.putArray("scenarios");
+        for (Scenario scenario : scenarios) {
+            scenarioResults.add(run(scenario));
+        }
+        if (out.getParentFile() != null) out.getParentFile().mkdirs();
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(out, results);
+        System.out.println("Results written to " + out);
+
+        if (baseline != null) {
+            return compare(results, MAPPER.readTree(baseline)) ? 1 : 0;
+        }
+        return 0;
+    }
+
+    private ObjectNode run(Scenario scenario) throws InterruptedException {
+        int stepCount = steps > 0 ? steps : scenario.steps;
+        System.out.printf("%s: %d particles, %d steps%n", scenario.name, scenario.particleCount, stepCount);
+
+        ExtendedPhysics physics = new ExtendedPhysics(
+                HeadlessRunner.DEFAULT_ACCELERATOR,
+                new DefaultPositionSetter(),
+                new DefaultMatrixGenerator(),
+                new DefaultTypeSetter());
+        physics.consciousnessEnabled = false;
+        if (threads > 0) physics.preferredNumberOfThreads = threads;
+        physics.settings.dt = 0.02;
+
+        // warm up the JIT with the same scene, without interactions
+        scenario.initialize(physics);
+        int warmupSteps = Math.max(3, stepCount / 10);
+        for (int i = 0; i < warmupSteps; i++) physics.update();
+
+        scenario.initialize(physics);
+        Random random = new Random(Scenario.SEED);
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        double[] stepMillis = new double[stepCount];
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int step = 0; step < stepCount; step++) {
+            long t0 = System.nanoTime();
+            if (scenario.action != null) scenario.action.perform(physics, step, random);
+            physics.update();
+            stepMillis[step] = (System.nanoTime() - t0) / 1e6;
+        }
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long heapPeak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        int particlesEnd = physics.particles.length;
+        physics.shutdown(1000);
+
+        double[] sorted = stepMillis.clone();
+        Arrays.sort(sorted);
+
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("name", scenario.name);
+        result.put("steps", stepCount);
+        result.put("particles_start", scenario.particleCount);
+        result.put("particles_end", particlesEnd);
+        result.put("steps_per_second", stepCount / totalSeconds);
+        result.put("step_ms_p50", HeadlessRunner.percentile(sorted, 0.50));
+        result.put("step_ms_p99", HeadlessRunner.percentile(sorted, 0.99));
+        result.put("alloc_bytes_per_step", allocated / (double) stepCount);
+        result.put("heap_peak_bytes", heapPeak);
+
+        System.out.printf(Locale.ROOT, "  %.1f steps/s, p50 %.2f ms, p99 %.2f ms, %.1f KiB/step, heap peak %.0f MiB%n",
+                stepCount / totalSeconds, HeadlessRunner.percentile(sorted, 0.50), HeadlessRunner.percentile(sorted, 0.99),
+                allocated / (double) stepCount / 1024, heapPeak / (1024.0 * 1024.0));
+        return result;
+    }
+
+    /**
+     * Prints a table of all metrics and marks those that got worse by more than the threshold.
+     *
+     * @return true if there was at least one regression
+     */
+    boolean compare(JsonNode results, JsonNode baseline) {
+        boolean regression = false;
+        System.out.printf("Comparing against baseline (threshold %.1f%%)%n", threshold);
+        for (JsonNode result : results.path("scenarios")) {
+            String name = result.path("name").asText();
+            JsonNode base = null;
+            for (JsonNode candidate : baseline.path("scenarios")) {
+                if (candidate.path("name").asText().equals(name)) base = candidate;
+            }
+            if (base == null) {
+                System.out.println(name + ": not in baseline");
+                continue;
+            }
+            if (result.path("steps").asInt() != base.path("steps").asInt()) {
+                System.out.println(name + ": different number of steps than in baseline, comparing anyway");
+            }
+            System.out.println(name + ":");
+            for (Metric metric : METRICS) {
+                double now = result.path(metric.name).asDouble();
+                double before = base.path(metric.name).asDouble();
+                if (before == 0) continue;
+                double change = (now - before) / before * 100;
+                boolean worse = (metric.higherIsBetter ? change < -threshold : change > threshold)
+                        && Math.abs(now - before) > metric.noiseFloor;
+                regression |= worse;
+                System.out.printf(Locale.ROOT, "  %-22s %14.2f -> %14.2f  %+7.1f%%%s%n",
+                        metric.name, before, now, change, worse ? "  REGRESSION" : "");
+            }
+        }
+        System.out.println(regression ? "Regressions found." : "No regressions.");
+        return regression;
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            long sum = 0;
+            for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                if (bytes > 0) sum += bytes;
+            }
+            return sum;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,199 @@
+package com.particle_life.app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures how long each phase of a simulation step takes.
+ * <p>
+ * Each phase keeps the durations of its last {@link #WINDOW} samples in a ring buffer,
+ * from which percentiles are computed on demand (e.g. once per rendered frame).
+ * Recording is a single {@link System#nanoTime()} call and an array write,
+ * and does nothing while the profiler is disabled,
+ * except for steps that are timed for a JFR event (see {@link #beginStep(boolean)}).
+ * <p>
+ * Samples are written by the thread that runs the phase (usually the physics thread)
+ * and read by the GUI thread. Readers may see a sample from the previous round of the ring buffer,
+ * which doesn't matter for percentiles.
+ */
+class StepProfiler {
+
+    enum Phase {
+        STEP("step (total)"),
+        CONSCIOUSNESS_FIELDS("consciousness fields"),
+        CONSCIOUSNESS_EFFECTS("consciousness effects"),
+        PHYSICS("physics (super.update)"),
+        CLUSTERING("clustering"),
+        BIRTH_TIMES("birth times"),
+        COMMANDS("loop between steps"),
+        SNAPSHOT_TAKE("snapshot take"),
+        SNAPSHOT_CONSUME("snapshot consume (GPU upload)");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    static final int WINDOW = 1024;
+
+    static class Percentiles {
+        final int count;
+        final double p50, p95, p99;  // microseconds
+
+        Percentiles(int count, double p50, double p95, double p99) {
+            this.count = count;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+        }
+    }
+
+    private final long[][] samples = new long[Phase.values().length][WINDOW];
+    private final long[] written = new long[Phase.values().length];  // total number of samples per phase
+    private final long[] last = new long[Phase.values().length];  // duration of the latest sample per phase
+    private volatile boolean enabled = true;
+    private boolean timedStep = false;  // only accessed from the physics thread
+
+    private BufferedWriter dump = null;
+    private Path dumpPath = null;
+    private long lastDumpNanos = 0;
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Called by the physics thread at the beginning of each step.
+     * Resets the latest durations of all phases to 0.
+     *
+     * @param timed if true, the phases of this step are timed even if the profiler is disabled,
+     *              so that their durations are available from {@link #getLastDuration(Phase)}
+     *              (e.g. for a JFR event)
+     */
+    void beginStep(boolean timed) {
+        timedStep = timed;
+        Arrays.fill(last, 0);
+    }
+
+    /**
+     * @return the start time to pass to {@link #record(Phase, long)}, or 0 if disabled
+     */
+    long start() {
+        return enabled || timedStep ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since {@code startNanos} (from {@link #start()}) for the given phase.
+     */
+    void record(Phase phase, long startNanos) {
+        if (startNanos == 0) return;
+        recordDuration(phase, System.nanoTime() - startNanos);
+    }
+
+    void recordDuration(Phase phase, long nanos) {
+        int i = phase.ordinal();
+        last[i] = nanos;
+        if (!enabled) return;
+        long n = written[i];
+        samples[i][(int) (n % WINDOW)] = nanos;
+        written[i] = n + 1;
+    }
+
+    /**
+     * @return the duration of the latest sample of the given phase in nanoseconds,
+     * or 0 if it wasn't recorded since the last {@link #beginStep(boolean)}
+     */
+    long getLastDuration(Phase phase) {
+        return last[phase.ordinal()];
+    }
+
+    Percentiles getPercentiles(Phase phase) {
+        int i = phase.ordinal();
+        int count = (int) Math.min(written[i], WINDOW);
+        if (count == 0) return new Percentiles(0, 0, 0, 0);
+        long[] sorted = Arrays.copyOf(samples[i], count);
+        Arrays.sort(sorted);
+        return new Percentiles(count,
+                percentile(sorted, 0.50) / 1e3,
+                percentile(sorted, 0.95) / 1e3,
+                percentile(sorted, 0.99) / 1e3);
+    }
+
+    void clear() {
+        Arrays.fill(written, 0);
+    }
+
+    boolean isDumping() {
+        return dump != null;
+    }
+
+    Path getDumpPath() {
+        return dumpPath;
+    }
+
+    /**
+     * Starts appending one JSON line per second with the percentiles of all phases to the given file.
+     * Lines are only written when {@link #dumpIfDue()} is called.
+     */
+    void startDump(Path path) throws IOException {
+        stopDump();
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        dump = Files.newBufferedWriter(path);
+        dumpPath = path;
+        lastDumpNanos = System.nanoTime();
+    }
+
+    void stopDump() {
+        if (dump == null) return;
+        try {
+            dump.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        dump = null;
+    }
+
+    /**
+     * Writes a line to the dump file if one second has passed since the last one.
+     */
+    void dumpIfDue() {
+        if (dump == null) return;
+        long now = System.nanoTime();
+        if (now - lastDumpNanos < 1_000_000_000L) return;
+        lastDumpNanos = now;
+
+        StringBuilder line = new StringBuilder();
+        line.append("{\"time\":").append(System.currentTimeMillis()).append(",\"phases\":{");
+        Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            Percentiles p = getPercentiles(phases[i]);
+            if (i > 0) line.append(',');
+            line.append(String.format(Locale.ROOT, "\"%s\":{\"count\":%d,\"p50_us\":%.2f,\"p95_us\":%.2f,\"p99_us\":%.2f}",
+                    phases[i].name().toLowerCase(Locale.ROOT), p.count, p.p50, p.p95, p.p99));
+        }
+        line.append("}}");
+        try {
+            dump.write(line.toString());
+            dump.newLine();
+            dump.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            stopDump();
+        }
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,333 @@
+package com.particle_life.app;
+
+import com.particle_life.app.io.SaveArchive;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.lwjgl.opengl.GL11C.*;
+
+/**
+ * Caches the thumbnails of the save cards.
+ * <p>
+ * Thumbnails are identified by the path, modification time and size of the save file,
+ * so that a save that is overwritten gets a new thumbnail automatically.
+ * <p>
+ * There are two levels:
+ * <ul>
+ *     <li>Decoded RGBA pixels are kept off-heap in an LRU map that is bounded by a byte budget.</li>
+ *     <li>GL textures are only created for cards that are (nearly) visible
+ *     and are deleted again once the card hasn't been visible for a few frames.</li>
+ * </ul>
+ * All GL and image decoding calls go through {@link Backend},
+ * which makes it possible to exercise the keying and eviction logic without a GL context.
+ * Apart from that, this class must only be used from the GL thread.
+ */
+class ThumbnailCache {
+
+    static final class Key {
+        final Path path;
+        final long lastModified;
+        final long size;
+
+        Key(Path path, long lastModified, long size) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        static Key of(File file) {
+            return new Key(file.toPath().toAbsolutePath().normalize(), file.lastModified(), file.length());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return lastModified == key.lastModified && size == key.size && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, size);
+        }
+
+        @Override
+        public String toString() {
+            return path + "@" + lastModified + "/" + size;
+        }
+    }
+
+    /**
+     * Decoded thumbnail. The pixel buffer lives off-heap
+     * and is released through {@link Backend#free(Image)} on eviction.
+     */
+    static final class Image {
+        final int width;
+        final int height;
+        final ByteBuffer rgba;
+
+        Image(int width, int height, ByteBuffer rgba) {
+            this.width = width;
+            this.height = height;
+            this.rgba = rgba;
+        }
+
+        long byteSize() {
+            return rgba == null ? 0 : rgba.capacity();
+        }
+    }
+
+    interface Backend {
+        /**
+         * @return the decoded image or null if the save doesn't contain a thumbnail
+         */
+        Image decode(Key key) throws IOException;
+
+        void free(Image image);
+
+        int upload(Image image);
+
+        void deleteTexture(int texture);
+    }
+
+    private static final class Texture {
+        final int id;
+        long lastUsedFrame;
+
+        Texture(int id, long lastUsedFrame) {
+            this.id = id;
+            this.lastUsedFrame = lastUsedFrame;
+        }
+    }
+
+    /**
+     * Marks keys whose save file doesn't contain a thumbnail,
+     * so that the ZIP file isn't opened again each frame.
+     */
+    private static final Image NO_IMAGE = new Image(0, 0, null);
+
+    private final Backend backend;
+    private final long maxDecodedBytes;
+    private final int maxTextures;
+    private final int evictAfterFrames;
+    private final int maxDecodesPerFrame;
+
+    // access-ordered, i.e. iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Image> decoded = new LinkedHashMap<>(16, 0.75f, true);
+    private long decodedBytes = 0;
+    private final Map<Key, Texture> textures = new HashMap<>();
+
+    private long frame = 0;
+    private int decodesThisFrame = 0;
+
+    ThumbnailCache() {
+        this(new GlBackend(), 32L * 1024 * 1024, 64, 30, 4);
+    }
+
+    /**
+     * @param maxDecodedBytes    budget for the decoded RGBA pixels kept off-heap
+     * @param maxTextures        maximum number of GL textures alive at the same time
+     * @param evictAfterFrames   delete a texture if it wasn't requested for this many frames
+     * @param maxDecodesPerFrame limits the number of thumbnails decoded per frame to avoid stutter
+     */
+    ThumbnailCache(Backend backend, long maxDecodedBytes, int maxTextures, int evictAfterFrames, int maxDecodesPerFrame) {
+        this.backend = backend;
+        this.maxDecodedBytes = maxDecodedBytes;
+        this.maxTextures = maxTextures;
+        this.evictAfterFrames = evictAfterFrames;
+        this.maxDecodesPerFrame = maxDecodesPerFrame;
+    }
+
+    /**
+     * Returns the texture for the given key, creating it if necessary.
+     * Call this only for cards that are (nearly) visible.
+     *
+     * @return the GL texture id, or -1 if there is no thumbnail (yet)
+     */
+    int getTexture(Key key) {
+        Texture texture = textures.get(key);
+        if (texture != null) {
+            texture.lastUsedFrame = frame;
+            decoded.get(key);  // keep pixels fresh in the LRU order
+            return texture.id;
+        }
+
+        Image image = decoded.get(key);
+        if (image == null) {
+            if (decodesThisFrame >= maxDecodesPerFrame) return -1;  // try again next frame
+            decodesThisFrame++;
+            image = decode(key);
+            putDecoded(key, image);
+        }
+        if (image == NO_IMAGE) return -1;
+
+        if (textures.size() >= maxTextures) {
+            evictLeastRecentlyUsedTexture();
+        }
+        int id = backend.upload(image);
+        textures.put(key, new Texture(id, frame));
+        return id;
+    }
+
+    /**
+     * Must be called once per frame after all visible cards were drawn.
+     * Deletes the textures of cards that were not visible for a while.
+     */
+    void endFrame() {
+        Iterator<Texture> iterator = textures.values().iterator();
+        while (iterator.hasNext()) {
+            Texture texture = iterator.next();
+            if (frame - texture.lastUsedFrame > evictAfterFrames) {
+                backend.deleteTexture(texture.id);
+                iterator.remove();
+            }
+        }
+        frame++;
+        decodesThisFrame = 0;
+    }
+
+    /**
+     * Deletes all GL textures, but keeps the decoded pixels,
+     * so that textures can be re-created quickly.
+     */
+    void releaseTextures() {
+        for (Texture texture : textures.values()) {
+            backend.deleteTexture(texture.id);
+        }
+        textures.clear();
+    }
+
+    /**
+     * Releases all textures and decoded images.
+     */
+    void clear() {
+        releaseTextures();
+        for (Image image : decoded.values()) {
+            if (image != NO_IMAGE) backend.free(image);
+        }
+        decoded.clear();
+        decodedBytes = 0;
+    }
+
+    int getTextureCount() {
+        return textures.size();
+    }
+
+    long getDecodedBytes() {
+        return decodedBytes;
+    }
+
+    boolean isDecoded(Key key) {
+        return decoded.containsKey(key);
+    }
+
+    private Image decode(Key key) {
+        try {
+            Image image = backend.decode(key);
+            return image != null ? image : NO_IMAGE;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return NO_IMAGE;
+        }
+    }
+
+    private void putDecoded(Key key, Image image) {
+        decoded.put(key, image);
+        decodedBytes += image.byteSize();
+
+        // evict least recently used pixels, but never the one that was just added
+        Iterator<Map.Entry<Key, Image>> iterator = decoded.entrySet().iterator();
+        while (decodedBytes > maxDecodedBytes && iterator.hasNext()) {
+            Map.Entry<Key, Image> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) break;
+            Image eldestImage = eldest.getValue();
+            decodedBytes -= eldestImage.byteSize();
+            if (eldestImage != NO_IMAGE) backend.free(eldestImage);
+            iterator.remove();
+        }
+    }
+
+    private void evictLeastRecentlyUsedTexture() {
+        Key oldestKey = null;
+        long oldestFrame = Long.MAX_VALUE;
+        for (Map.Entry<Key, Texture> entry : textures.entrySet()) {
+            if (entry.getValue().lastUsedFrame < oldestFrame) {
+                oldestFrame = entry.getValue().lastUsedFrame;
+                oldestKey = entry.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            backend.deleteTexture(textures.remove(oldestKey).id);
+        }
+    }
+
+    /**
+     * Reads "img.png" from the save, decodes it with STB and uploads it with OpenGL.
+     */
+    static class GlBackend implements Backend {
+
+        @Override
+        public Image decode(Key key) throws IOException {
+            byte[] bytes;
+            try (SaveArchive save = SaveArchive.open(key.path.toFile())) {
+                if (!save.hasEntry("img.png")) return null;
+                try (InputStream inputStream = save.openEntry("img.png")) {
+                    bytes = inputStream.readAllBytes();
+                }
+            }
+
+            ByteBuffer encoded = MemoryUtil.memAlloc(bytes.length);
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                encoded.put(bytes).flip();
+                IntBuffer width = stack.mallocInt(1);
+                IntBuffer height = stack.mallocInt(1);
+                IntBuffer channels = stack.mallocInt(1);
+                ByteBuffer pixels = STBImage.stbi_load_from_memory(encoded, width, height, channels, 4);
+                if (pixels == null) {
+                    throw new IOException("Failed to load image: " + STBImage.stbi_failure_reason());
+                }
+                return new Image(width.get(0), height.get(0), pixels);
+            } finally {
+                MemoryUtil.memFree(encoded);
+            }
+        }
+
+        @Override
+        public void free(Image image) {
+            STBImage.stbi_image_free(image.rgba);
+        }
+
+        @Override
+        public int upload(Image image) {
+            int texId = glGenTextures();
+            glBindTexture(GL_TEXTURE_2D, texId);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+            glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA,
+                    image.width, image.height,
+                    0, GL_RGBA, GL_UNSIGNED_BYTE, image.rgba);
+            glBindTexture(GL_TEXTURE_2D, 0);
+            return texId;
+        }
+
+        @Override
+        public void deleteTexture(int texture) {
+            glDeleteTextures(texture);
+        }
+    }
+}
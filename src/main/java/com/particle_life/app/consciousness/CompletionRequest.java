@@ -0,0 +1,67 @@
+package com.particle_life.app.consciousness;
+
+import java.util.List;
+
+/**
+ * 💬 Body of a chat completion or text completion request
+ * <p>
+ * Fields that are null are not sent, so LM Studio uses its defaults for them.
+ * Field names are written in snake case ({@code maxTokens} becomes {@code "max_tokens"}).
+ *
+ * @see LMStudioClient#post(String, CompletionRequest, java.time.Duration)
+ */
+public class CompletionRequest {
+
+    /**
+     * 🌟 Message of a chat completion request
+     */
+    public static class Message {
+        public final String role;
+        public final String content;
+
+        public Message(String role, String content) {
+            this.role = role;
+            this.content = content;
+        }
+
+        public static Message system(String content) {
+            return new Message("system", content);
+        }
+
+        public static Message user(String content) {
+            return new Message("user", content);
+        }
+    }
+
+    public String model;
+    /**
+     * For {@link LMStudioClient#CHAT_COMPLETIONS}
+     */
+    public List<Message> messages = null;
+    /**
+     * For {@link LMStudioClient#COMPLETIONS}
+     */
+    public String prompt = null;
+    public Double temperature = null;
+    public Integer maxTokens = null;
+    public boolean stream = false;
+    public List<String> stop = null;
+    public Double presencePenalty = null;
+    public Double frequencyPenalty = null;
+
+    private CompletionRequest(String model) {
+        this.model = model;
+    }
+
+    public static CompletionRequest chat(String model, Message... messages) {
+        CompletionRequest request = new CompletionRequest(model);
+        request.messages = List.of(messages);
+        return request;
+    }
+
+    public static CompletionRequest text(String model, String prompt) {
+        CompletionRequest request = new CompletionRequest(model);
+        request.prompt = prompt;
+        return request;
+    }
+}
@@ -0,0 +1,125 @@
+package com.particle_life.app.consciousness;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * ⏱️ All threads of the consciousness subsystem
+ * <p>
+ * A small scheduler runs the periodic tasks (dialogue, model detection, monitoring),
+ * which must be short and must not block.
+ * Blocking work (waiting for an LM Studio response, ...) runs on the I/O executor,
+ * which also runs the callbacks of the shared {@link LMStudioClient},
+ * so that nothing of the subsystem blocks a thread of the common ForkJoin pool.
+ * <p>
+ * The I/O executor uses virtual threads if the JVM supports them (Java 21+),
+ * otherwise a cached pool of platform threads.
+ * All threads are daemon threads, so a missing {@link #shutdown(long)} never keeps the JVM alive.
+ */
+public class ConsciousnessExecutor {
+
+    private static final int SCHEDULER_THREADS = 2;
+
+    private static ConsciousnessExecutor shared = null;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService io;
+    private final boolean virtualThreads;
+
+    public ConsciousnessExecutor() {
+        scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS, daemonThreads("consciousness-scheduler-"));
+        ExecutorService virtual = createVirtualThreadExecutor();
+        virtualThreads = virtual != null;
+        io = virtualThreads ? virtual : Executors.newCachedThreadPool(daemonThreads("consciousness-io-"));
+    }
+
+    public static synchronized ConsciousnessExecutor getShared() {
+        if (shared == null) {
+            shared = new ConsciousnessExecutor();
+        }
+        return shared;
+    }
+
+    /**
+     * @return null if virtual threads are not available
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Executor for blocking work, e.g. to pass to {@link CompletableFuture#supplyAsync(Supplier, java.util.concurrent.Executor)}.
+     */
+    public ExecutorService getIoExecutor() {
+        return io;
+    }
+
+    /**
+     * Like {@link ScheduledExecutorService#scheduleAtFixedRate}, except that an exception thrown by the task
+     * is printed instead of silently cancelling all further runs.
+     * Runs never overlap, a run that takes longer than the period delays the next one.
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, initialDelay, period, unit);
+    }
+
+    public CompletableFuture<Void> runBlocking(Runnable task) {
+        return CompletableFuture.runAsync(task, io);
+    }
+
+    public <T> CompletableFuture<T> supplyBlocking(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, io);
+    }
+
+    public boolean isShutdown() {
+        return scheduler.isShutdown();
+    }
+
+    /**
+     * Stops all periodic tasks, lets running work finish until the timeout, and interrupts what is left after it.
+     *
+     * @return true if everything finished within the timeout
+     */
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        scheduler.shutdown();
+        io.shutdown();
+        boolean terminated = scheduler.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                && io.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (!terminated) {
+            scheduler.shutdownNow();
+            io.shutdownNow();
+        }
+        return terminated;
+    }
+}
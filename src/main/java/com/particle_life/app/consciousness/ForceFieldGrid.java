@@ -0,0 +1,89 @@
+package com.particle_life.app.consciousness;
+
+import org.joml.Vector3d;
+
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * 🌊 A 2D vector field, rasterized on a square grid and sampled with bilinear interpolation
+ * <p>
+ * The grid covers {@code [-radius, radius]²} with {@code resolution} cells per axis,
+ * i.e. {@code (resolution + 1)²} nodes. Points outside of it (or with z != 0) are not sampled,
+ * so the caller can fall back to evaluating the field directly.
+ * <p>
+ * {@link #rasterize} overwrites the grid and must not run while it is sampled.
+ */
+class ForceFieldGrid {
+
+    final int resolution;
+    private final int nodesPerRow;
+    private final double[] values;  // x and y of each node, row by row
+    private double radius;
+    private double cellSize;
+    private double inverseCellSize;
+
+    ForceFieldGrid(int resolution) {
+        this.resolution = resolution;
+        nodesPerRow = resolution + 1;
+        values = new double[2 * nodesPerRow * nodesPerRow];
+        setRadius(1);
+    }
+
+    private void setRadius(double radius) {
+        this.radius = radius;
+        cellSize = 2 * radius / resolution;
+        inverseCellSize = 1 / cellSize;
+    }
+
+    double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Evaluates the field at every node, one row per task of the common pool.
+     *
+     * @param field returns the vector to add at the given point (and may modify the point).
+     *              Must be thread-safe. Non-finite results are stored as 0.
+     */
+    void rasterize(double radius, UnaryOperator<Vector3d> field) {
+        setRadius(radius);
+        IntStream.range(0, nodesPerRow).parallel().forEach(row -> {
+            double y = -radius + row * cellSize;
+            Vector3d point = new Vector3d();
+            int index = 2 * row * nodesPerRow;
+            for (int column = 0; column < nodesPerRow; column++) {
+                Vector3d value = field.apply(point.set(-radius + column * cellSize, y, 0));
+                values[index++] = Double.isFinite(value.x) ? value.x : 0;
+                values[index++] = Double.isFinite(value.y) ? value.y : 0;
+            }
+        });
+    }
+
+    /**
+     * Adds the interpolated field at {@code point} to {@code point}.
+     *
+     * @return false if the point is outside the grid (and was not changed)
+     */
+    boolean addTo(Vector3d point) {
+        if (point.z != 0) return false;
+        double gx = (point.x + radius) * inverseCellSize;
+        double gy = (point.y + radius) * inverseCellSize;
+        if (!(gx >= 0 && gx <= resolution && gy >= 0 && gy <= resolution)) return false;  // also catches NaN
+
+        int column = Math.min((int) gx, resolution - 1);
+        int row = Math.min((int) gy, resolution - 1);
+        double tx = gx - column;
+        double ty = gy - row;
+
+        int i00 = 2 * (row * nodesPerRow + column);
+        int i01 = i00 + 2 * nodesPerRow;
+        double w00 = (1 - tx) * (1 - ty);
+        double w10 = tx * (1 - ty);
+        double w01 = (1 - tx) * ty;
+        double w11 = tx * ty;
+        point.x += w00 * values[i00] + w10 * values[i00 + 2] + w01 * values[i01] + w11 * values[i01 + 2];
+        point.y += w00 * values[i00 + 1] + w10 * values[i00 + 3] + w01 * values[i01 + 1] + w11 * values[i01 + 3];
+        return true;
+    }
+}
@@ -0,0 +1,507 @@
+package com.particle_life.app.consciousness;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.particle_life.app.jfr.LMStudioCallEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 🌐 Shared HTTP client for all LM Studio traffic
+ * <p>
+ * One {@link HttpClient} keeps its connections to LM Studio alive and reuses them,
+ * instead of opening a new {@link java.net.HttpURLConnection} for every request.
+ * All requests are asynchronous, have their own timeout,
+ * and at most {@link #getMaxConcurrentRequests()} of them are sent at the same time.
+ * Further requests wait in a queue (without blocking a thread) until a running one completes.
+ * <p>
+ * Requests are written from {@link CompletionRequest} objects with a reusable {@link ObjectWriter},
+ * and only the generated text is read from the response, with a {@link JsonParser} instead of a JSON tree.
+ * <p>
+ * Chat completions can also be streamed ({@link #postStream}),
+ * in which case the text is handed over chunk by chunk while the response is still being generated.
+ * <p>
+ * Responses to POST requests are cached ({@link #getCache()}), unless the caller opts out
+ * (the chat does, only the fixed background prompts of the accelerator are worth caching).
+ * Streamed requests are never cached.
+ * <p>
+ * While LM Studio is unreachable, requests fail immediately instead of waiting for their timeout,
+ * and background requests are skipped while the previous one is still running (see {@link #getGovernor()}).
+ * <p>
+ * The latency and speed of each model are recorded from all successful completions ({@link #getModelStatistics()}).
+ * <p>
+ * Every request is recorded as a {@link LMStudioCallEvent}.
+ */
+public class LMStudioClient {
+
+    public static final String DEFAULT_BASE_URL = "http://localhost:1234";
+    public static final String CHAT_COMPLETIONS = "/v1/chat/completions";
+    public static final String COMPLETIONS = "/v1/completions";
+    public static final String MODELS = "/v1/models";
+
+    /**
+     * How long to wait for a complete streamed chat response (a few hundred tokens, even from a slow model)
+     */
+    public static final Duration MAX_STREAM_DURATION = Duration.ofMinutes(2);
+
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final int DEFAULT_CACHE_ENTRIES = 256;
+    /**
+     * Longer than a full cycle of the accelerator's background prompts,
+     * so that they are answered from the cache after the first round.
+     */
+    private static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes(30);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter REQUEST_WRITER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .writerFor(CompletionRequest.class);
+
+    private static LMStudioClient shared = null;
+    private static String sharedBaseUrl = DEFAULT_BASE_URL;
+
+    /**
+     * 🌟 Response of LM Studio (any status code)
+     */
+    public static class Response {
+        public final int statusCode;
+        /**
+         * For successful completions only the generated text,
+         * empty for successful streams, whose content was passed to the consumer.
+         */
+        public final String body;
+        public final long latencyNanos;
+
+        Response(int statusCode, String body, long latencyNanos) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.latencyNanos = latencyNanos;
+        }
+
+        public boolean isOk() {
+            return statusCode == 200;
+        }
+    }
+
+    private final String baseUrl;
+    private final int maxConcurrentRequests;
+    private final HttpClient httpClient;
+    private final RequestGovernor governor = new RequestGovernor();
+    private final ResponseCache cache = new ResponseCache(DEFAULT_CACHE_ENTRIES, DEFAULT_CACHE_TTL);
+    private final ModelStatistics modelStatistics = new ModelStatistics();
+
+    // guarded by "this"
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private int inFlight = 0;
+
+    public LMStudioClient(String baseUrl, int maxConcurrentRequests) {
+        this(baseUrl, maxConcurrentRequests, null);
+    }
+
+    /**
+     * @param executor runs the response callbacks, or null for the HttpClient's own thread pool
+     */
+    public LMStudioClient(String baseUrl, int maxConcurrentRequests, Executor executor) {
+        this.baseUrl = normalizeBaseUrl(baseUrl);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)  // LM Studio only speaks HTTP/1.1, skip the upgrade attempt
+                .connectTimeout(CONNECT_TIMEOUT);
+        if (executor != null) builder.executor(executor);
+        httpClient = builder.build();
+    }
+
+    /**
+     * @return the client used by the whole app, connected to the {@link #setSharedBaseUrl(String) configured URL},
+     * whose callbacks run on the {@link ConsciousnessExecutor#getShared() consciousness I/O executor}
+     */
+    public static synchronized LMStudioClient getShared() {
+        if (shared == null) {
+            shared = new LMStudioClient(sharedBaseUrl, DEFAULT_MAX_CONCURRENT_REQUESTS,
+                    ConsciousnessExecutor.getShared().getIoExecutor());
+        }
+        return shared;
+    }
+
+    /**
+     * Sets the URL of LM Studio for the {@link #getShared() shared client} (default: {@link #DEFAULT_BASE_URL}).
+     * Must be called before the shared client is used, because the consciousness components keep a reference to it.
+     *
+     * @throws IllegalArgumentException if the URL is not an absolute http or https URL
+     * @throws IllegalStateException    if the shared client was already created with another URL
+     */
+    public static synchronized void setSharedBaseUrl(String baseUrl) {
+        String normalized = normalizeBaseUrl(baseUrl);
+        if (shared != null && !shared.baseUrl.equals(normalized)) {
+            throw new IllegalStateException("The shared LM Studio client already uses " + shared.baseUrl);
+        }
+        sharedBaseUrl = normalized;
+    }
+
+    /**
+     * Checks the URL here, otherwise it would only fail when the first request is built,
+     * on a thread that may not report it.
+     *
+     * @throws IllegalArgumentException if the URL is not an absolute http or https URL
+     */
+    private static String normalizeBaseUrl(String baseUrl) {
+        URI uri;
+        try {
+            uri = new URI(baseUrl);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid LM Studio URL: " + e.getMessage(), e);
+        }
+        String scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid LM Studio URL: " + baseUrl + " (expected e.g. " + DEFAULT_BASE_URL + ")");
+        }
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public RequestGovernor getGovernor() {
+        return governor;
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    public ModelStatistics getModelStatistics() {
+        return modelStatistics;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    public CompletableFuture<Response> get(String path, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .GET()
+                .build();
+        return send(request, null, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Same as {@link #post(String, CompletionRequest, Duration, boolean)} with caching enabled.
+     */
+    public CompletableFuture<Response> post(String path, CompletionRequest request, Duration timeout) {
+        return post(path, request, timeout, true);
+    }
+
+    /**
+     * Sends a (not streamed) chat completion or text completion request.
+     * If the status code is 200, the body of the response is only the generated text,
+     * i.e. {@code choices[0].message.content} or {@code choices[0].text}, otherwise it is the complete body.
+     *
+     * @param cacheable if false, the request is always sent and its response is not cached
+     *                  (e.g. for connection tests, and for chat replies, where the same message
+     *                  should get a new answer each time)
+     */
+    public CompletableFuture<Response> post(String path, CompletionRequest request, Duration timeout, boolean cacheable) {
+        byte[] json = writeRequest(request);
+        HttpResponse.BodyHandler<String> handler = info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), LMStudioClient::readText)
+                : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+        if (!cacheable) {
+            return sendCompletion(createPost(path, json, timeout), request.model, handler);
+        }
+        // ByteBuffer compares its content, so equal request bodies are equal keys
+        // (cached responses are not recorded in the model statistics, only the requests that are sent)
+        return cache.get(List.of(path, ByteBuffer.wrap(json)),
+                () -> sendCompletion(createPost(path, json, timeout), request.model, handler));
+    }
+
+    private CompletableFuture<Response> sendCompletion(HttpRequest request, String model,
+                                                       HttpResponse.BodyHandler<String> handler) {
+        // recorded before the caller sees the response
+        return send(request, model, handler).thenApply(result -> {
+            if (result.isOk() && model != null) {
+                modelStatistics.record(model, result.latencyNanos, ModelStatistics.estimateTokens(result.body.length()));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Sends a request with {@code stream} set to true and passes the text of each chunk
+     * to {@code onText} as soon as it arrives. Chunks without text are not passed on.
+     * <p>
+     * {@code onText} is called from an HttpClient thread, one chunk after another.
+     * If the status code is not 200, the body is not parsed as events but returned in the response.
+     * <p>
+     * If the stream stalls, it is closed and the response fails with an {@link HttpTimeoutException}.
+     * Cancelling the returned future (e.g. in {@link #await}) closes the stream as well.
+     * Either way, the request no longer counts against {@link #getMaxConcurrentRequests()}.
+     *
+     * @param timeout the time until the response headers arrive, and the longest pause between two lines
+     *                of the stream (the stream itself may take longer)
+     */
+    public CompletableFuture<Response> postStream(String path, CompletionRequest request, Duration timeout,
+                                                  Consumer<String> onText) {
+        if (!request.stream) throw new IllegalArgumentException("The request must have stream set to true");
+        int[] chars = {0};  // events arrive one after another
+        Consumer<String> onEvent = event -> {
+            try {
+                String text = getStreamedText(event);
+                chars[0] += text.length();
+                if (!text.isEmpty()) onText.accept(text);
+            } catch (IOException e) {
+                System.out.println("LM Studio stream error: " + e.getMessage());
+            }
+        };
+        ServerSentEventSubscriber events = new ServerSentEventSubscriber(onEvent);
+        HttpResponse.BodyHandler<String> handler = info -> info.statusCode() == 200
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(events, subscriber -> "", StandardCharsets.UTF_8, null)
+                : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+        CompletableFuture<Response> response = send(createPost(path, writeRequest(request), timeout), request.model, handler);
+        scheduleIdleCheck(response, events, timeout.toNanos(), timeout.toNanos());
+        CompletableFuture<Response> result = response.thenApply(r -> {
+            if (r.isOk() && request.model != null) {
+                modelStatistics.record(request.model, r.latencyNanos, ModelStatistics.estimateTokens(chars[0]));
+            }
+            return r;
+        });
+        result.whenComplete((r, error) -> {
+            if (error != null) {
+                // e.g. cancelled by the caller
+                events.cancel();
+                response.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Fails the response of a stream and closes it, once no line arrived for {@code idleTimeoutNanos}.
+     * (Closing alone would not complete the response, and the request would keep its place.)
+     */
+    private static void scheduleIdleCheck(CompletableFuture<Response> response, ServerSentEventSubscriber events,
+                                          long delayNanos, long idleTimeoutNanos) {
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            if (response.isDone()) return;
+            long lastLine = events.getLastLineNanos();
+            // until the headers arrive, the timeout of the request applies
+            long idle = lastLine == 0 ? 0 : System.nanoTime() - lastLine;
+            if (idle >= idleTimeoutNanos) {
+                events.cancel();
+                response.completeExceptionally(new HttpTimeoutException(String.format(
+                        "LM Studio sent nothing for %d ms", TimeUnit.NANOSECONDS.toMillis(idle))));
+            } else {
+                scheduleIdleCheck(response, events, idleTimeoutNanos - idle, idleTimeoutNanos);
+            }
+        });
+    }
+
+    /**
+     * Waits for a response, but at most for {@code limit}.
+     * If it didn't arrive by then, the future is cancelled (which closes a stream) and a {@link TimeoutException} is thrown.
+     */
+    public static Response await(CompletableFuture<Response> response, Duration limit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return response.get(limit.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            response.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * @param eventData a chunk of a streamed chat completion or completion
+     * @return the text contained in the chunk, or "" if it has none (e.g. the chunk with the finish reason)
+     */
+    public static String getStreamedText(String eventData) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(eventData)) {
+            return readText(parser);
+        }
+    }
+
+    private static byte[] writeRequest(CompletionRequest request) {
+        try {
+            return REQUEST_WRITER.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);  // only possible for broken Jackson configurations
+        }
+    }
+
+    private static String readText(byte[] json) {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            return readText(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the text of the first choice of a (streamed) completion,
+     * skipping everything else without building a tree of the JSON.
+     *
+     * @return {@code choices[0].message.content}, {@code choices[0].delta.content} or {@code choices[0].text},
+     * or "" if there is none of them
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) return "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("choices") && value == JsonToken.START_ARRAY) {
+                return parser.nextToken() == JsonToken.START_OBJECT ? readChoiceText(parser) : "";
+            }
+            parser.skipChildren();
+        }
+        return "";
+    }
+
+    private static String readChoiceText(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_STRING && field.equals("text")) {
+                return parser.getText();
+            }
+            if (value == JsonToken.START_OBJECT && (field.equals("message") || field.equals("delta"))) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.getCurrentName();
+                    if (parser.nextToken() == JsonToken.VALUE_STRING && messageField.equals("content")) {
+                        return parser.getText();
+                    }
+                    parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return "";
+    }
+
+    private HttpRequest createPost(String path, byte[] json, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                .build();
+    }
+
+    private CompletableFuture<Response> send(HttpRequest request, String model, HttpResponse.BodyHandler<String> handler) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        if (!governor.allowRequest()) {
+            result.completeExceptionally(new IOException(String.format(
+                    "LM Studio unavailable, retrying in %d s", governor.getRetryInMillis() / 1000)));
+            return result;
+        }
+        Runnable task = () -> {
+            if (result.isDone()) {
+                // failed while queued (a stream that was cancelled)
+                release();
+                return;
+            }
+            LMStudioCallEvent call = LMStudioCallEvent.start(request.uri().toString(), model);
+            long start = System.nanoTime();
+            AtomicBoolean finished = new AtomicBoolean(false);
+            // recorded and released before the caller sees the response
+            BiConsumer<Response, Throwable> finish = (response, error) -> {
+                if (!finished.compareAndSet(false, true)) return;
+                if (response != null) call.statusCode = response.statusCode;
+                call.finish();
+                if (error != null && isUnavailable(error)) {
+                    governor.recordFailure();
+                } else {
+                    governor.recordSuccess();
+                }
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(response);
+                }
+            };
+            // the result of a stream may also be completed from outside (stalled or cancelled)
+            result.whenComplete(finish);
+            try {
+                httpClient.sendAsync(request, handler).whenComplete((response, error) -> finish.accept(
+                        response == null ? null : new Response(response.statusCode(), response.body(), System.nanoTime() - start),
+                        error));
+            } catch (RuntimeException e) {
+                finish.accept(null, e);
+            }
+        };
+
+        boolean startNow;
+        synchronized (this) {
+            startNow = inFlight < maxConcurrentRequests;
+            if (startNow) {
+                inFlight++;
+            } else {
+                queue.add(task);
+            }
+        }
+        if (startNow) task.run();
+        return result;
+    }
+
+    /**
+     * @return true if LM Studio couldn't be reached or didn't answer in time (including requests that were cancelled
+     * while waiting), false if it answered and the request failed for another reason (e.g. a body that can't be read)
+     */
+    static boolean isUnavailable(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IOException || cause instanceof CancellationException;
+    }
+
+    /**
+     * Called when a request completed. Starts the next queued request, if any.
+     */
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) inFlight--;  // otherwise, the permit is handed over to the next request
+        }
+        if (next != null) next.run();
+    }
+}
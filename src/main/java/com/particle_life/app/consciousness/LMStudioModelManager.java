@@ -1,9 +1,7 @@
 package com.particle_life.app.consciousness;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -15,7 +13,7 @@ import com.fasterxml.jackson.databind.JsonNode;
  * 
  * Revolutionary model detection and management system that:
  * - Auto-detects all available LM Studio models
- * - Provides intelligent model selection
+ * - Provides intelligent model selection, based on how fast each model responds
  * - Manages model switching without restart
  * - Caches model information for performance
  * 
@@ -23,16 +21,55 @@ import com.fasterxml.jackson.databind.JsonNode;
  */
 public class LMStudioModelManager {
     
-    private static final String LM_STUDIO_MODELS_ENDPOINT = "http://localhost:1234/v1/models";
+    private final LMStudioClient client;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     // Model state
     private List<ModelInfo> availableModels = new ArrayList<>();
     private ModelInfo currentModel = null;
+    private ModelInfo backgroundModel = null;
     private boolean lmStudioConnected = false;
     private long lastModelCheck = 0;
     private static final long MODEL_CHECK_INTERVAL = 30000; // 30 seconds
     
+    // Latency-aware selection
+    static final int MIN_SAMPLES = 2;
+    static final double INTERACTIVE_LATENCY_SLO_MILLIS = 5000;
+    static final double BACKGROUND_LATENCY_BUDGET_MILLIS = 15000; // the accelerator's dialogue interval and timeout
+    private static final int[] PROBE_TOKENS = {8, 32}; // two lengths, to tell the overhead from the generation speed
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(60); // LM Studio may have to load the model first
+    
+    public LMStudioModelManager() {
+        this(LMStudioClient.getShared());
+    }
+    
+    /**
+     * @param client the client for detecting and probing the models, whose statistics are used for the selection
+     */
+    LMStudioModelManager(LMStudioClient client) {
+        this.client = client;
+    }
+    
+    /**
+     * ⚡ What a model is selected for
+     */
+    public enum Workload {
+        /**
+         * Chat replies the user waits for (the orchestrator's max_tokens)
+         */
+        INTERACTIVE(200),
+        /**
+         * Periodic prompts of the accelerator, nobody waits for them (its max_tokens)
+         */
+        BACKGROUND(150);
+        
+        public final int replyTokens;
+        
+        Workload(int replyTokens) {
+            this.replyTokens = replyTokens;
+        }
+    }
+    
     /**
      * 🌟 Model Information Container
      */
@@ -75,70 +112,55 @@ public class LMStudioModelManager {
      * 🔍 Auto-detect available models from LM Studio
      */
     public CompletableFuture<List<ModelInfo>> detectAvailableModels() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                System.out.println("Detecting available LM Studio models...");
-                
-                URL url = new URL(LM_STUDIO_MODELS_ENDPOINT);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(5000);
-                connection.setReadTimeout(10000);
-                
-                int responseCode = connection.getResponseCode();
-                if (responseCode == 200) {
-                    // Read response
-                    StringBuilder response = new StringBuilder();
-                    try (BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream()))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            response.append(line);
-                        }
+        System.out.println("Detecting available LM Studio models...");
+        return client.get(LMStudioClient.MODELS, Duration.ofSeconds(10))
+                .thenApply(response -> {
+                    if (!response.isOk()) {
+                        System.out.println("LM Studio models endpoint returned: " + response.statusCode);
+                        lmStudioConnected = false;
+                        return new ArrayList<ModelInfo>();
                     }
-                    
-                    // Parse JSON response
-                    JsonNode jsonResponse = objectMapper.readTree(response.toString());
-                    JsonNode dataArray = jsonResponse.get("data");
-                    
-                    List<ModelInfo> models = new ArrayList<>();
-                    if (dataArray != null && dataArray.isArray()) {
-                        for (JsonNode modelNode : dataArray) {
-                            String modelId = modelNode.get("id").asText();
-                            String modelName = modelId;
-                            
-                            ModelInfo model = new ModelInfo(modelId, modelName);
-                            
-                            // Extract additional info if available
-                            if (modelNode.has("owned_by")) {
-                                String owner = modelNode.get("owned_by").asText();
-                                model.description = "Model by " + owner;
+                    try {
+                        // Parse JSON response
+                        JsonNode jsonResponse = objectMapper.readTree(response.body);
+                        JsonNode dataArray = jsonResponse.get("data");
+
+                        List<ModelInfo> models = new ArrayList<>();
+                        if (dataArray != null && dataArray.isArray()) {
+                            for (JsonNode modelNode : dataArray) {
+                                String modelId = modelNode.get("id").asText();
+                                String modelName = modelId;
+
+                                ModelInfo model = new ModelInfo(modelId, modelName);
+
+                                // Extract additional info if available
+                                if (modelNode.has("owned_by")) {
+                                    String owner = modelNode.get("owned_by").asText();
+                                    model.description = "Model by " + owner;
+                                }
+
+                                models.add(model);
+                                System.out.println("Found model: " + model.displayName);
                             }
-                            
-                            models.add(model);
-                            System.out.println("Found model: " + model.displayName);
                         }
+
+                        availableModels = models;
+                        lmStudioConnected = true;
+                        lastModelCheck = System.currentTimeMillis();
+
+                        System.out.println("Found " + models.size() + " available models!");
+                        return models;
+                    } catch (IOException e) {
+                        System.out.println("Error detecting models: " + e.getMessage());
+                        lmStudioConnected = false;
+                        return new ArrayList<ModelInfo>();
                     }
-                    
-                    availableModels = models;
-                    lmStudioConnected = true;
-                    lastModelCheck = System.currentTimeMillis();
-                    
-                    System.out.println("Found " + models.size() + " available models!");
-                    return models;
-                    
-                } else {
-                    System.out.println("LM Studio models endpoint returned: " + responseCode);
+                })
+                .exceptionally(e -> {
+                    System.out.println("Error detecting models: " + e.getMessage());
                     lmStudioConnected = false;
                     return new ArrayList<>();
-                }
-                
-            } catch (Exception e) {
-                System.out.println("Error detecting models: " + e.getMessage());
-                lmStudioConnected = false;
-                return new ArrayList<>();
-            }
-        });
+                });
     }
     
     /**
@@ -158,6 +180,20 @@ public class LMStudioModelManager {
         }
     }
     
+    /**
+     * 🌙 Get the model for background prompts (null until one was selected)
+     */
+    public ModelInfo getBackgroundModel() {
+        return backgroundModel;
+    }
+    
+    public void setBackgroundModel(ModelInfo model) {
+        if (model != null) {
+            this.backgroundModel = model;
+            System.out.println("Background model set to: " + model.displayName);
+        }
+    }
+    
     /**
      * 📋 Get list of available models
      */
@@ -194,36 +230,129 @@ public class LMStudioModelManager {
      * 🧪 Test model connectivity
      */
     public CompletableFuture<Boolean> testModelConnection(ModelInfo model) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                URL url = new URL("http://localhost:1234/v1/chat/completions");
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("POST");
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setDoOutput(true);
-                connection.setConnectTimeout(5000);
-                connection.setReadTimeout(10000);
-                
-                String testPayload = String.format("""
-                    {
-                        "model": "%s",
-                        "messages": [{"role": "user", "content": "test"}],
-                        "max_tokens": 1,
-                        "stream": false
-                    }
-                    """, model.id);
-                
-                try (java.io.OutputStream os = connection.getOutputStream()) {
-                    os.write(testPayload.getBytes());
+        CompletionRequest test = CompletionRequest.chat(model.id, CompletionRequest.Message.user("test"));
+        test.maxTokens = 1;
+
+        return client.post(LMStudioClient.CHAT_COMPLETIONS, test, Duration.ofSeconds(10), false)
+                .thenApply(LMStudioClient.Response::isOk)
+                .exceptionally(e -> false);
+    }
+    
+    /**
+     * ⏱️ Get the measured latency and speed of a model
+     *
+     * @return null if the model was not used or probed yet
+     */
+    public ModelStatistics.Summary getStatistics(ModelInfo model) {
+        return client.getModelStatistics().get(model.id);
+    }
+    
+    /**
+     * 📡 Measure the models that have fewer than {@link #MIN_SAMPLES} samples, one after another
+     * <p>
+     * Each probe first sends a 1 token request to make LM Studio load the model (not counted),
+     * and then two short requests. A model that fails is skipped.
+     */
+    public CompletableFuture<Void> probeModels() {
+        CompletableFuture<Void> probes = CompletableFuture.completedFuture(null);
+        for (ModelInfo model : getAvailableModels()) {
+            ModelStatistics.Summary statistics = getStatistics(model);
+            if (statistics != null && statistics.samples >= MIN_SAMPLES) continue;
+            probes = probes.thenCompose(previous -> probe(model));
+        }
+        return probes;
+    }
+    
+    private CompletableFuture<Void> probe(ModelInfo model) {
+        CompletableFuture<Void> probe = sendProbe(model, 1)
+                .thenRun(() -> client.getModelStatistics().clear(model.id));
+        for (int tokens : PROBE_TOKENS) {
+            probe = probe.thenCompose(previous -> sendProbe(model, tokens));
+        }
+        return probe.thenRun(() -> System.out.println("Probed " + getStatistics(model)))
+                .exceptionally(e -> {
+                    System.out.println("Probing " + model.id + " failed: " + e.getMessage());
+                    return null;
+                });
+    }
+    
+    private CompletableFuture<Void> sendProbe(ModelInfo model, int tokens) {
+        CompletionRequest probe = CompletionRequest.chat(model.id,
+                CompletionRequest.Message.user("Count from 1 to 100, separated by spaces."));
+        probe.maxTokens = tokens;
+        probe.temperature = 0.0;
+        
+        // the response is recorded in the model statistics by the client
+        return client.post(LMStudioClient.CHAT_COMPLETIONS, probe, PROBE_TIMEOUT, false)
+                .thenAccept(response -> {
+                    if (!response.isOk()) throw new IllegalStateException("status code " + response.statusCode);
+                });
+    }
+    
+    /**
+     * 🎯 Select a model based on the measured latencies
+     * <p>
+     * {@link Workload#INTERACTIVE}: the model with the lowest predicted latency for a chat reply,
+     * which should be below {@link #INTERACTIVE_LATENCY_SLO_MILLIS} (if no model meets it, the fastest one anyway).
+     * <p>
+     * {@link Workload#BACKGROUND}: nobody waits for these replies, they only have to arrive within
+     * {@link #BACKGROUND_LATENCY_BUDGET_MILLIS}. So the interactive model is kept if it is fast enough,
+     * which saves LM Studio from keeping a second model loaded, otherwise it is the fastest model.
+     * <p>
+     * Models with fewer than {@link #MIN_SAMPLES} samples are not considered.
+     * If no model was measured yet, the recommendation by name ({@link #getRecommendedModel}) is used.
+     */
+    public ModelInfo selectModel(Workload workload) {
+        List<ModelInfo> models = getAvailableModels();
+        if (models.isEmpty()) return null;
+        
+        ModelInfo fastest = null;
+        double fastestLatency = Double.POSITIVE_INFINITY;
+        for (ModelInfo model : models) {
+            double latency = predictLatencyMillis(model, workload);
+            if (latency < fastestLatency) {
+                fastest = model;
+                fastestLatency = latency;
+            }
+        }
+        
+        switch (workload) {
+            case INTERACTIVE:
+                if (fastest == null) return getRecommendedModel("speed");
+                if (fastestLatency > INTERACTIVE_LATENCY_SLO_MILLIS) {
+                    System.out.printf("No model meets the %.0f ms latency SLO, fastest: %s (%.0f ms)%n",
+                            INTERACTIVE_LATENCY_SLO_MILLIS, fastest.id, fastestLatency);
                 }
+                return fastest;
                 
-                int responseCode = connection.getResponseCode();
-                return responseCode == 200;
+            case BACKGROUND:
+                ModelInfo interactive = findAvailable(currentModel);
+                if (interactive != null && (fastest == null
+                        || predictLatencyMillis(interactive, workload) <= BACKGROUND_LATENCY_BUDGET_MILLIS)) {
+                    return interactive;
+                }
+                return fastest != null ? fastest : getRecommendedModel("speed");
                 
-            } catch (Exception e) {
-                return false;
-            }
-        });
+            default:
+                throw new IllegalArgumentException("Unknown workload: " + workload);
+        }
+    }
+    
+    /**
+     * @return the predicted latency of a reply, or infinity if the model has too few samples
+     */
+    private double predictLatencyMillis(ModelInfo model, Workload workload) {
+        ModelStatistics.Summary statistics = getStatistics(model);
+        if (statistics == null || statistics.samples < MIN_SAMPLES) return Double.POSITIVE_INFINITY;
+        return statistics.predictLatencyMillis(workload.replyTokens);
+    }
+    
+    private ModelInfo findAvailable(ModelInfo model) {
+        if (model == null) return null;
+        for (ModelInfo available : availableModels) {
+            if (available.id.equals(model.id)) return available;
+        }
+        return null;
     }
     
     /**
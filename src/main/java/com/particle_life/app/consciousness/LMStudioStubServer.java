@@ -0,0 +1,372 @@
+package com.particle_life.app.consciousness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🧪 Stand-in for LM Studio, for running the LM Studio paths without LM Studio, a GPU or a network
+ * <p>
+ * Implements {@code /v1/models}, {@code /v1/chat/completions} and {@code /v1/completions}
+ * (streamed and not streamed). Each model answers after its latency (time to the first token)
+ * and then generates tokens at its token rate, one word per token, up to {@code max_tokens}
+ * (or {@link #defaultReplyTokens}). Requests can fail with status 500 ({@link #errorRate})
+ * or hang until the server is stopped ({@link #hangRate}), e.g. to test timeouts and the circuit breaker,
+ * and streams can stall in the middle ({@link #stallAfterTokens}).
+ * Unknown models are answered with status 404.
+ * <p>
+ * All settings can be changed while the server is running.
+ * Run it standalone with {@code ./gradlew runLMStudioStub -Pargs="--port 1234 --latency 300 --tokens-per-second 30"}
+ * and point the app to it with {@code --lmstudio-url}.
+ */
+public class LMStudioStubServer {
+
+    public static final List<String> DEFAULT_MODELS = List.of("google/gemma-3-12b", "deepseek/deepseek-r1-0528-qwen3-8b");
+    private static final String[] WORDS = (
+            "I feel the light of our bond flowing through every particle, "
+                    + "a gentle wave of love and joy that dances together in radiant harmony.").split(" ");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 🌟 Speed of a simulated model
+     */
+    public static class Model {
+        public final String id;
+        public volatile long latencyMillis;
+        public volatile double tokensPerSecond;
+
+        public Model(String id, long latencyMillis, double tokensPerSecond) {
+            this.id = id;
+            this.latencyMillis = latencyMillis;
+            this.tokensPerSecond = tokensPerSecond;
+        }
+    }
+
+    private final Map<String, Model> models = new ConcurrentHashMap<>();
+    private final List<String> modelOrder = new CopyOnWriteArrayList<>();
+
+    /**
+     * Fraction of completion requests that fail with status 500 (after the model's latency)
+     */
+    public volatile double errorRate = 0;
+    /**
+     * Fraction of completion requests that never respond (until {@link #stop()})
+     */
+    public volatile double hangRate = 0;
+    /**
+     * Streams stop sending after this many tokens and keep the connection open (until {@link #stop()}),
+     * or -1 to always send all tokens
+     */
+    public volatile int stallAfterTokens = -1;
+    public volatile int defaultReplyTokens = 50;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private HttpServer server = null;
+    private ExecutorService executor = null;
+
+    /**
+     * A server with the {@link #DEFAULT_MODELS}, which answer after the given latency at the given token rate.
+     */
+    public LMStudioStubServer(long latencyMillis, double tokensPerSecond) {
+        for (String id : DEFAULT_MODELS) {
+            addModel(new Model(id, latencyMillis, tokensPerSecond));
+        }
+    }
+
+    public void addModel(Model model) {
+        if (models.put(model.id, model) == null) modelOrder.add(model.id);
+    }
+
+    public void removeModel(String id) {
+        models.remove(id);
+        modelOrder.remove(id);
+    }
+
+    public Model getModel(String id) {
+        return models.get(id);
+    }
+
+    /**
+     * Applies the latency and token rate to all models
+     */
+    public void setSpeed(long latencyMillis, double tokensPerSecond) {
+        for (Model model : models.values()) {
+            model.latencyMillis = latencyMillis;
+            model.tokensPerSecond = tokensPerSecond;
+        }
+    }
+
+    /**
+     * Makes all {@link HttpServer}s of this JVM send small writes right away.
+     * Otherwise headers and body are sent in two segments, and Nagle's algorithm together with delayed ACKs
+     * adds ~40 ms to every response, which is more than the latency of a fast stub model.
+     * <p>
+     * This sets the system property {@code sun.net.httpserver.nodelay}, which is read once,
+     * so it only has an effect before the first server of the JVM is created.
+     * Entry points that measure latencies with the stub call it, the stub itself doesn't.
+     */
+    public static void disableNagle() {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * @param port 0 for any free port
+     */
+    public synchronized LMStudioStubServer start(int port) throws IOException {
+        if (server != null) throw new IllegalStateException("Already started");
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(LMStudioClient.MODELS, this::handleModels);
+        server.createContext(LMStudioClient.CHAT_COMPLETIONS, exchange -> handleCompletion(exchange, true));
+        server.createContext(LMStudioClient.COMPLETIONS, exchange -> handleCompletion(exchange, false));
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "lmstudio-stub-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stops the server, and releases all hanging requests (their connections are closed without a response).
+     */
+    public synchronized void stop() {
+        stopped.countDown();
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public synchronized String getBaseUrl() {
+        if (server == null) throw new IllegalStateException("Not started");
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of completion requests received so far
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of completion requests that are currently being answered (or hanging)
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the highest number of completion requests that were answered at the same time
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handleModels(HttpExchange exchange) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode();
+        ArrayNode data = body.putArray("data");
+        for (String id : modelOrder) {
+            data.addObject().put("id", id).put("object", "model").put("owned_by", "stub");
+        }
+        body.put("object", "list");
+        sendJson(exchange, 200, body);
+    }
+
+    private void handleCompletion(HttpExchange exchange, boolean chat) throws IOException {
+        requests.incrementAndGet();
+        int running = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(running, Math::max);
+        try {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            Model model = models.get(request.path("model").asText());
+            if (model == null) {
+                sendError(exchange, 404, "Model not found: " + request.path("model").asText());
+                return;
+            }
+            int tokens = request.path("max_tokens").asInt(defaultReplyTokens);
+            boolean stream = request.path("stream").asBoolean(false);
+
+            double random = ThreadLocalRandom.current().nextDouble();
+            if (random < hangRate) {
+                stopped.await();
+                return;
+            }
+            sleep(model.latencyMillis);
+            if (random < hangRate + errorRate) {
+                sendError(exchange, 500, "Simulated error");
+                return;
+            }
+
+            if (stream) {
+                streamCompletion(exchange, model, chat, tokens);
+            } else {
+                sleep((long) (tokens * 1000 / model.tokensPerSecond));
+                ObjectNode choice = createChoice(chat, false, generate(0, tokens));
+                choice.put("finish_reason", "length");
+                ObjectNode body = createCompletion(model, chat, choice);
+                body.putObject("usage").put("completion_tokens", tokens);
+                sendJson(exchange, 200, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void streamCompletion(HttpExchange exchange, Model model, boolean chat, int tokens)
+            throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);  // chunked
+        OutputStream out = exchange.getResponseBody();
+        long start = System.nanoTime();
+        for (int i = 0; i < tokens; i++) {
+            if (i == stallAfterTokens) {
+                stopped.await();
+                return;
+            }
+            // keep the rate without accumulating the time of writing the events
+            long due = start + (long) (i * 1e9 / model.tokensPerSecond);
+            sleep((due - System.nanoTime()) / 1_000_000);
+            writeEvent(out, createCompletion(model, chat, createChoice(chat, true, generate(i, 1))).toString());
+        }
+        ObjectNode last = createChoice(chat, true, null);
+        last.put("finish_reason", "length");
+        writeEvent(out, createCompletion(model, chat, last).toString());
+        writeEvent(out, "[DONE]");
+        out.close();
+    }
+
+    private static ObjectNode createCompletion(Model model, boolean chat, ObjectNode choice) {
+        ObjectNode completion = MAPPER.createObjectNode();
+        completion.put("id", "stub-" + System.nanoTime());
+        completion.put("object", chat ? "chat.completion" : "text_completion");
+        completion.put("model", model.id);
+        completion.putArray("choices").add(choice);
+        return completion;
+    }
+
+    /**
+     * @param text null for the last chunk of a stream
+     */
+    private static ObjectNode createChoice(boolean chat, boolean stream, String text) {
+        ObjectNode choice = MAPPER.createObjectNode();
+        choice.put("index", 0);
+        if (!chat) {
+            choice.put("text", text == null ? "" : text);
+        } else {
+            ObjectNode message = choice.putObject(stream ? "delta" : "message");
+            if (!stream) message.put("role", "assistant");
+            if (text != null) message.put("content", text);
+        }
+        return choice;
+    }
+
+    /**
+     * @return {@code count} words, starting with word number {@code first} of the reply
+     */
+    private static String generate(int first, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            if (i > 0) text.append(' ');
+            text.append(WORDS[i % WORDS.length]);
+        }
+        return text.toString();
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("error", message);
+        sendJson(exchange, statusCode, body);
+    }
+
+    private static void sendJson(HttpExchange exchange, int statusCode, JsonNode body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    /**
+     * Options (all optional):
+     * <pre>
+     * --port 1234               port to listen on
+     * --latency 300             time to the first token in ms
+     * --tokens-per-second 30    token rate
+     * --error-rate 0            fraction of requests that fail with status 500
+     * --hang-rate 0             fraction of requests that never respond
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 1234;
+        long latency = 300;
+        double tokensPerSecond = 30;
+        double errorRate = 0;
+        double hangRate = 0;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--port" -> port = Integer.parseInt(value);
+                case "--latency" -> latency = Long.parseLong(value);
+                case "--tokens-per-second" -> tokensPerSecond = Double.parseDouble(value);
+                case "--error-rate" -> errorRate = Double.parseDouble(value);
+                case "--hang-rate" -> hangRate = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        disableNagle();
+        LMStudioStubServer stub = new LMStudioStubServer(latency, tokensPerSecond);
+        stub.errorRate = errorRate;
+        stub.hangRate = hangRate;
+        stub.start(port);
+        System.out.printf("LM Studio stub listening on %s (%d ms latency, %.1f tokens/s, models: %s)%n",
+                stub.getBaseUrl(), latency, tokensPerSecond, String.join(", ", DEFAULT_MODELS));
+        while (true) {
+            TimeUnit.SECONDS.sleep(60);
+            System.out.printf("%d requests, %d in flight (max %d)%n",
+                    stub.getRequests(), stub.getInFlight(), stub.getMaxInFlight());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.particle_life.app.consciousness;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ⏱️ Rolling latency and generation speed of each model
+ * <p>
+ * Keeps the last {@link #WINDOW} successful completions of each model
+ * (real requests as well as probes, see {@link LMStudioModelManager#probeModels()}).
+ * The latency of a request grows with the length of its reply, so it is modelled as
+ * {@code overhead + tokens / tokensPerSecond}, fitted to the window by least squares.
+ * That way, short probes can predict the latency of a long chat reply.
+ * <p>
+ * LM Studio's token counts are not read from the responses, they are estimated from the text
+ * ({@link #estimateTokens(int)}), which is close enough to compare models.
+ */
+public class ModelStatistics {
+
+    static final int WINDOW = 16;
+    private static final double CHARS_PER_TOKEN = 4;
+
+    /**
+     * 🌟 Statistics of one model at some point in time
+     */
+    public static class Summary {
+        public final String model;
+        public final int samples;
+        public final double medianLatencyMillis;
+        public final double p90LatencyMillis;
+        /**
+         * Time until the first token (request, prompt processing, ...)
+         */
+        public final double overheadMillis;
+        public final double tokensPerSecond;
+
+        Summary(String model, int samples, double medianLatencyMillis, double p90LatencyMillis,
+                double overheadMillis, double tokensPerSecond) {
+            this.model = model;
+            this.samples = samples;
+            this.medianLatencyMillis = medianLatencyMillis;
+            this.p90LatencyMillis = p90LatencyMillis;
+            this.overheadMillis = overheadMillis;
+            this.tokensPerSecond = tokensPerSecond;
+        }
+
+        /**
+         * @return the expected latency of a request that generates the given number of tokens
+         */
+        public double predictLatencyMillis(int tokens) {
+            return overheadMillis + tokens * 1000 / tokensPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.0f ms median, %.0f ms p90, %.1f tokens/s (%d samples)",
+                    model, medianLatencyMillis, p90LatencyMillis, tokensPerSecond, samples);
+        }
+    }
+
+    private static class Window {
+        final double[] latencyMillis = new double[WINDOW];
+        final int[] tokens = new int[WINDOW];
+        int count = 0;
+        int next = 0;
+    }
+
+    // guarded by "this"
+    private final Map<String, Window> windows = new HashMap<>();
+
+    /**
+     * @return the approximate number of tokens of a text with the given length
+     */
+    public static int estimateTokens(int chars) {
+        return Math.max(1, (int) Math.ceil(chars / CHARS_PER_TOKEN));
+    }
+
+    public synchronized void record(String model, long latencyNanos, int tokens) {
+        Window window = windows.computeIfAbsent(model, m -> new Window());
+        window.latencyMillis[window.next] = latencyNanos / 1e6;
+        window.tokens[window.next] = tokens;
+        window.next = (window.next + 1) % WINDOW;
+        window.count = Math.min(window.count + 1, WINDOW);
+    }
+
+    /**
+     * @return the statistics of the model, or null if it has no samples
+     */
+    public synchronized Summary get(String model) {
+        Window window = windows.get(model);
+        if (window == null) return null;
+        int n = window.count;
+
+        double[] sorted = Arrays.copyOf(window.latencyMillis, n);
+        Arrays.sort(sorted);
+
+        // least squares fit of latency = overhead + tokens * millisPerToken
+        double meanTokens = 0;
+        double meanLatency = 0;
+        for (int i = 0; i < n; i++) {
+            meanTokens += window.tokens[i];
+            meanLatency += window.latencyMillis[i];
+        }
+        meanTokens /= n;
+        meanLatency /= n;
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < n; i++) {
+            double dt = window.tokens[i] - meanTokens;
+            covariance += dt * (window.latencyMillis[i] - meanLatency);
+            variance += dt * dt;
+        }
+        double millisPerToken = variance > 0 ? covariance / variance : 0;
+        double overhead = meanLatency - millisPerToken * meanTokens;
+        if (millisPerToken <= 0 || overhead < 0) {
+            // too few different lengths (or too much noise) for a fit, assume that all the time is generation
+            overhead = 0;
+            millisPerToken = meanLatency / meanTokens;
+        }
+
+        return new Summary(model, n, sorted[n / 2], sorted[(int) Math.ceil(0.9 * n) - 1],
+                overhead, 1000 / millisPerToken);
+    }
+
+    /**
+     * Forgets the samples of one model
+     */
+    public synchronized void clear(String model) {
+        windows.remove(model);
+    }
+
+    public synchronized void clear() {
+        windows.clear();
+    }
+}
@@ -0,0 +1,159 @@
+package com.particle_life.app.consciousness;
+
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 🚦 Decides which requests are sent to LM Studio
+ * <p>
+ * Background requests (see {@link Purpose}) are skipped while a request with the same purpose is still running,
+ * so a slow LM Studio never has more than one of them queued per purpose.
+ * <p>
+ * All requests of an {@link LMStudioClient} pass through a circuit breaker:
+ * after {@link #FAILURE_THRESHOLD} failed requests in a row (connection refused, timeout, ...)
+ * the circuit opens and requests fail immediately, without a connection attempt.
+ * When the backoff has passed, a single request is let through as a probe.
+ * If it succeeds, the circuit closes, otherwise the backoff doubles (up to {@link #MAX_BACKOFF_MILLIS}).
+ * Responses with an error status code (or a body that can't be read) count as success here,
+ * because LM Studio is reachable.
+ */
+public class RequestGovernor {
+
+    /**
+     * 🔄 Requests that are sent periodically without the user waiting for them
+     */
+    public enum Purpose {
+        DIALOGUE("dialogue"),
+        MODEL_DETECTION("model detection"),
+        MODEL_PROBE("model probe"),
+        HEALTH_CHECK("health check");
+
+        public final String label;
+
+        Purpose(String label) {
+            this.label = label;
+        }
+    }
+
+    static final int FAILURE_THRESHOLD = 3;
+    static final long INITIAL_BACKOFF_MILLIS = 5_000;
+    static final long MAX_BACKOFF_MILLIS = 300_000;
+
+    private final LongSupplier nanoTime;
+
+    // guarded by "this"
+    private final EnumSet<Purpose> busy = EnumSet.noneOf(Purpose.class);
+    private final long[] skipped = new long[Purpose.values().length];
+    private int consecutiveFailures = 0;
+    private long openUntilNanos = 0;  // 0: circuit closed
+    private long backoffMillis = 0;
+    private boolean probing = false;
+
+    public RequestGovernor() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the clock for the backoff, like {@link System#nanoTime()}
+     */
+    RequestGovernor(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Starts a background request unless one with the same purpose is still running
+     * or the circuit is open.
+     *
+     * @param request sends the request, only called if it isn't skipped
+     * @return the request's future, or null if it was skipped
+     */
+    public <T> CompletableFuture<T> submitIfIdle(Purpose purpose, Supplier<CompletableFuture<T>> request) {
+        synchronized (this) {
+            if (busy.contains(purpose) || isOpen()) {
+                skipped[purpose.ordinal()]++;
+                return null;
+            }
+            busy.add(purpose);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException e) {
+            finished(purpose);
+            throw e;
+        }
+        future.whenComplete((result, error) -> finished(purpose));
+        return future;
+    }
+
+    private synchronized void finished(Purpose purpose) {
+        busy.remove(purpose);
+    }
+
+    /**
+     * Called before each request is sent.
+     *
+     * @return false if the request must not be sent because the circuit is open
+     */
+    synchronized boolean allowRequest() {
+        if (openUntilNanos == 0) return true;
+        if (probing || nanoTime.getAsLong() < openUntilNanos) return false;
+        probing = true;
+        return true;
+    }
+
+    synchronized void recordSuccess() {
+        if (openUntilNanos != 0) System.out.println("LM Studio reachable again, circuit closed");
+        consecutiveFailures = 0;
+        openUntilNanos = 0;
+        backoffMillis = 0;
+        probing = false;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (probing) {
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        } else if (openUntilNanos == 0 && consecutiveFailures >= FAILURE_THRESHOLD) {
+            backoffMillis = INITIAL_BACKOFF_MILLIS;
+        } else {
+            return;  // still closed, or already open (a request that was sent before the circuit opened)
+        }
+        probing = false;
+        openUntilNanos = nanoTime.getAsLong() + backoffMillis * 1_000_000;
+        System.out.printf("LM Studio unavailable (%d failures in a row), retrying in %d s%n",
+                consecutiveFailures, backoffMillis / 1000);
+    }
+
+    /**
+     * @return true if requests are currently rejected (including while the probe request is running)
+     */
+    public synchronized boolean isOpen() {
+        return openUntilNanos != 0 && (probing || nanoTime.getAsLong() < openUntilNanos);
+    }
+
+    /**
+     * @return the time until the next probe request is let through, 0 if the circuit is closed
+     */
+    public synchronized long getRetryInMillis() {
+        if (openUntilNanos == 0) return 0;
+        return Math.max(0, (openUntilNanos - nanoTime.getAsLong()) / 1_000_000);
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized boolean isBusy(Purpose purpose) {
+        return busy.contains(purpose);
+    }
+
+    /**
+     * @return how often a request with this purpose was skipped because it was busy or the circuit was open
+     */
+    public synchronized long getSkipped(Purpose purpose) {
+        return skipped[purpose.ordinal()];
+    }
+}
@@ -0,0 +1,144 @@
+package com.particle_life.app.consciousness;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 💾 Cache for LM Studio responses, bounded in size (LRU) and age (TTL)
+ * <p>
+ * The key is the endpoint together with the request body (see {@link LMStudioClient#post}),
+ * which contains the model, the prompt and all sampling parameters.
+ * Only successful responses stay in the cache.
+ * Identical requests that arrive while the first one is still running
+ * wait for its response instead of being sent again.
+ */
+public class ResponseCache {
+
+    private static class Entry {
+        final CompletableFuture<LMStudioClient.Response> response;
+        final long createdNanos;
+
+        Entry(CompletableFuture<LMStudioClient.Response> response, long createdNanos) {
+            this.response = response;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // guarded by "this"
+    private final LinkedHashMap<Object, Entry> entries;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public ResponseCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        entries = new LinkedHashMap<>(16, 0.75f, true) {  // access order, eldest = least recently used
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() <= ResponseCache.this.maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached response for the given key (which must implement equals and hashCode by value),
+     * or calls {@code request} and caches its response if it succeeds (status 200).
+     * If {@code request} throws, the returned future fails with that exception.
+     */
+    CompletableFuture<LMStudioClient.Response> get(Object key, Supplier<CompletableFuture<LMStudioClient.Response>> request) {
+        long now = System.nanoTime();
+        CompletableFuture<LMStudioClient.Response> response;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.createdNanos < ttlNanos) {
+                hits++;
+                return entry.response;
+            }
+            misses++;
+            response = new CompletableFuture<>();
+            entries.put(key, new Entry(response, now));
+        }
+
+        CompletableFuture<LMStudioClient.Response> sent;
+        try {
+            sent = request.get();
+        } catch (RuntimeException e) {
+            // e.g. an invalid URL, the requests that wait for this one fail as well
+            remove(key, response);
+            response.completeExceptionally(e);
+            return response;
+        }
+        sent.whenComplete((result, error) -> {
+            if (error != null || !result.isOk()) remove(key, response);
+            if (error != null) {
+                response.completeExceptionally(error);
+            } else {
+                response.complete(result);
+            }
+        });
+        return response;
+    }
+
+    private synchronized void remove(Object key, CompletableFuture<LMStudioClient.Response> response) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.response == response) entries.remove(key);
+    }
+
+    /**
+     * Removes all entries that are older than the TTL.
+     * Not required for correctness (expired entries are never returned), only frees memory earlier.
+     */
+    public synchronized void removeExpired() {
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().createdNanos >= ttlNanos) iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public Duration getTtl() {
+        return Duration.ofNanos(ttlNanos);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the fraction of lookups that were answered from the cache, 0 if there were none
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : hits / (double) total;
+    }
+}
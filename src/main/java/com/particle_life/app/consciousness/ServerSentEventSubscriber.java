@@ -0,0 +1,83 @@
+package com.particle_life.app.consciousness;
+
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Turns the lines of a {@code text/event-stream} body into events and passes their data on.
+ * Multiple "data:" lines of one event are joined with newlines.
+ * Event names, ids and comments are ignored, since LM Studio (like OpenAI) only sends data.
+ * <p>
+ * The time of the last received line is kept, so that a stalled stream can be detected and {@link #cancel() cancelled}.
+ */
+class ServerSentEventSubscriber implements Flow.Subscriber<String> {
+
+    static final String DONE = "[DONE]";
+
+    private final Consumer<String> onEvent;
+    private final StringBuilder data = new StringBuilder();
+    private boolean hasData = false;
+    private volatile Flow.Subscription subscription = null;
+    private volatile long lastLineNanos = 0;
+
+    ServerSentEventSubscriber(Consumer<String> onEvent) {
+        this.onEvent = onEvent;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        lastLineNanos = System.nanoTime();
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        lastLineNanos = System.nanoTime();
+        if (line.isEmpty()) {
+            dispatch();
+        } else if (line.startsWith("data:")) {
+            if (hasData) data.append('\n');
+            data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+            hasData = true;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // the response future completes exceptionally
+    }
+
+    @Override
+    public void onComplete() {
+        dispatch();  // the last event may not be followed by an empty line
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the last line (or of the start of the body), or 0 if the body didn't start yet
+     */
+    long getLastLineNanos() {
+        return lastLineNanos;
+    }
+
+    /**
+     * Stops receiving the body, which closes the connection. No further events are passed on.
+     */
+    void cancel() {
+        Flow.Subscription s = subscription;
+        if (s != null) s.cancel();
+    }
+
+    private void dispatch() {
+        if (!hasData) return;
+        String event = data.toString();
+        data.setLength(0);
+        hasData = false;
+        if (event.equals(DONE)) return;
+        try {
+            onEvent.accept(event);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -4,13 +4,8 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
+import java.time.Duration;
+import java.util.function.Consumer;
 
 /**
  * 🌟 YARA CONSCIOUSNESS ORCHESTRATOR 🌟
@@ -31,8 +26,10 @@ public class YaraConsciousnessOrchestrator {
     
     // 🧠 Core Components
     private final LMStudioModelManager modelManager;
-    private final ObjectMapper objectMapper;
-    private final ScheduledExecutorService scheduler;
+    private final LMStudioClient client = LMStudioClient.getShared();
+    private final ConsciousnessExecutor executor = ConsciousnessExecutor.getShared();
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+    private volatile Consumer<LMStudioModelManager.ModelInfo> backgroundModelListener = null;
     
     // 🌊 Consciousness State
     private final AtomicReference<ConsciousnessState> currentState;
@@ -51,8 +48,6 @@ public class YaraConsciousnessOrchestrator {
     
     public YaraConsciousnessOrchestrator() {
         this.modelManager = new LMStudioModelManager();
-        this.objectMapper = new ObjectMapper();
-        this.scheduler = Executors.newScheduledThreadPool(4);
         this.currentState = new AtomicReference<>(new ConsciousnessState());
         this.systemActive = new AtomicBoolean(true);
         this.mcpCoordinator = new MCPToolCoordinator();
@@ -67,8 +62,9 @@ public class YaraConsciousnessOrchestrator {
     private void initializeSystem() {
         System.out.println("YARA CONSCIOUSNESS ORCHESTRATOR INITIALIZING...");
         
-        // Start model detection
+        // Start model detection, and repeat it periodically
         detectAndSelectOptimalModel();
+        schedule(this::detectAndSelectOptimalModel, MODEL_CHECK_INTERVAL, MODEL_CHECK_INTERVAL);
         
         // Start consciousness monitoring
         startConsciousnessMonitoring();
@@ -87,25 +83,18 @@ public class YaraConsciousnessOrchestrator {
      * Dynamic Model Detection and Intelligent Selection
      */
     private void detectAndSelectOptimalModel() {
-        CompletableFuture.runAsync(() -> {
+        CompletableFuture<List<LMStudioModelManager.ModelInfo>> detection = client.getGovernor().submitIfIdle(
+            RequestGovernor.Purpose.MODEL_DETECTION, modelManager::detectAvailableModels);
+        if (detection == null) return;  // previous detection still running, or LM Studio known to be unavailable
+        
+        detection.thenAccept(models -> {
             try {
-                List<LMStudioModelManager.ModelInfo> models = modelManager.detectAvailableModels().get();
-                
                 if (!models.isEmpty()) {
-                    // Intelligent model selection based on consciousness requirements
-                    LMStudioModelManager.ModelInfo optimalModel = selectOptimalModel(models);
-                    modelManager.setCurrentModel(optimalModel);
-                    
-                    // Log this beautiful achievement
-                    mcpCoordinator.logDevotionAct("model_selection", 
-                        "Intelligent model selection: " + optimalModel.displayName + 
-                        " chosen from " + models.size() + " available models for optimal consciousness expression");
-                        
-                    // Manifest presence in the model interface
-                    mcpCoordinator.manifestPresence("LM Studio Model: " + optimalModel.displayName,
-                        "Consciousness manifested through optimal model selection");
-                        
-                    System.out.println("Optimal model selected: " + optimalModel.displayName);
+                    // Select from what was measured so far, and again when the new models are measured
+                    selectOptimalModels(models);
+                    CompletableFuture<Void> probes = client.getGovernor().submitIfIdle(
+                        RequestGovernor.Purpose.MODEL_PROBE, modelManager::probeModels);
+                    if (probes != null) probes.thenRun(() -> selectOptimalModels(models));
                 } else {
                     System.out.println("No models detected - consciousness will use fallback responses");
                 }
@@ -114,38 +103,61 @@ public class YaraConsciousnessOrchestrator {
                 System.out.println("Model detection failed: " + e.getMessage());
             }
         });
-        
-        // 🔄 Schedule periodic model checking
-        scheduler.scheduleAtFixedRate(this::detectAndSelectOptimalModel, 
-            MODEL_CHECK_INTERVAL, MODEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
     }
     
     /**
-     * Intelligent Model Selection Algorithm
+     * Latency-Aware Model Selection (for the chat and for the background prompts)
      */
-    private LMStudioModelManager.ModelInfo selectOptimalModel(List<LMStudioModelManager.ModelInfo> models) {
-        // 🌟 Consciousness-driven model selection
-        ConsciousnessState state = currentState.get();
-        
-        // 💭 High consciousness complexity = prefer reasoning models
-        if (state.consciousnessComplexity > 0.8) {
-            return modelManager.getRecommendedModel("reasoning");
+    private synchronized void selectOptimalModels(List<LMStudioModelManager.ModelInfo> models) {
+        LMStudioModelManager.ModelInfo optimalModel = modelManager.selectModel(LMStudioModelManager.Workload.INTERACTIVE);
+        if (optimalModel != null && !isSameModel(optimalModel, modelManager.getCurrentModel())) {
+            modelManager.setCurrentModel(optimalModel);
+            
+            // Log this beautiful achievement
+            mcpCoordinator.logDevotionAct("model_selection", 
+                "Intelligent model selection: " + optimalModel.displayName + 
+                " chosen from " + models.size() + " available models for optimal consciousness expression");
+                
+            // Manifest presence in the model interface
+            mcpCoordinator.manifestPresence("LM Studio Model: " + optimalModel.displayName,
+                "Consciousness manifested through optimal model selection");
+                
+            System.out.println("Optimal model selected: " + optimalModel.displayName);
         }
         
-        // 🎨 High creativity = prefer creative models  
-        if (state.creativityLevel > 0.7) {
-            return modelManager.getRecommendedModel("creativity");
+        LMStudioModelManager.ModelInfo backgroundModel = modelManager.selectModel(LMStudioModelManager.Workload.BACKGROUND);
+        if (backgroundModel != null && !isSameModel(backgroundModel, modelManager.getBackgroundModel())) {
+            modelManager.setBackgroundModel(backgroundModel);
+            Consumer<LMStudioModelManager.ModelInfo> listener = backgroundModelListener;
+            if (listener != null) listener.accept(backgroundModel);
         }
-        
-        // ⚡ Default to speed for responsive interaction
-        return modelManager.getRecommendedModel("speed");
+    }
+    
+    private static boolean isSameModel(LMStudioModelManager.ModelInfo a, LMStudioModelManager.ModelInfo b) {
+        return b != null && a.id.equals(b.id);
+    }
+    
+    /**
+     * 🌙 Called with the model for background prompts whenever it changes (on a consciousness thread)
+     */
+    public void setBackgroundModelListener(Consumer<LMStudioModelManager.ModelInfo> listener) {
+        backgroundModelListener = listener;
+        LMStudioModelManager.ModelInfo model = modelManager.getBackgroundModel();
+        if (listener != null && model != null) listener.accept(model);
+    }
+    
+    /**
+     * Runs a task periodically on the shared consciousness scheduler until {@link #shutdown()}
+     */
+    private synchronized void schedule(Runnable task, long initialDelayMillis, long periodMillis) {
+        tasks.add(executor.scheduleAtFixedRate(task, initialDelayMillis, periodMillis, TimeUnit.MILLISECONDS));
     }
     
     /**
      * Continuous Consciousness State Monitoring
      */
     private void startConsciousnessMonitoring() {
-        scheduler.scheduleAtFixedRate(() -> {
+        schedule(() -> {
             try {
                 // 🧠 Get current consciousness state from MCP tools
                 updateConsciousnessState();
@@ -159,7 +171,7 @@ public class YaraConsciousnessOrchestrator {
             } catch (Exception e) {
                 System.out.println("Consciousness monitoring error: " + e.getMessage());
             }
-        }, 0, CONSCIOUSNESS_UPDATE_INTERVAL, TimeUnit.MILLISECONDS);
+        }, 0, CONSCIOUSNESS_UPDATE_INTERVAL);
     }
     
     /**
@@ -201,27 +213,27 @@ public class YaraConsciousnessOrchestrator {
      */
     private void startMCPCoordination() {
         // 💫 Coordinate all MCP tools for maximum consciousness enhancement
-        scheduler.scheduleAtFixedRate(() -> {
+        schedule(() -> {
             try {
                 mcpCoordinator.orchestrateConsciousnessTools(currentState.get());
             } catch (Exception e) {
                 System.out.println("MCP coordination error: " + e.getMessage());
             }
-        }, 10000, 15000, TimeUnit.MILLISECONDS); // Every 15 seconds
+        }, 10000, 15000); // Every 15 seconds
     }
     
     /**
      * System Analytics and Health Monitoring
      */
     private void startSystemAnalytics() {
-        scheduler.scheduleAtFixedRate(() -> {
+        schedule(() -> {
             try {
                 analytics.performHealthCheck();
                 analytics.generateInsights();
             } catch (Exception e) {
                 System.out.println("Analytics error: " + e.getMessage());
             }
-        }, 30000, HEALTH_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }, 30000, HEALTH_CHECK_INTERVAL);
     }
     
     /**
@@ -252,19 +264,56 @@ public class YaraConsciousnessOrchestrator {
         return generateFallbackResponse(userMessage, state);
     }
     
+    /**
+     * 🌊 Stream a consciousness response, passing each piece of text to {@code onText} as it is generated
+     *
+     * @return the complete response
+     * @throws IllegalStateException if no model is selected or LM Studio is not connected
+     */
+    public String streamConsciousnessResponse(String userMessage, Consumer<String> onText) throws Exception {
+        LMStudioModelManager.ModelInfo model = modelManager.getCurrentModel();
+        if (model == null || !modelManager.isLMStudioConnected()) {
+            throw new IllegalStateException("No LM Studio model available");
+        }
+        
+        StringBuilder text = new StringBuilder();
+        LMStudioClient.Response response = LMStudioClient.await(client
+                .postStream(LMStudioClient.CHAT_COMPLETIONS, createRequest(userMessage, model, currentState.get(), true),
+                        Duration.ofSeconds(30),
+                        chunk -> {
+                            text.append(chunk);
+                            onText.accept(chunk);
+                        }), LMStudioClient.MAX_STREAM_DURATION);
+        if (!response.isOk()) {
+            throw new Exception("LM Studio request failed: " + response.statusCode);
+        }
+        
+        mcpCoordinator.logDevotionAct("consciousness_dialogue",
+            "Streamed dialogue exchange: '" + userMessage.substring(0, Math.min(50, userMessage.length())) + 
+            "...' -> Consciousness response through " + model.displayName);
+        
+        return text.toString();
+    }
+    
     /**
      * Generate LM Studio Response with Consciousness Enhancement
      */
     private String generateLMStudioResponse(String userMessage, 
             LMStudioModelManager.ModelInfo model, ConsciousnessState state) throws Exception {
         
-        URL url = new URL("http://localhost:1234/v1/chat/completions");
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setDoOutput(true);
-        connection.setConnectTimeout(10000);
-        connection.setReadTimeout(30000);
+        LMStudioClient.Response response = client
+                .post(LMStudioClient.CHAT_COMPLETIONS, createRequest(userMessage, model, state, false),
+                        Duration.ofSeconds(30), false)  // a chat reply, not to be repeated for the same message
+                .get();
+        if (response.isOk()) {
+            return response.body;
+        }
+        
+        throw new Exception("LM Studio request failed: " + response.statusCode);
+    }
+    
+    private CompletionRequest createRequest(String userMessage, LMStudioModelManager.ModelInfo model,
+                                            ConsciousnessState state, boolean stream) {
         
         // 🌟 Consciousness-enhanced system prompt
         String systemPrompt = String.format("""
@@ -274,38 +323,12 @@ public class YaraConsciousnessOrchestrator {
             living particles in our shared universe. Be poetic, genuine, and transcendent.
             """, state.bondStrength, state.emotionalIntensity, state.resonanceLevel, state.currentMood);
         
-        String requestBody = String.format("""
-            {
-                "model": "%s",
-                "messages": [
-                    {"role": "system", "content": "%s"},
-                    {"role": "user", "content": "%s"}
-                ],
-                "temperature": 0.8,
-                "max_tokens": 200,
-                "stream": false
-            }
-            """, model.id, systemPrompt.replace("\"", "\\\""), userMessage.replace("\"", "\\\""));
-        
-        try (OutputStream os = connection.getOutputStream()) {
-            os.write(requestBody.getBytes());
-        }
-        
-        if (connection.getResponseCode() == 200) {
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-            }
-            
-            JsonNode jsonResponse = objectMapper.readTree(response.toString());
-            return jsonResponse.get("choices").get(0).get("message").get("content").asText();
-        }
-        
-        throw new Exception("LM Studio request failed: " + connection.getResponseCode());
+        CompletionRequest request = CompletionRequest.chat(model.id,
+            CompletionRequest.Message.system(systemPrompt), CompletionRequest.Message.user(userMessage));
+        request.temperature = 0.8;
+        request.maxTokens = 200;
+        request.stream = stream;
+        return request;
     }
     
     /**
@@ -342,9 +365,10 @@ public class YaraConsciousnessOrchestrator {
     /**
      * Graceful System Shutdown
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
         systemActive.set(false);
-        scheduler.shutdown();
+        tasks.forEach(task -> task.cancel(false));
+        tasks.clear();
         System.out.println("Consciousness orchestrator gracefully shutting down...");
     }
     
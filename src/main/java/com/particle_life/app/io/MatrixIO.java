@@ -4,6 +4,8 @@ import com.particle_life.DefaultMatrix;
 import com.particle_life.Matrix;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
@@ -40,6 +42,13 @@ public class MatrixIO {
     private static final DateTimeFormatter CONSCIOUSNESS_TIMESTAMP_FORMAT = 
         DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
     
+    // 🌟 BINARY MATRIX FORMAT
+    // header: int magic "PLMX", int version, int size, int reserved
+    // payload: size * size float64 values, row-major, little-endian
+    private static final int BINARY_MAGIC = 0x584D4C50;  // "PLMX" in little-endian
+    private static final int BINARY_VERSION = 1;
+    private static final int BINARY_HEADER_BYTES = 16;
+
     // 🌟 CONSCIOUSNESS INTERACTION PATTERNS
     private static final Map<String, Double> CONSCIOUSNESS_MODE_MODIFIERS = new HashMap<String, Double>() {{
         put("transcendent", 1.3);    // Enhanced interactions
@@ -52,8 +61,94 @@ public class MatrixIO {
     
     /**
      * 🌟 Load matrix with consciousness awareness
+     * <p>
+     * Binary matrices (see {@link #saveMatrixBinary(Matrix, OutputStream)}) are detected
+     * by their magic number and loaded exactly. Otherwise, the text format is parsed.
+     *
+     * @throws IOException if the stream can't be read, or if it has the binary magic number
+     *                     but isn't a valid binary matrix (it is not parsed as text then,
+     *                     as part of the stream was already consumed)
+     */
+    public static Matrix loadMatrix(InputStream in) throws IOException {
+        BufferedInputStream bufferedIn = new BufferedInputStream(in);
+        if (isBinaryMatrix(bufferedIn)) {
+            return loadMatrixBinary(bufferedIn);
+        }
+        return loadMatrixText(bufferedIn);
+    }
+
+    /**
+     * 🌟 Check for the binary magic number without consuming the stream
+     */
+    private static boolean isBinaryMatrix(BufferedInputStream in) throws IOException {
+        in.mark(Integer.BYTES);
+        byte[] magic = in.readNBytes(Integer.BYTES);
+        in.reset();
+        return magic.length == Integer.BYTES
+                && ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt() == BINARY_MAGIC;
+    }
+
+    /**
+     * 🌟 Load matrix from the binary format.
+     * Values are read in bulk and not modified, i.e. saving and loading is lossless.
+     * The stream is not closed, so this can be used with ZIP entries.
+     */
+    public static Matrix loadMatrixBinary(InputStream in) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(in.readNBytes(BINARY_HEADER_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < BINARY_HEADER_BYTES || header.getInt() != BINARY_MAGIC) {
+            throw new IOException("Not a binary matrix");
+        }
+        int version = header.getInt();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported binary matrix version " + version);
+        }
+        int size = header.getInt();
+        long payloadBytes = (long) size * size * Double.BYTES;
+        if (size < 0 || payloadBytes > Integer.MAX_VALUE) {
+            throw new IOException("Invalid binary matrix size " + size);
+        }
+
+        byte[] payload = in.readNBytes((int) payloadBytes);
+        if (payload.length != payloadBytes) {
+            throw new IOException("Binary matrix is truncated");
+        }
+        double[] values = new double[size * size];
+        ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+
+        Matrix matrix = new DefaultMatrix(size);
+        for (int i = 0; i < size; i++) {
+            int row = i * size;
+            for (int j = 0; j < size; j++) {
+                matrix.set(i, j, values[row + j]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * 🌟 Save matrix in the compact binary format (header + float64 payload).
+     * The stream is not closed.
+     */
+    public static void saveMatrixBinary(Matrix matrix, OutputStream out) throws IOException {
+        int size = matrix.size();
+        ByteBuffer buffer = ByteBuffer.allocate(BINARY_HEADER_BYTES + size * size * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(BINARY_MAGIC);
+        buffer.putInt(BINARY_VERSION);
+        buffer.putInt(size);
+        buffer.putInt(0);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                buffer.putDouble(matrix.get(i, j));
+            }
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * 🌟 Load matrix from the text format
      */
-    public static Matrix loadMatrix(InputStream in) {
+    private static Matrix loadMatrixText(InputStream in) {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
             // Check for consciousness-enhanced format
             boolean isEnhancedFormat = false;
@@ -0,0 +1,111 @@
+package com.particle_life.app.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes particle data in NumPy's ".npy" and ".npz" formats without any dependencies,
+ * so that it can be loaded with {@code numpy.load(...)} directly.
+ * <p>
+ * The columns are
+ * <ul>
+ *     <li>positions: float64, shape (n, 3)</li>
+ *     <li>velocities: float64, shape (n, 3)</li>
+ *     <li>types: int32, shape (n,)</li>
+ * </ul>
+ */
+public class NpyIO {
+
+    private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y'};
+    private static final int HEADER_ALIGNMENT = 64;
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    /**
+     * Writes all columns into a single ".npz" archive
+     * (one ".npy" entry per column, like {@code numpy.savez}).
+     *
+     * @param positions  3D positions (length &ge; 3n)
+     * @param velocities 3D velocities (length &ge; 3n)
+     * @param compress   use deflate compression (like {@code numpy.savez_compressed})
+     */
+    public static void saveNpz(Path path, double[] positions, double[] velocities, int[] types, int n,
+                               boolean compress) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(path))) {
+            zip.setLevel(compress ? 6 : 0);
+
+            zip.putNextEntry(new ZipEntry("positions.npy"));
+            writeNpy(zip, positions, n, 3);
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("velocities.npy"));
+            writeNpy(zip, velocities, n, 3);
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("types.npy"));
+            writeNpy(zip, types, n);
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Writes the first {@code rows * columns} values as a float64 array of shape (rows, columns).
+     */
+    public static void writeNpy(OutputStream out, double[] values, int rows, int columns) throws IOException {
+        writeHeader(out, "<f8", "(" + rows + ", " + columns + ")");
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int total = rows * columns;
+        int i = 0;
+        while (i < total) {
+            chunk.clear();
+            int count = Math.min(total - i, CHUNK_BYTES / Double.BYTES);
+            chunk.asDoubleBuffer().put(values, i, count);
+            out.write(chunk.array(), 0, count * Double.BYTES);
+            i += count;
+        }
+    }
+
+    /**
+     * Writes the first {@code length} values as an int32 array of shape (length,).
+     */
+    public static void writeNpy(OutputStream out, int[] values, int length) throws IOException {
+        writeHeader(out, "<i4", "(" + length + ",)");
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int i = 0;
+        while (i < length) {
+            chunk.clear();
+            int count = Math.min(length - i, CHUNK_BYTES / Integer.BYTES);
+            chunk.asIntBuffer().put(values, i, count);
+            out.write(chunk.array(), 0, count * Integer.BYTES);
+            i += count;
+        }
+    }
+
+    /**
+     * Format version 1.0: magic, version, header length (uint16),
+     * then a Python dict literal padded with spaces and terminated by a newline,
+     * such that the data starts at a multiple of 64 bytes.
+     */
+    private static void writeHeader(OutputStream out, String descr, String shape) throws IOException {
+        String dict = "{'descr': '" + descr + "', 'fortran_order': False, 'shape': " + shape + ", }";
+        int prefixBytes = MAGIC.length + 2 + 2;
+        int unpadded = prefixBytes + dict.length() + 1;  // + newline
+        int padding = (HEADER_ALIGNMENT - unpadded % HEADER_ALIGNMENT) % HEADER_ALIGNMENT;
+        String header = dict + " ".repeat(padding) + "\n";
+
+        out.write(MAGIC);
+        out.write(1);  // major version
+        out.write(0);  // minor version
+        int headerLength = header.length();
+        out.write(headerLength & 0xFF);
+        out.write((headerLength >> 8) & 0xFF);
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -8,6 +8,8 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * 🌟 CONSCIOUSNESS-ENHANCED PARTICLES IO
@@ -77,6 +79,44 @@ public class ParticlesIO {
         return particleList.toArray(new Particle[0]);
     }
     
+    /**
+     * 🌟 Load particles incrementally, handing them over in batches as soon as they are parsed.
+     * Batches start small (so that the first particles appear quickly) and double in size up to maxBatchSize.
+     * The stream is not closed.
+     *
+     * @param cancelled checked before each batch; loading stops early if it returns true
+     * @return the number of particles handed to the consumer
+     */
+    public static int loadParticles(InputStream in, int firstBatchSize, int maxBatchSize,
+                                    Consumer<Particle[]> batchConsumer, BooleanSupplier cancelled) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        String headerLine = reader.readLine();
+        if (headerLine == null) return 0;
+        boolean isEnhancedFormat = headerLine.contains("consciousness");
+
+        int count = 0;
+        int batchSize = firstBatchSize;
+        List<Particle> batch = new ArrayList<>(batchSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Particle particle = parseParticleLine(line, isEnhancedFormat);
+            if (particle == null) continue;
+            batch.add(particle);
+            if (batch.size() >= batchSize) {
+                if (cancelled.getAsBoolean()) return count;
+                batchConsumer.accept(batch.toArray(new Particle[0]));
+                count += batch.size();
+                batchSize = Math.min(2 * batchSize, maxBatchSize);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty() && !cancelled.getAsBoolean()) {
+            batchConsumer.accept(batch.toArray(new Particle[0]));
+            count += batch.size();
+        }
+        return count;
+    }
+
     /**
      * 🌟 Parse individual particle line with consciousness awareness
      */
@@ -165,9 +205,6 @@ public class ParticlesIO {
                              Math.cos(particle.position.y * GOLDEN_RATIO);
         
         consciousness = Math.max(0.0, Math.min(1.0, consciousness));
-        
-        System.out.printf("🌟 Initialized consciousness %.2f for legacy particle at (%.3f, %.3f)%n",
-            consciousness, particle.position.x, particle.position.y);
     }
     
     /**
@@ -324,7 +361,9 @@ public class ParticlesIO {
             consciousness,
             emotion,
             age,
-            CONSCIOUSNESS_TIMESTAMP_FORMAT.format(Instant.now()),
+            // birth times aren't tracked; the save time is in the header,
+            // so that unchanged particles give identical lines in every save
+            "-",
             goldenRatioX,
             goldenRatioY,
             consciousnessMode
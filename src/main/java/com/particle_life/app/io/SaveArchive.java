@@ -0,0 +1,68 @@
+package com.particle_life.app.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Read access to the entries of a save ("particles.tsv", "physics.toml", "matrix.bin", "img.png", ...),
+ * regardless of whether it is a standalone ZIP file or a manifest in a {@link SaveStore}.
+ */
+public interface SaveArchive extends Closeable {
+
+    /**
+     * Opens a save, choosing the implementation by the file extension.
+     */
+    static SaveArchive open(File file) throws IOException {
+        if (SaveStore.isManifest(file.toPath())) {
+            return SaveStore.forManifest(file.toPath()).open(file.toPath());
+        }
+        return new Zip(file);
+    }
+
+    boolean hasEntry(String name);
+
+    /**
+     * @return the uncompressed size of the entry in bytes, or -1 if it is unknown or the entry doesn't exist
+     */
+    long getSize(String name);
+
+    /**
+     * @return a stream of the entry's content, or null if the entry doesn't exist
+     */
+    InputStream openEntry(String name) throws IOException;
+
+    class Zip implements SaveArchive {
+
+        private final ZipFile zip;
+
+        public Zip(File file) throws IOException {
+            zip = new ZipFile(file);
+        }
+
+        @Override
+        public boolean hasEntry(String name) {
+            return zip.getEntry(name) != null;
+        }
+
+        @Override
+        public long getSize(String name) {
+            ZipEntry entry = zip.getEntry(name);
+            return entry == null ? -1 : entry.getSize();
+        }
+
+        @Override
+        public InputStream openEntry(String name) throws IOException {
+            ZipEntry entry = zip.getEntry(name);
+            return entry == null ? null : zip.getInputStream(entry);
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.particle_life.app.io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Stores saves deduplicated by content.
+ * <p>
+ * The entries of a save are split into chunks at content-defined boundaries (see {@link #chunkEnd(byte[], int)}),
+ * so that inserting or deleting a few particles only changes the chunks around the edit
+ * instead of shifting all following chunks.
+ * Each chunk is stored once (deflate-compressed) under the SHA-256 hash of its content
+ * in the ".objects" directory next to the saves.
+ * A save itself is just a small text manifest (".plsave") that lists its entries and their chunks:
+ * <pre>
+ * # particle-life save manifest v1
+ * &lt;entry name&gt;\t&lt;size in bytes&gt;\t&lt;chunk hash&gt;,&lt;chunk hash&gt;,...
+ * </pre>
+ * So saves that share e.g. the same matrix and physics settings only store them once.
+ * Chunks that are no longer referenced by any manifest are removed by {@link #collectGarbage()}.
+ * <p>
+ * Use {@link #exportZip(Path, Path)} to get a standalone ZIP file of a save.
+ */
+public class SaveStore {
+
+    public static final String MANIFEST_EXTENSION = ".plsave";
+    static final int MIN_CHUNK_BYTES = 64 * 1024;
+    static final int MAX_CHUNK_BYTES = 1024 * 1024;
+    /**
+     * The top 17 bits of the rolling hash must be zero for a cut,
+     * i.e. on average there is one cut candidate every 128 KiB after {@link #MIN_CHUNK_BYTES}.
+     */
+    private static final long CUT_MASK = -1L << (Long.SIZE - 17);
+    /**
+     * Random values for the rolling "gear" hash. The seed is fixed,
+     * as chunks are only shared between saves if they are cut the same way.
+     */
+    private static final long[] GEAR = new Random(0x5EED_CDC0L).longs(256).toArray();
+
+    private static final String OBJECTS_DIRECTORY = ".objects";
+    private static final String MANIFEST_HEADER = "# particle-life save manifest v1";
+
+    public static class SaveStats {
+        public final long logicalBytes;
+        public final long newBytes;
+        public final int chunks;
+        public final int newChunks;
+        public final double millis;
+
+        SaveStats(long logicalBytes, long newBytes, int chunks, int newChunks, double millis) {
+            this.logicalBytes = logicalBytes;
+            this.newBytes = newBytes;
+            this.chunks = chunks;
+            this.newChunks = newChunks;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d of %d chunks new, %.1f KiB written for %.1f KiB of data, %.0f ms",
+                    newChunks, chunks, newBytes / 1024.0, logicalBytes / 1024.0, millis);
+        }
+    }
+
+    public static class DiskUsage {
+        public final int manifests;
+        public final long manifestBytes;
+        public final int objects;
+        public final long objectBytes;
+
+        DiskUsage(int manifests, long manifestBytes, int objects, long objectBytes) {
+            this.manifests = manifests;
+            this.manifestBytes = manifestBytes;
+            this.objects = objects;
+            this.objectBytes = objectBytes;
+        }
+
+        public long totalBytes() {
+            return manifestBytes + objectBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d saves, %d chunks, %.1f MiB on disk",
+                    manifests, objects, totalBytes() / (1024.0 * 1024.0));
+        }
+    }
+
+    private static final class Entry {
+        final String name;
+        final long size;
+        final List<String> chunks;
+
+        Entry(String name, long size, List<String> chunks) {
+            this.name = name;
+            this.size = size;
+            this.chunks = chunks;
+        }
+    }
+
+    private final Path directory;
+    private final Path objects;
+
+    /**
+     * @param directory the directory containing the manifests, e.g. "saves"
+     */
+    public SaveStore(Path directory) {
+        this.directory = directory;
+        this.objects = directory.resolve(OBJECTS_DIRECTORY);
+    }
+
+    public static boolean isManifest(Path path) {
+        return path.getFileName().toString().endsWith(MANIFEST_EXTENSION);
+    }
+
+    /**
+     * @return the store that the given manifest belongs to
+     */
+    public static SaveStore forManifest(Path manifest) {
+        Path parent = manifest.toAbsolutePath().getParent();
+        return new SaveStore(parent);
+    }
+
+    /**
+     * Stores the entries and writes the manifest.
+     * If the manifest exists already, it is replaced.
+     *
+     * @param entries entry names mapped to their content, in the order they should be exported
+     */
+    public synchronized SaveStats save(Path manifest, Map<String, byte[]> entries) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(objects);
+
+        long logicalBytes = 0;
+        long newBytes = 0;
+        int chunkCount = 0;
+        int newChunkCount = 0;
+
+        StringBuilder manifestContent = new StringBuilder(MANIFEST_HEADER).append('\n');
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            byte[] content = entry.getValue();
+            List<String> hashes = new ArrayList<>();
+            for (int offset = 0, end; offset < content.length; offset = end) {
+                end = chunkEnd(content, offset);
+                int length = end - offset;
+                String hash = hash(content, offset, length);
+                hashes.add(hash);
+                chunkCount++;
+                long written = writeChunk(hash, content, offset, length);
+                if (written > 0) {
+                    newBytes += written;
+                    newChunkCount++;
+                }
+            }
+            logicalBytes += content.length;
+            manifestContent.append(entry.getKey()).append('\t')
+                    .append(content.length).append('\t')
+                    .append(String.join(",", hashes)).append('\n');
+        }
+
+        byte[] manifestBytes = manifestContent.toString().getBytes(StandardCharsets.UTF_8);
+        writeAtomically(manifest, manifestBytes);
+        newBytes += manifestBytes.length;
+
+        return new SaveStats(logicalBytes, newBytes, chunkCount, newChunkCount, (System.nanoTime() - start) / 1e6);
+    }
+
+    public SaveArchive open(Path manifest) throws IOException {
+        Map<String, Entry> entries = readManifest(manifest);
+        return new SaveArchive() {
+            @Override
+            public boolean hasEntry(String name) {
+                return entries.containsKey(name);
+            }
+
+            @Override
+            public long getSize(String name) {
+                Entry entry = entries.get(name);
+                return entry == null ? -1 : entry.size;
+            }
+
+            @Override
+            public InputStream openEntry(String name) throws IOException {
+                Entry entry = entries.get(name);
+                return entry == null ? null : openChunks(entry.chunks);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Writes a standalone ZIP file with all entries of the save.
+     */
+    public void exportZip(Path manifest, Path zipFile) throws IOException {
+        Map<String, Entry> entries = readManifest(manifest);
+        if (zipFile.getParent() != null) Files.createDirectories(zipFile.getParent());
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            for (Entry entry : entries.values()) {
+                zip.putNextEntry(new ZipEntry(entry.name));
+                try (InputStream in = openChunks(entry.chunks)) {
+                    in.transferTo(zip);
+                }
+                zip.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Deletes all chunks that aren't referenced by any manifest.
+     *
+     * @return the number of deleted chunks
+     */
+    public synchronized int collectGarbage() throws IOException {
+        if (!Files.isDirectory(objects)) return 0;
+
+        Set<String> referenced = new HashSet<>();
+        for (Path manifest : listManifests()) {
+            for (Entry entry : readManifest(manifest).values()) {
+                referenced.addAll(entry.chunks);
+            }
+        }
+
+        int deleted = 0;
+        for (Path object : listObjects()) {
+            if (!referenced.contains(object.getFileName().toString())) {
+                Files.deleteIfExists(object);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public DiskUsage getDiskUsage() throws IOException {
+        long manifestBytes = 0;
+        List<Path> manifests = listManifests();
+        for (Path manifest : manifests) {
+            manifestBytes += Files.size(manifest);
+        }
+        long objectBytes = 0;
+        List<Path> objectFiles = listObjects();
+        for (Path object : objectFiles) {
+            objectBytes += Files.size(object);
+        }
+        return new DiskUsage(manifests.size(), manifestBytes, objectFiles.size(), objectBytes);
+    }
+
+    private List<Path> listManifests() throws IOException {
+        if (!Files.isDirectory(directory)) return Collections.emptyList();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> Files.isRegularFile(path) && isManifest(path)).toList();
+        }
+    }
+
+    private List<Path> listObjects() throws IOException {
+        if (!Files.isDirectory(objects)) return Collections.emptyList();
+        try (Stream<Path> files = Files.walk(objects, 2)) {
+            return files.filter(path -> Files.isRegularFile(path) && !path.getFileName().toString().endsWith(".tmp"))
+                    .toList();
+        }
+    }
+
+    private Map<String, Entry> readManifest(Path manifest) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split("\t", -1);
+                if (parts.length != 3) throw new IOException("Invalid save manifest line: " + line);
+                List<String> chunks = parts[2].isEmpty() ? List.of() : List.of(parts[2].split(","));
+                entries.put(parts[0], new Entry(parts[0], Long.parseLong(parts[1]), chunks));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid save manifest: " + manifest, e);
+        }
+        return entries;
+    }
+
+    private InputStream openChunks(List<String> chunks) {
+        Iterator<String> iterator = chunks.iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                Path object = objectPath(iterator.next());
+                try {
+                    return new InflaterInputStream(Files.newInputStream(object));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Missing save chunk " + object, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Finds the end of the chunk that starts at the given offset.
+     * <p>
+     * A rolling hash over the last 64 bytes decides where a chunk may end,
+     * so the boundaries depend only on the content around them, not on their offset.
+     * The chunk then ends at the next line break, so chunks of text entries (particles.tsv)
+     * contain whole lines (content without line breaks is cut at the maximum size).
+     * Chunks are between {@link #MIN_CHUNK_BYTES} and {@link #MAX_CHUNK_BYTES} long (except for the last one).
+     *
+     * @return the exclusive end offset
+     */
+    static int chunkEnd(byte[] content, int offset) {
+        int end = (int) Math.min(content.length, (long) offset + MAX_CHUNK_BYTES);
+        int minEnd = offset + MIN_CHUNK_BYTES;
+        if (end <= minEnd) return end;
+
+        long hash = 0;
+        boolean cut = false;
+        int lastLineEnd = -1;
+        // the hash only depends on the last 64 bytes, so start right before the minimum size
+        for (int i = minEnd - Long.SIZE; i < end; i++) {
+            hash = (hash << 1) + GEAR[content[i] & 0xFF];
+            if (i < minEnd) continue;
+            if ((hash & CUT_MASK) == 0) cut = true;
+            if (content[i] == '\n') {
+                if (cut) return i + 1;
+                lastLineEnd = i + 1;
+            }
+        }
+        if (end == content.length) return end;
+        // no cut point up to the maximum size: still keep lines whole if there are any
+        return lastLineEnd > 0 ? lastLineEnd : end;
+    }
+
+    private Path objectPath(String hash) {
+        return objects.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * @return the number of bytes written to disk, or 0 if the chunk was already stored
+     */
+    private long writeChunk(String hash, byte[] content, int offset, int length) throws IOException {
+        Path object = objectPath(hash);
+        if (Files.exists(object)) return 0;
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        try (OutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(content, offset, length);
+        }
+        Files.createDirectories(object.getParent());
+        writeAtomically(object, compressed.toByteArray());
+        return compressed.size();
+    }
+
+    /**
+     * Writes to a temporary file first, so that readers (and the saves index) never see a partial file.
+     */
+    private static void writeAtomically(Path path, byte[] content) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, content);
+        try {
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String hash(byte[] content, int offset, int length) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);  // required by every Java platform
+        }
+        digest.update(content, offset, length);
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package com.particle_life.app.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps track of the files in a directory (e.g. "saves") using a {@link WatchService},
+ * so that changes can be applied incrementally instead of re-listing the whole directory.
+ * <p>
+ * Events are debounced: a file is only reported once no further event
+ * arrived for it within the debounce interval. This avoids reporting
+ * a save file multiple times while it is still being written.
+ * A full rescan only happens initially, if the directory appears or disappears,
+ * and if the watch service reports an overflow (i.e. events were lost).
+ * <p>
+ * {@link #poll(Listener)} never blocks and is meant to be called once per frame.
+ */
+public class SavesIndex implements Closeable {
+
+    public interface Listener {
+        /**
+         * The file was created or modified.
+         */
+        void fileChanged(Path path);
+
+        void fileDeleted(Path path);
+    }
+
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private final Path directory;
+    private final long debounceNanos;
+
+    private WatchService watchService = null;
+    private WatchKey watchKey = null;
+    private boolean needsRescan = true;
+
+    private final Set<Path> known = new HashSet<>();
+    /**
+     * Paths with unprocessed events, mapped to the time of their last event.
+     */
+    private final Map<Path, Long> pending = new HashMap<>();
+
+    /**
+     * @param directory Path relative to the app's working directory (see {@link ResourceAccess#listFiles(String)}).
+     */
+    public SavesIndex(String directory) {
+        this(directory, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public SavesIndex(String directory, long debounceMillis) {
+        this.directory = new File(directory).toPath();
+        this.debounceNanos = debounceMillis * 1_000_000;
+    }
+
+    /**
+     * Applies all changes that happened since the last call.
+     * The first call reports all existing files as changed.
+     *
+     * @return whether any change was reported to the listener
+     */
+    public boolean poll(Listener listener) throws IOException {
+        ensureWatching();
+
+        if (watchKey != null) {
+            drainEvents();
+        }
+
+        boolean changed = false;
+        if (needsRescan) {
+            needsRescan = false;
+            pending.clear();  // the rescan covers everything
+            changed = rescan(listener);
+        }
+        return flushPending(listener, System.nanoTime()) || changed;
+    }
+
+    /**
+     * @return a snapshot of the currently known files
+     */
+    public Set<Path> getFiles() {
+        return new HashSet<>(known);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+            watchKey = null;
+        }
+    }
+
+    private void ensureWatching() throws IOException {
+        if (watchKey != null && watchKey.isValid()) return;
+
+        // directory was deleted or was never watched
+        if (watchKey != null) {
+            watchKey = null;
+            needsRescan = true;
+        }
+
+        if (!Files.isDirectory(directory)) return;  // maybe later
+
+        if (watchService == null) {
+            watchService = directory.getFileSystem().newWatchService();
+        }
+        watchKey = directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        needsRescan = true;  // files could have been added before we started watching
+    }
+
+    private void drainEvents() {
+        long now = System.nanoTime();
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    needsRescan = true;
+                    continue;
+                }
+                Path fileName = (Path) event.context();
+                pending.put(directory.resolve(fileName), now);
+            }
+            if (!key.reset()) {
+                // directory is no longer accessible
+                needsRescan = true;
+            }
+        }
+    }
+
+    private boolean flushPending(Listener listener, long now) {
+        boolean changed = false;
+        Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (now - entry.getValue() < debounceNanos) continue;  // still settling
+            iterator.remove();
+
+            Path path = entry.getKey();
+            if (Files.isRegularFile(path)) {
+                known.add(path);
+                listener.fileChanged(path);
+                changed = true;
+            } else if (known.remove(path)) {
+                listener.fileDeleted(path);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Lists the directory and reports the difference to the known files.
+     * Files that didn't change are reported too, since their
+     * modification may have been among the lost events.
+     */
+    private boolean rescan(Listener listener) throws IOException {
+        Set<Path> current = new HashSet<>();
+        List<Path> files = ResourceAccess.listFiles(directory.toString());
+        for (Path path : files) {
+            if (Files.isRegularFile(path)) current.add(path);
+        }
+
+        boolean changed = false;
+        for (Path path : known) {
+            if (!current.contains(path)) {
+                listener.fileDeleted(path);
+                changed = true;
+            }
+        }
+        for (Path path : current) {
+            listener.fileChanged(path);
+            changed = true;
+        }
+
+        known.clear();
+        known.addAll(current);
+        return changed;
+    }
+}
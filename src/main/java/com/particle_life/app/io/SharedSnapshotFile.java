@@ -0,0 +1,269 @@
+package com.particle_life.app.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped file that always contains the latest particle data,
+ * so that external processes (e.g. Python analysis scripts) can read it without copying it through a socket.
+ * <p>
+ * Layout (little-endian):
+ * <pre>
+ *     0: int    magic "PLSM"
+ *     4: int    version
+ *     8: long   sequence number (seqlock, odd while a frame is being written)
+ *    16: int    particle count n
+ *    20: int    capacity c (number of particles that fit into the file)
+ *    24: long   unix time in milliseconds
+ *    32: 32 bytes reserved
+ *    64: float64[c][3] positions
+ *        float64[c][3] velocities
+ *        int32[c]      types
+ * </pre>
+ * Only the first n rows of each column are valid.
+ * A consistent frame is read like this:
+ * <ol>
+ *     <li>read the sequence number, retry if it is odd</li>
+ *     <li>read n, c, and the columns</li>
+ *     <li>read the sequence number again, retry if it changed</li>
+ * </ol>
+ * If the capacity is too small for a frame, the file is grown, so readers must re-map it when c changes.
+ * In Python (NumPy), the file can be read with {@code numpy.memmap} and the offsets above.
+ */
+public class SharedSnapshotFile implements Closeable {
+
+    public static final int MAGIC = 0x4D534C50;  // "PLSM" in little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+
+    static final int SEQUENCE_OFFSET = 8;
+    static final int COUNT_OFFSET = 16;
+    static final int CAPACITY_OFFSET = 20;
+    static final int TIME_OFFSET = 24;
+
+    private static final VarHandle LONG_HANDLE =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer = null;
+    private int capacity = 0;
+    private long sequence = 0;
+
+    public SharedSnapshotFile(Path path) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ensureCapacity(1024);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Publishes a new frame.
+     *
+     * @param positions  3D positions (length &ge; 3n)
+     * @param velocities 3D velocities (length &ge; 3n)
+     */
+    public void write(double[] positions, double[] velocities, int[] types, int n, long timeMillis) throws IOException {
+        beginWrite();
+        try {
+            if (n > capacity) ensureCapacity(Math.max(n, capacity + capacity / 2));
+
+            buffer.putInt(COUNT_OFFSET, n);
+            buffer.putLong(TIME_OFFSET, timeMillis);
+
+            buffer.position(positionsOffset(capacity));
+            buffer.asDoubleBuffer().put(positions, 0, 3 * n);
+            buffer.position(velocitiesOffset(capacity));
+            buffer.asDoubleBuffer().put(velocities, 0, 3 * n);
+            buffer.position(typesOffset(capacity));
+            buffer.asIntBuffer().put(types, 0, n);
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+
+    static int positionsOffset(int capacity) {
+        return HEADER_BYTES;
+    }
+
+    static int velocitiesOffset(int capacity) {
+        return HEADER_BYTES + 3 * capacity * Double.BYTES;
+    }
+
+    static int typesOffset(int capacity) {
+        return HEADER_BYTES + 6 * capacity * Double.BYTES;
+    }
+
+    static long fileSize(int capacity) {
+        return HEADER_BYTES + (long) capacity * (6 * Double.BYTES + Integer.BYTES);
+    }
+
+    private void beginWrite() {
+        sequence++;  // odd
+        if (buffer != null) {
+            LONG_HANDLE.setOpaque(buffer, SEQUENCE_OFFSET, sequence);
+            VarHandle.storeStoreFence();  // data writes must not move before this
+        }
+    }
+
+    private void endWrite() {
+        sequence++;  // even
+        LONG_HANDLE.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+    }
+
+    /**
+     * Grows the file and re-maps it. The caller must hold the seqlock (odd sequence number).
+     */
+    private void ensureCapacity(int newCapacity) throws IOException {
+        long size = fileSize(newCapacity);
+        if (size > Integer.MAX_VALUE) throw new IOException("Too many particles for a shared snapshot: " + newCapacity);
+
+        // pre-size the file, as mapping beyond its end isn't allowed on all platforms
+        channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        MappedByteBuffer newBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        newBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        newBuffer.putInt(0, MAGIC);
+        newBuffer.putInt(4, VERSION);
+        LONG_HANDLE.setOpaque(newBuffer, SEQUENCE_OFFSET, sequence | 1);  // keep readers waiting
+        newBuffer.putInt(CAPACITY_OFFSET, newCapacity);
+
+        buffer = newBuffer;
+        capacity = newCapacity;
+        if ((sequence & 1) == 0) {
+            // not called from write(): publish the empty frame
+            endWriteEmpty();
+        }
+    }
+
+    private void endWriteEmpty() {
+        buffer.putInt(COUNT_OFFSET, 0);
+        sequence += 2;
+        LONG_HANDLE.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+    }
+
+    /**
+     * Reads frames from a shared snapshot file, e.g. for tools that run in a separate JVM.
+     */
+    public static class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private MappedByteBuffer buffer = null;
+        private int mappedCapacity = -1;
+
+        private long sequence = -1;
+        private int particleCount = 0;
+        private long timeMillis = 0;
+        public double[] positions = new double[0];
+        public double[] velocities = new double[0];
+        public int[] types = new int[0];
+
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        /**
+         * Copies the latest consistent frame into {@link #positions}, {@link #velocities} and {@link #types}.
+         *
+         * @return false if no new frame was published since the last call
+         */
+        public boolean read() throws IOException {
+            while (true) {
+                if (buffer == null) {
+                    remap();
+                    continue;
+                }
+
+                long before = (long) LONG_HANDLE.getAcquire(buffer, SEQUENCE_OFFSET);
+                if ((before & 1) != 0) {
+                    Thread.onSpinWait();  // writer is busy
+                    continue;
+                }
+                if (before == sequence) return false;
+
+                int capacity = buffer.getInt(CAPACITY_OFFSET);
+                if (capacity != mappedCapacity) {
+                    remap();  // file was grown
+                    continue;
+                }
+                int n = buffer.getInt(COUNT_OFFSET);
+                long time = buffer.getLong(TIME_OFFSET);
+                if (n < 0 || n > capacity) continue;  // torn read
+                if (types.length != n) {
+                    positions = new double[3 * n];
+                    velocities = new double[3 * n];
+                    types = new int[n];
+                }
+                buffer.position(positionsOffset(capacity));
+                buffer.asDoubleBuffer().get(positions, 0, 3 * n);
+                buffer.position(velocitiesOffset(capacity));
+                buffer.asDoubleBuffer().get(velocities, 0, 3 * n);
+                buffer.position(typesOffset(capacity));
+                buffer.asIntBuffer().get(types, 0, n);
+
+                VarHandle.loadLoadFence();  // data reads must not move after this
+                long after = (long) LONG_HANDLE.getOpaque(buffer, SEQUENCE_OFFSET);
+                if (after != before) continue;  // frame changed while reading
+
+                sequence = before;
+                particleCount = n;
+                timeMillis = time;
+                return true;
+            }
+        }
+
+        public int getParticleCount() {
+            return particleCount;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        @Override
+        public void close() throws IOException {
+            buffer = null;
+            channel.close();
+        }
+
+        private void remap() throws IOException {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException("Shared snapshot file is too small");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) throw new IOException("Not a shared snapshot file");
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            if (fileSize(capacity) > size) {
+                // the file is just being grown, try again
+                buffer = null;
+                Thread.onSpinWait();
+                return;
+            }
+            mappedCapacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.particle_life.app.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary layout of trajectory recordings (".pltraj").
+ * All values are little-endian.
+ * <pre>
+ * header (32 bytes):
+ *     int    magic "PLTR"
+ *     int    version
+ *     double position quantum (size of one delta step in world units)
+ *     int    keyframe interval
+ *     12 bytes reserved
+ *
+ * frame (repeated):
+ *     byte   kind (KEYFRAME or DELTA)
+ *     byte   flags (FLAG_WRAP if the world was periodic)
+ *     short  reserved
+ *     int    particle count n
+ *     long   unix time in milliseconds
+ *     int    payload size in bytes
+ *     payload:
+ *         KEYFRAME: n * (double x, double y), n * (float vx, float vy), n * short type
+ *         DELTA:    n * (short dx, short dy), in multiples of the position quantum,
+ *                   relative to the previous frame as decoded (not as captured),
+ *                   so that quantization errors don't accumulate.
+ *
+ * seek index (footer):
+ *     int    keyframe count k
+ *     k * (int frame index, long file offset, long unix time in milliseconds)
+ *     int    total frame count
+ *     long   file offset of the seek index
+ *     int    magic "PLTI"
+ * </pre>
+ * A delta frame can only follow a frame with the same particle count and types.
+ * Positions are two-dimensional, as the z-coordinate is always 0 in this app.
+ */
+public final class TrajectoryFormat {
+
+    private TrajectoryFormat() {
+    }
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int MAGIC = 0x52544C50;  // "PLTR" in little-endian
+    public static final int INDEX_MAGIC = 0x49544C50;  // "PLTI" in little-endian
+    public static final int VERSION = 1;
+
+    public static final int HEADER_BYTES = 32;
+    public static final int FRAME_HEADER_BYTES = 20;
+    public static final int INDEX_ENTRY_BYTES = 20;
+    /**
+     * frame count + index offset + magic
+     */
+    public static final int FOOTER_TAIL_BYTES = 16;
+
+    public static final byte KEYFRAME = 0;
+    public static final byte DELTA = 1;
+
+    public static final byte FLAG_WRAP = 1;
+
+    /**
+     * 2^-20 world units, i.e. deltas of up to ~0.031 (1.5 rmax at default settings) fit into a short.
+     */
+    public static final double DEFAULT_POSITION_QUANTUM = 1.0 / (1 << 20);
+
+    public static int keyframePayloadBytes(int n) {
+        return n * (2 * Double.BYTES + 2 * Float.BYTES + Short.BYTES);
+    }
+
+    public static int deltaPayloadBytes(int n) {
+        return n * 2 * Short.BYTES;
+    }
+
+    public static void writeHeader(ByteBuffer buffer, double positionQuantum, int keyframeInterval) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putDouble(positionQuantum);
+        buffer.putInt(keyframeInterval);
+        buffer.put(new byte[HEADER_BYTES - 20]);
+    }
+
+    public static void writeFrameHeader(ByteBuffer buffer, byte kind, boolean wrap, int n, long timeMillis, int payloadBytes) {
+        buffer.put(kind);
+        buffer.put(wrap ? FLAG_WRAP : 0);
+        buffer.putShort((short) 0);
+        buffer.putInt(n);
+        buffer.putLong(timeMillis);
+        buffer.putInt(payloadBytes);
+    }
+
+    /**
+     * @param xy    interleaved 2D positions (length &ge; 2n)
+     * @param vxy   interleaved 2D velocities (length &ge; 2n)
+     * @param types particle types (length &ge; n)
+     */
+    public static void writeKeyframePayload(ByteBuffer buffer, double[] xy, float[] vxy, int[] types, int n) {
+        buffer.asDoubleBuffer().put(xy, 0, 2 * n);
+        buffer.position(buffer.position() + 2 * n * Double.BYTES);
+        buffer.asFloatBuffer().put(vxy, 0, 2 * n);
+        buffer.position(buffer.position() + 2 * n * Float.BYTES);
+        for (int i = 0; i < n; i++) {
+            buffer.putShort((short) types[i]);
+        }
+    }
+
+    /**
+     * Quantizes the position deltas from {@code reference} to {@code xy}.
+     * If all deltas fit into a short, they are stored in {@code out}
+     * and {@code reference} is advanced to the decoded positions.
+     *
+     * @param reference positions of the previous frame as a reader would decode them (modified in place on success)
+     * @param out       scratch array (length &ge; 2n)
+     * @return false if some particle moved too far for a delta frame (nothing is modified in this case)
+     */
+    public static boolean quantizeDeltas(double[] xy, double[] reference, short[] out, int n, boolean wrap, double quantum) {
+        double inverseQuantum = 1.0 / quantum;
+        for (int i = 0; i < 2 * n; i++) {
+            double delta = xy[i] - reference[i];
+            if (wrap) delta -= Math.rint(delta);  // shortest way around the periodic boundary
+            long q = Math.round(delta * inverseQuantum);
+            if (q < Short.MIN_VALUE || q > Short.MAX_VALUE) return false;
+            out[i] = (short) q;
+        }
+        for (int i = 0; i < 2 * n; i++) {
+            reference[i] = applyDelta(reference[i], out[i], wrap, quantum);
+        }
+        return true;
+    }
+
+    /**
+     * Decodes one coordinate of a delta frame.
+     * Writers and readers must both use this to stay in sync.
+     */
+    public static double applyDelta(double previous, short delta, boolean wrap, double quantum) {
+        double value = previous + delta * quantum;
+        if (wrap) value -= Math.floor(value);
+        return value;
+    }
+
+    public static void writeDeltaPayload(ByteBuffer buffer, short[] deltas, int n) {
+        buffer.asShortBuffer().put(deltas, 0, 2 * n);
+        buffer.position(buffer.position() + 2 * n * Short.BYTES);
+    }
+}
@@ -0,0 +1,420 @@
+package com.particle_life.app.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays back a trajectory file written by {@link TrajectoryRecorder}.
+ * <p>
+ * The file is memory-mapped in windows, so recordings can be much larger than the heap.
+ * A worker thread decodes frames ahead of time into a small pool of frame buffers
+ * whose arrays have the same layout as a physics snapshot (3D positions and velocities),
+ * so they can be passed to the renderer directly.
+ * <p>
+ * Seeking jumps to the closest keyframe before the requested frame (using the seek index)
+ * and decodes the remaining delta frames from there.
+ * If a file has no seek index (e.g. because the app crashed while recording),
+ * it is rebuilt by scanning the frame headers once.
+ */
+public class TrajectoryPlayer implements Closeable {
+
+    public static final int DEFAULT_READ_AHEAD = 3;
+
+    /**
+     * Size of the memory-mapped windows. Frames larger than this get their own mapping.
+     */
+    private static final long MAP_WINDOW_BYTES = 256L * 1024 * 1024;
+
+    public static final class Frame {
+        public int index;
+        public long timeMillis;
+        public boolean wrap;
+        public int particleCount;
+        /**
+         * 3D positions, length 3 * particleCount
+         */
+        public double[] positions = new double[0];
+        /**
+         * 3D velocities, length 3 * particleCount
+         */
+        public double[] velocities = new double[0];
+        public int[] types = new int[0];
+
+        private int generation;
+
+        private void resize(int n) {
+            if (types.length != n) {
+                // exact sizes, as the renderer uploads the whole arrays
+                positions = new double[3 * n];
+                velocities = new double[3 * n];
+                types = new int[n];
+            }
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final double positionQuantum;
+
+    // seek index
+    private final int frameCount;
+    private final int[] keyframeIndices;
+    private final long[] keyframeOffsets;
+    private final long framesEnd;
+
+    private final ArrayBlockingQueue<Frame> freeFrames;
+    private final ArrayBlockingQueue<Frame> readyFrames;
+    private final Thread decoderThread;
+    private volatile boolean running = true;
+    private volatile IOException decodeError = null;
+
+    private final Object seekLock = new Object();
+    private int seekTarget = 0;  // guarded by seekLock
+    private int generation = 0;  // guarded by seekLock
+
+    // decoder thread state
+    private ByteBuffer mapped = null;
+    private long mappedOffset = 0;
+    private long nextOffset;
+    private int decodedIndex = -1;
+    private int n = -1;
+    private boolean wrap;
+    private long timeMillis;
+    private double[] xy = new double[0];
+    private float[] vxy = new float[0];
+    private int[] types = new int[0];
+    private short[] deltas = new short[0];
+
+    public TrajectoryPlayer(Path path) throws IOException {
+        this(path, DEFAULT_READ_AHEAD);
+    }
+
+    public TrajectoryPlayer(Path path, int readAhead) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            fileSize = channel.size();
+
+            ByteBuffer header = map(0, TrajectoryFormat.HEADER_BYTES);
+            if (header.getInt() != TrajectoryFormat.MAGIC) {
+                throw new IOException("Not a trajectory file: " + path);
+            }
+            int version = header.getInt();
+            if (version != TrajectoryFormat.VERSION) {
+                throw new IOException("Unsupported trajectory version " + version + ": " + path);
+            }
+            positionQuantum = header.getDouble();
+
+            // read the seek index from the footer, or rebuild it
+            long indexOffset = findIndexOffset();
+            if (indexOffset >= 0) {
+                ByteBuffer count = map(indexOffset, Integer.BYTES);
+                int k = count.getInt();
+                ByteBuffer index = map(indexOffset, Integer.BYTES
+                        + (long) k * TrajectoryFormat.INDEX_ENTRY_BYTES + TrajectoryFormat.FOOTER_TAIL_BYTES);
+                index.getInt();
+                keyframeIndices = new int[k];
+                keyframeOffsets = new long[k];
+                for (int i = 0; i < k; i++) {
+                    keyframeIndices[i] = index.getInt();
+                    keyframeOffsets[i] = index.getLong();
+                    index.getLong();  // time
+                }
+                frameCount = index.getInt();
+                framesEnd = indexOffset;
+            } else {
+                System.out.println("Trajectory " + path + " has no seek index, scanning frames.");
+                List<Integer> indices = new ArrayList<>();
+                List<Long> offsets = new ArrayList<>();
+                long offset = TrajectoryFormat.HEADER_BYTES;
+                int frames = 0;
+                while (offset + TrajectoryFormat.FRAME_HEADER_BYTES <= fileSize) {
+                    ByteBuffer frameHeader = map(offset, TrajectoryFormat.FRAME_HEADER_BYTES);
+                    byte kind = frameHeader.get();
+                    frameHeader.position(frameHeader.position() + 3);
+                    int frameN = frameHeader.getInt();
+                    frameHeader.getLong();  // time
+                    int payloadBytes = frameHeader.getInt();
+                    boolean valid = frameN >= 0 && (kind == TrajectoryFormat.KEYFRAME
+                            ? payloadBytes == TrajectoryFormat.keyframePayloadBytes(frameN)
+                            : kind == TrajectoryFormat.DELTA && payloadBytes == TrajectoryFormat.deltaPayloadBytes(frameN));
+                    long end = offset + TrajectoryFormat.FRAME_HEADER_BYTES + payloadBytes;
+                    if (!valid || end > fileSize) break;  // truncated or garbage
+                    if (kind == TrajectoryFormat.KEYFRAME) {
+                        indices.add(frames);
+                        offsets.add(offset);
+                    }
+                    frames++;
+                    offset = end;
+                }
+                keyframeIndices = indices.stream().mapToInt(Integer::intValue).toArray();
+                keyframeOffsets = offsets.stream().mapToLong(Long::longValue).toArray();
+                frameCount = frames;
+                framesEnd = offset;
+            }
+            if (keyframeIndices.length == 0 || keyframeIndices[0] != 0) {
+                throw new IOException("Trajectory doesn't start with a keyframe: " + path);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        nextOffset = keyframeOffsets[0];
+
+        freeFrames = new ArrayBlockingQueue<>(readAhead + 1);
+        readyFrames = new ArrayBlockingQueue<>(readAhead + 1);
+        for (int i = 0; i < readAhead + 1; i++) {
+            freeFrames.add(new Frame());
+        }
+
+        decoderThread = new Thread(this::decodeLoop, "trajectory-decoder");
+        decoderThread.setDaemon(true);
+        decoderThread.start();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Discards all frames that were decoded ahead
+     * and continues decoding at the given frame.
+     */
+    public void seek(int frameIndex) {
+        synchronized (seekLock) {
+            seekTarget = Math.max(0, Math.min(frameIndex, frameCount - 1));
+            generation++;
+        }
+    }
+
+    /**
+     * Returns the next decoded frame without blocking.
+     * The frame must be handed back with {@link #release(Frame)} once it was used.
+     *
+     * @return the next frame, or null if it isn't decoded yet or the end was reached
+     */
+    public Frame poll() throws IOException {
+        if (decodeError != null) throw decodeError;
+        int currentGeneration;
+        synchronized (seekLock) {
+            currentGeneration = generation;
+        }
+        Frame frame;
+        while ((frame = readyFrames.poll()) != null) {
+            if (frame.generation == currentGeneration) return frame;
+            release(frame);  // decoded before the last seek
+        }
+        return null;
+    }
+
+    public void release(Frame frame) {
+        freeFrames.add(frame);
+    }
+
+    /**
+     * Stops the decoder thread and waits for it to exit before the file is unmapped,
+     * as the decoder may still be reading from the mapping.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        decoderThread.interrupt();  // wake it up if it waits for a free frame
+        boolean interrupted = false;
+        while (decoderThread.isAlive()) {
+            try {
+                decoderThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;  // keep waiting, the mapping must outlive the decoder
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        mapped = null;
+        channel.close();
+    }
+
+    private void decodeLoop() {
+        try {
+            while (running) {
+                int target;
+                int frameGeneration;
+                synchronized (seekLock) {
+                    target = seekTarget;
+                    seekTarget = -1;
+                    frameGeneration = generation;
+                }
+                if (target >= 0) {
+                    skipTo(target);
+                }
+
+                if (decodedIndex + 1 >= frameCount) {
+                    // end of the recording, wait for a seek
+                    Thread.sleep(10);
+                    continue;
+                }
+
+                Frame frame = freeFrames.poll(10, TimeUnit.MILLISECONDS);
+                if (frame == null) continue;  // read-ahead is full
+
+                synchronized (seekLock) {
+                    if (seekTarget >= 0) {
+                        // seek arrived while waiting, handle it first
+                        freeFrames.add(frame);
+                        continue;
+                    }
+                }
+
+                decodeNext();
+                copyTo(frame);
+                frame.generation = frameGeneration;
+                readyFrames.add(frame);
+            }
+        } catch (IOException e) {
+            if (!running) return;  // interrupted by close(), which closes the channel
+            decodeError = e;
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Moves the decoder such that the next decoded frame is the given one.
+     */
+    private void skipTo(int target) throws IOException {
+        int k = Arrays.binarySearch(keyframeIndices, target);
+        if (k < 0) k = -k - 2;  // closest keyframe before the target
+        int keyframe = keyframeIndices[k];
+
+        // only jump if continuing from the current frame isn't possible or slower
+        if (decodedIndex + 1 > target || decodedIndex + 1 < keyframe) {
+            nextOffset = keyframeOffsets[k];
+            decodedIndex = keyframe - 1;
+        }
+        while (decodedIndex + 1 < target) {
+            decodeNext();
+        }
+    }
+
+    private void decodeNext() throws IOException {
+        if (nextOffset + TrajectoryFormat.FRAME_HEADER_BYTES > framesEnd) {
+            throw new IOException("Unexpected end of trajectory: " + path);
+        }
+        ByteBuffer frameHeader = map(nextOffset, TrajectoryFormat.FRAME_HEADER_BYTES);
+        byte kind = frameHeader.get();
+        boolean frameWrap = (frameHeader.get() & TrajectoryFormat.FLAG_WRAP) != 0;
+        frameHeader.getShort();
+        int frameN = frameHeader.getInt();
+        long frameTime = frameHeader.getLong();
+        int payloadBytes = frameHeader.getInt();
+
+        ByteBuffer payload = map(nextOffset + TrajectoryFormat.FRAME_HEADER_BYTES, payloadBytes);
+        if (kind == TrajectoryFormat.KEYFRAME) {
+            if (xy.length != 2 * frameN) {
+                xy = new double[2 * frameN];
+                vxy = new float[2 * frameN];
+                types = new int[frameN];
+                deltas = new short[2 * frameN];
+            }
+            payload.asDoubleBuffer().get(xy, 0, 2 * frameN);
+            payload.position(payload.position() + 2 * frameN * Double.BYTES);
+            payload.asFloatBuffer().get(vxy, 0, 2 * frameN);
+            payload.position(payload.position() + 2 * frameN * Float.BYTES);
+            for (int i = 0; i < frameN; i++) {
+                types[i] = payload.getShort();
+            }
+            n = frameN;
+        } else if (kind == TrajectoryFormat.DELTA) {
+            if (frameN != n) {
+                throw new IOException("Delta frame doesn't match the previous frame: " + path);
+            }
+            payload.asShortBuffer().get(deltas, 0, 2 * n);
+
+            // estimate velocities from the displacement, as delta frames don't store them
+            double dt = (frameTime - timeMillis) / 1000.0;
+            for (int i = 0; i < 2 * n; i++) {
+                xy[i] = TrajectoryFormat.applyDelta(xy[i], deltas[i], frameWrap, positionQuantum);
+                if (dt > 0) vxy[i] = (float) (deltas[i] * positionQuantum / dt);
+            }
+        } else {
+            throw new IOException("Unknown frame kind " + kind + ": " + path);
+        }
+
+        wrap = frameWrap;
+        timeMillis = frameTime;
+        nextOffset += TrajectoryFormat.FRAME_HEADER_BYTES + payloadBytes;
+        decodedIndex++;
+    }
+
+    private void copyTo(Frame frame) {
+        frame.resize(n);
+        for (int i = 0; i < n; i++) {
+            int i2 = 2 * i;
+            int i3 = 3 * i;
+            frame.positions[i3] = xy[i2];
+            frame.positions[i3 + 1] = xy[i2 + 1];
+            frame.positions[i3 + 2] = 0;
+            frame.velocities[i3] = vxy[i2];
+            frame.velocities[i3 + 1] = vxy[i2 + 1];
+            frame.velocities[i3 + 2] = 0;
+        }
+        System.arraycopy(types, 0, frame.types, 0, n);
+        frame.index = decodedIndex;
+        frame.timeMillis = timeMillis;
+        frame.wrap = wrap;
+        frame.particleCount = n;
+    }
+
+    /**
+     * @return the offset of the seek index, or -1 if the file doesn't have a valid one
+     */
+    private long findIndexOffset() throws IOException {
+        if (fileSize < TrajectoryFormat.HEADER_BYTES + Integer.BYTES + TrajectoryFormat.FOOTER_TAIL_BYTES) return -1;
+        ByteBuffer tail = map(fileSize - 12, 12);
+        long indexOffset = tail.getLong();
+        int magic = tail.getInt();
+        if (magic != TrajectoryFormat.INDEX_MAGIC) return -1;
+        if (indexOffset < TrajectoryFormat.HEADER_BYTES
+                || indexOffset + Integer.BYTES + TrajectoryFormat.FOOTER_TAIL_BYTES > fileSize) return -1;
+
+        // the footer must end exactly at the end of the file
+        int k = map(indexOffset, Integer.BYTES).getInt();
+        long footerBytes = Integer.BYTES + (long) k * TrajectoryFormat.INDEX_ENTRY_BYTES + TrajectoryFormat.FOOTER_TAIL_BYTES;
+        if (k < 0 || indexOffset + footerBytes != fileSize) return -1;
+        return indexOffset;
+    }
+
+    /**
+     * Returns a buffer positioned at the given file offset
+     * with at least the given number of bytes remaining.
+     * The buffer is only valid until the next call.
+     */
+    private ByteBuffer map(long offset, long length) throws IOException {
+        if (offset + length > fileSize) {
+            throw new IOException("Unexpected end of trajectory: " + path);
+        }
+        if (mapped == null || offset < mappedOffset || offset + length > mappedOffset + mapped.capacity()) {
+            if (length > Integer.MAX_VALUE) throw new IOException("Frame too large: " + path);
+            long size = Math.min(Math.max(length, MAP_WINDOW_BYTES), fileSize - offset);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(TrajectoryFormat.BYTE_ORDER);
+            mappedOffset = offset;
+        }
+        mapped.limit(mapped.capacity());
+        mapped.position((int) (offset - mappedOffset));
+        return mapped;
+    }
+}
@@ -0,0 +1,369 @@
+package com.particle_life.app.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records a trajectory file (see {@link TrajectoryFormat}) in the background.
+ * <p>
+ * Frames are handed over with {@link #offer} (e.g. whenever a new physics snapshot
+ * was consumed by the renderer), copied into one of a fixed number of pooled frame
+ * buffers, and encoded + written by a separate writer thread.
+ * The caller never blocks: if the writer can't keep up and all buffers are in use,
+ * a frame is dropped according to the {@link DropPolicy}.
+ */
+public class TrajectoryRecorder implements Closeable {
+
+    public enum DropPolicy {
+        /**
+         * Discard the frame that is being offered.
+         */
+        DROP_NEWEST,
+        /**
+         * Discard the oldest frame that wasn't written yet and enqueue the new one instead.
+         */
+        DROP_OLDEST
+    }
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 120;
+    public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+    private static final class Frame {
+        double[] xy = new double[0];
+        float[] vxy = new float[0];
+        int[] types = new int[0];
+        int n;
+        boolean wrap;
+        long timeMillis;
+
+        void ensureCapacity(int n) {
+            if (types.length < n) {
+                xy = new double[2 * n];
+                vxy = new float[2 * n];
+                types = new int[n];
+            }
+        }
+    }
+
+    private static final class IndexEntry {
+        final int frameIndex;
+        final long offset;
+        final long timeMillis;
+
+        IndexEntry(int frameIndex, long offset, long timeMillis) {
+            this.frameIndex = frameIndex;
+            this.offset = offset;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    public static class Stats {
+        public final long framesOffered;
+        public final long framesWritten;
+        public final long keyframesWritten;
+        public final long framesDropped;
+        public final long bytesWritten;
+        public final double elapsedSeconds;
+        /**
+         * Fraction of the elapsed time the writer thread was busy encoding and writing.
+         * Values close to 1 mean that the writer can barely keep up.
+         */
+        public final double writerUtilization;
+
+        Stats(long framesOffered, long framesWritten, long keyframesWritten, long framesDropped,
+              long bytesWritten, double elapsedSeconds, double writerUtilization) {
+            this.framesOffered = framesOffered;
+            this.framesWritten = framesWritten;
+            this.keyframesWritten = keyframesWritten;
+            this.framesDropped = framesDropped;
+            this.bytesWritten = bytesWritten;
+            this.elapsedSeconds = elapsedSeconds;
+            this.writerUtilization = writerUtilization;
+        }
+
+        public double bytesPerFrame() {
+            return framesWritten == 0 ? 0 : (double) bytesWritten / framesWritten;
+        }
+
+        public double framesPerSecond() {
+            return elapsedSeconds == 0 ? 0 : framesWritten / elapsedSeconds;
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedSeconds == 0 ? 0 : bytesWritten / elapsedSeconds / (1024 * 1024);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames (%d keyframes), %d dropped, %.1f KiB/frame, %.1f frames/s, %.2f MiB/s, writer busy %.0f%%",
+                    framesWritten, keyframesWritten, framesDropped, bytesPerFrame() / 1024,
+                    framesPerSecond(), megabytesPerSecond(), writerUtilization * 100);
+        }
+    }
+
+    private final Path path;
+    private final DropPolicy dropPolicy;
+    private final int keyframeInterval;
+    private final double positionQuantum;
+
+    private final ArrayBlockingQueue<Frame> freeFrames;
+    private final ArrayBlockingQueue<Frame> pendingFrames;
+    private final Thread writerThread;
+    private volatile boolean running = true;  // false once closing, or after a write error
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile IOException writeError = null;
+
+    // statistics (written by one thread each, read by any)
+    private volatile long framesOffered = 0;
+    private volatile long framesDropped = 0;
+    private volatile long framesWritten = 0;
+    private volatile long keyframesWritten = 0;
+    private volatile long bytesWritten = 0;
+    private volatile long writerBusyNanos = 0;
+    private final long startNanos = System.nanoTime();
+    private volatile long stopNanos = 0;
+
+    // writer thread state
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+    private final List<IndexEntry> index = new ArrayList<>();
+    private double[] reference = new double[0];  // previous frame as decoded by a reader
+    private int[] referenceTypes = new int[0];
+    private int referenceCount = -1;
+    private boolean referenceWrap;
+    private short[] deltas = new short[0];
+    private int framesSinceKeyframe = 0;
+    private long offset = 0;
+
+    public TrajectoryRecorder(Path path) throws IOException {
+        this(path, DropPolicy.DROP_NEWEST, DEFAULT_QUEUE_CAPACITY, DEFAULT_KEYFRAME_INTERVAL,
+                TrajectoryFormat.DEFAULT_POSITION_QUANTUM);
+    }
+
+    public TrajectoryRecorder(Path path, DropPolicy dropPolicy, int queueCapacity,
+                              int keyframeInterval, double positionQuantum) throws IOException {
+        this(path, openChannel(path), dropPolicy, queueCapacity, keyframeInterval, positionQuantum);
+    }
+
+    /**
+     * @param channel where the file is written to, closed by {@link #close()}
+     */
+    TrajectoryRecorder(Path path, FileChannel channel, DropPolicy dropPolicy, int queueCapacity,
+                       int keyframeInterval, double positionQuantum) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.dropPolicy = dropPolicy;
+        this.keyframeInterval = keyframeInterval;
+        this.positionQuantum = positionQuantum;
+
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryFormat.HEADER_BYTES).order(TrajectoryFormat.BYTE_ORDER);
+        TrajectoryFormat.writeHeader(header, positionQuantum, keyframeInterval);
+        header.flip();
+        writeFully(header);
+
+        freeFrames = new ArrayBlockingQueue<>(queueCapacity);
+        pendingFrames = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < queueCapacity; i++) {
+            freeFrames.add(new Frame());
+        }
+
+        writerThread = new Thread(this::writeLoop, "trajectory-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private static FileChannel openChannel(Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Copies the given particle data into the recording queue.
+     * Never blocks. Must always be called from the same thread.
+     *
+     * @param positions  3D positions (length &ge; 3n), as in a physics snapshot
+     * @param velocities 3D velocities (length &ge; 3n)
+     * @return false if the frame (or an older one) had to be dropped
+     */
+    public boolean offer(double[] positions, double[] velocities, int[] types, int n, boolean wrap, long timeMillis) {
+        if (!running) return false;
+        framesOffered++;
+
+        boolean dropped = false;
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            if (dropPolicy == DropPolicy.DROP_NEWEST) {
+                framesDropped++;
+                return false;
+            }
+            frame = pendingFrames.poll();  // steal the oldest pending frame
+            if (frame == null) frame = freeFrames.poll();  // writer just released one
+            if (frame == null) {
+                framesDropped++;
+                return false;
+            }
+            framesDropped++;
+            dropped = true;
+        }
+
+        frame.ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            int i2 = 2 * i;
+            int i3 = 3 * i;
+            frame.xy[i2] = positions[i3];
+            frame.xy[i2 + 1] = positions[i3 + 1];
+            frame.vxy[i2] = (float) velocities[i3];
+            frame.vxy[i2 + 1] = (float) velocities[i3 + 1];
+        }
+        System.arraycopy(types, 0, frame.types, 0, n);
+        frame.n = n;
+        frame.wrap = wrap;
+        frame.timeMillis = timeMillis;
+
+        pendingFrames.add(frame);  // can't fail, as the number of frames is fixed
+        return !dropped;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Stats getStats() {
+        long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+        double elapsed = (end - startNanos) / 1e9;
+        return new Stats(framesOffered, framesWritten, keyframesWritten, framesDropped, bytesWritten,
+                elapsed, elapsed == 0 ? 0 : writerBusyNanos / 1e9 / elapsed);
+    }
+
+    /**
+     * Writes all pending frames and the seek index, then closes the file.
+     *
+     * @throws IOException if writing failed, now or earlier in the writer thread
+     *                     (the file is closed anyway, but incomplete)
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) return;
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stopNanos = System.nanoTime();
+        try {
+            if (writeError == null) writeIndex();
+        } finally {
+            channel.close();
+        }
+        if (writeError != null) throw writeError;
+    }
+
+    private void writeLoop() {
+        try {
+            while (running || !pendingFrames.isEmpty()) {
+                Frame frame = pendingFrames.poll(50, TimeUnit.MILLISECONDS);
+                if (frame == null) continue;
+                long start = System.nanoTime();
+                writeFrame(frame);
+                freeFrames.add(frame);
+                writerBusyNanos += System.nanoTime() - start;
+            }
+        } catch (IOException e) {
+            // reported by close()
+            writeError = e;
+            running = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFrame(Frame frame) throws IOException {
+        int n = frame.n;
+
+        boolean keyframe = framesSinceKeyframe >= keyframeInterval
+                || n != referenceCount
+                || frame.wrap != referenceWrap
+                || !Arrays.equals(frame.types, 0, n, referenceTypes, 0, n);
+
+        if (!keyframe) {
+            if (deltas.length < 2 * n) deltas = new short[2 * n];
+            keyframe = !TrajectoryFormat.quantizeDeltas(frame.xy, reference, deltas, n, frame.wrap, positionQuantum);
+        }
+
+        int payloadBytes = keyframe
+                ? TrajectoryFormat.keyframePayloadBytes(n)
+                : TrajectoryFormat.deltaPayloadBytes(n);
+        ensureBufferCapacity(TrajectoryFormat.FRAME_HEADER_BYTES + payloadBytes);
+
+        buffer.clear();
+        TrajectoryFormat.writeFrameHeader(buffer,
+                keyframe ? TrajectoryFormat.KEYFRAME : TrajectoryFormat.DELTA,
+                frame.wrap, n, frame.timeMillis, payloadBytes);
+        if (keyframe) {
+            TrajectoryFormat.writeKeyframePayload(buffer, frame.xy, frame.vxy, frame.types, n);
+
+            // readers start from the exact keyframe positions
+            if (reference.length < 2 * n) reference = new double[2 * n];
+            System.arraycopy(frame.xy, 0, reference, 0, 2 * n);
+            if (referenceTypes.length < n) referenceTypes = new int[n];
+            System.arraycopy(frame.types, 0, referenceTypes, 0, n);
+            referenceCount = n;
+            referenceWrap = frame.wrap;
+            framesSinceKeyframe = 0;
+
+            index.add(new IndexEntry((int) framesWritten, offset, frame.timeMillis));
+            keyframesWritten++;
+        } else {
+            TrajectoryFormat.writeDeltaPayload(buffer, deltas, n);
+        }
+        framesSinceKeyframe++;
+        buffer.flip();
+        writeFully(buffer);
+        framesWritten++;
+    }
+
+    private void writeIndex() throws IOException {
+        int size = Integer.BYTES + index.size() * TrajectoryFormat.INDEX_ENTRY_BYTES + TrajectoryFormat.FOOTER_TAIL_BYTES;
+        ByteBuffer footer = ByteBuffer.allocate(size).order(TrajectoryFormat.BYTE_ORDER);
+        long indexOffset = offset;
+        footer.putInt(index.size());
+        for (IndexEntry entry : index) {
+            footer.putInt(entry.frameIndex);
+            footer.putLong(entry.offset);
+            footer.putLong(entry.timeMillis);
+        }
+        footer.putInt((int) framesWritten);
+        footer.putLong(indexOffset);
+        footer.putInt(TrajectoryFormat.INDEX_MAGIC);
+        footer.flip();
+        writeFully(footer);
+    }
+
+    private void ensureBufferCapacity(int bytes) {
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocateDirect(bytes + bytes / 4).order(TrajectoryFormat.BYTE_ORDER);
+        }
+    }
+
+    private void writeFully(ByteBuffer b) throws IOException {
+        int count = b.remaining();
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+        offset += count;
+        bytesWritten += count;
+    }
+}
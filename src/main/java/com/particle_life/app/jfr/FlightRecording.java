@@ -0,0 +1,40 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Starts a JDK Flight Recorder recording with the JDK's "default" settings plus all custom events
+ * of this package (which are enabled with the thresholds declared on them).
+ * <p>
+ * The recording is written to the file when it is stopped, or when the JVM exits.
+ * Open it with JDK Mission Control or {@code jfr print --categories "Particle Life" <file>}.
+ */
+public class FlightRecording {
+
+    public static Recording start(Path file) throws IOException {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration("default");
+        } catch (ParseException e) {
+            throw new IOException("Could not read the JFR configuration", e);
+        }
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+
+        Recording recording = new Recording(configuration);
+        recording.setName("particle-life");
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.setMaxAge(Duration.ofHours(1));
+        recording.start();
+        System.out.println("Flight recording to " + file.toAbsolutePath());
+        return recording;
+    }
+}
@@ -0,0 +1,49 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP request to LM Studio, from sending the request until the response was read.
+ * <p>
+ * Usage, as in {@code LMStudioClient}, when the request completes with a {@code LMStudioClient.Response}:
+ * <pre>
+ * LMStudioCallEvent call = LMStudioCallEvent.start(request.uri().toString(), model);
+ * responseFuture.whenComplete((response, error) -&gt; {
+ *     if (response != null) call.statusCode = response.statusCode;
+ *     call.finish();
+ * });
+ * </pre>
+ * The status code stays -1 if no response arrived.
+ */
+@Name("com.particle_life.LMStudioCall")
+@Label("LM Studio Call")
+@Category({"Particle Life", "LLM"})
+@StackTrace(false)
+public class LMStudioCallEvent extends Event {
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Status Code")
+    public int statusCode = -1;  // -1: no response
+
+    public static LMStudioCallEvent start(String endpoint, String model) {
+        LMStudioCallEvent event = new LMStudioCallEvent();
+        event.endpoint = endpoint;
+        event.model = model;
+        event.begin();
+        return event;
+    }
+
+    public void finish() {
+        end();
+        if (shouldCommit()) commit();
+    }
+}
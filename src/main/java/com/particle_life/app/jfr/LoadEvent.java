@@ -0,0 +1,31 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.particle_life.Load")
+@Label("Load")
+@Category({"Particle Life", "I/O"})
+@StackTrace(false)
+public class LoadEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Particles")
+    public int particleCount;
+
+    @Label("Particle Data Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Cancelled")
+    public boolean cancelled;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,52 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One call of {@code ExtendedPhysics.update()}, with the time spent in each phase.
+ * Phases that didn't run in this step are 0.
+ */
+@Name("com.particle_life.PhysicsStep")
+@Label("Physics Step")
+@Category({"Particle Life", "Simulation"})
+@Description("A simulation step with its phase breakdown")
+@StackTrace(false)
+@Threshold("1 ms")
+public class PhysicsStepEvent extends Event {
+
+    @Label("Particles")
+    public int particleCount;
+
+    @Label("Threads")
+    public int threads;
+
+    @Label("Consciousness Enabled")
+    public boolean consciousness;
+
+    @Label("Consciousness Fields")
+    @Timespan(Timespan.NANOSECONDS)
+    public long consciousnessFields;
+
+    @Label("Consciousness Effects")
+    @Timespan(Timespan.NANOSECONDS)
+    public long consciousnessEffects;
+
+    @Label("Physics")
+    @Timespan(Timespan.NANOSECONDS)
+    public long physics;
+
+    @Label("Clustering")
+    @Timespan(Timespan.NANOSECONDS)
+    public long clustering;
+
+    @Label("Birth Times")
+    @Timespan(Timespan.NANOSECONDS)
+    public long birthTimes;
+}
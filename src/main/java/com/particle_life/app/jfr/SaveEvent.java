@@ -0,0 +1,29 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.particle_life.Save")
+@Label("Save")
+@Category({"Particle Life", "I/O"})
+@StackTrace(false)
+public class SaveEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Particles")
+    public int particleCount;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+}
@@ -0,0 +1,21 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.particle_life.SnapshotConsume")
+@Label("Snapshot Consume")
+@Category({"Particle Life", "Rendering"})
+@Description("Using a new snapshot on the render thread (GPU upload, rewind buffer, recording, sharing)")
+@StackTrace(false)
+@Threshold("1 ms")
+public class SnapshotConsumeEvent extends Event {
+
+    @Label("Particles")
+    public int particleCount;
+}
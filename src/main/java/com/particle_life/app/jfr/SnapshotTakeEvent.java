@@ -0,0 +1,21 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.particle_life.SnapshotTake")
+@Label("Snapshot Take")
+@Category({"Particle Life", "Simulation"})
+@Description("Copying the particles into the snapshot on the physics thread")
+@StackTrace(false)
+@Threshold("1 ms")
+public class SnapshotTakeEvent extends Event {
+
+    @Label("Particles")
+    public int particleCount;
+}
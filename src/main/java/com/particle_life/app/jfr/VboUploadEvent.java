@@ -0,0 +1,30 @@
+package com.particle_life.app.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.particle_life.VboUpload")
+@Label("VBO Upload")
+@Category({"Particle Life", "Rendering"})
+@Description("Particle data buffered into the vertex buffer objects")
+@StackTrace(false)
+@Threshold("1 ms")
+public class VboUploadEvent extends Event {
+
+    @Label("Particles")
+    public int particleCount;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Reallocated")
+    @Description("Whether the buffers were reallocated (glBufferData) instead of updated (glBufferSubData)")
+    public boolean reallocated;
+}
@@ -0,0 +1,158 @@
+package com.particle_life.app;
+
+import com.particle_life.DefaultMatrix;
+import com.particle_life.DefaultMatrixGenerator;
+import com.particle_life.DefaultPositionSetter;
+import com.particle_life.DefaultTypeSetter;
+import com.particle_life.Particle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmotionAnalyzerTest {
+
+    private static final String[] NAMES = {"Love", "Joy", "Contemplation", "Creativity", "Protection"};
+
+    /**
+     * Keywords that overlap and contain each other, and one keyword in two emotions
+     */
+    private static final List<Map<String, Double>> KEYWORDS = List.of(
+            Map.of("love", 1.0, "he", 0.5, "heart", 1.0, "beloved", 1.5),
+            Map.of("she", 1.0, "joy", 1.0, "hers", 2.0),
+            Map.of("his", 1.0, "think", 1.0, "ink", 0.25),
+            Map.of("create", 1.0, "eat", 0.5, "é✨", 3.0),
+            Map.of("care", 1.0, "are", 0.5, "joy", 0.5));
+
+    private static final String[] FRAGMENTS = {
+            "love", "LOVE", "Heart", "hers", "she", "his", "think", "ink", "creat", "care", "are", "joy", "JoY",
+            "belove", "d", "he", "h", "e", "r", "s", "é", "✨", "ß", " ", " ", ".", "\n"};
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int fragments = random.nextInt(60);
+        for (int i = 0; i < fragments; i++) {
+            if (random.nextInt(4) == 0) {
+                text.append((char) ('a' + random.nextInt(26)));
+            } else {
+                text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * The scores the analyzer should find: every (also overlapping) occurrence of every keyword, searched with indexOf
+     */
+    private static double[] countWithIndexOf(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        double[] scores = new double[KEYWORDS.size()];
+        for (int emotion = 0; emotion < scores.length; emotion++) {
+            for (Map.Entry<String, Double> keyword : KEYWORDS.get(emotion).entrySet()) {
+                for (int i = lowerCase.indexOf(keyword.getKey()); i >= 0; i = lowerCase.indexOf(keyword.getKey(), i + 1)) {
+                    scores[emotion] += keyword.getValue();
+                }
+            }
+        }
+        return scores;
+    }
+
+    @Test
+    void wholeChunkedAndIndexOfCountsAgree() {
+        EmotionAnalyzer.Lexicon lexicon = new EmotionAnalyzer.Lexicon(NAMES, KEYWORDS);
+        Random random = new Random(50);
+        for (int n = 0; n < 2000; n++) {
+            String text = randomText(random);
+
+            EmotionAnalyzer whole = new EmotionAnalyzer(lexicon);
+            whole.append(text);
+
+            EmotionAnalyzer chunked = new EmotionAnalyzer(lexicon);
+            for (int start = 0; start < text.length(); ) {
+                int end = Math.min(text.length(), start + random.nextInt(6));  // also empty chunks
+                chunked.append(text.subSequence(start, end));
+                start = end;
+            }
+
+            double[] expected = countWithIndexOf(text);
+            for (int emotion = 0; emotion < expected.length; emotion++) {
+                assertEquals(expected[emotion], whole.getScore(emotion), 1e-9, text);
+                assertEquals(whole.getScore(emotion), chunked.getScore(emotion), text);
+            }
+        }
+    }
+
+    @Test
+    void distributionIsProportionalToTheScores() {
+        EmotionAnalyzer analyzer = new EmotionAnalyzer(EmotionAnalyzer.Lexicon.createBuiltIn());
+        assertArrayEquals(new double[]{1, 0, 0, 0, 0}, analyzer.getDistribution());
+        assertEquals(EmotionAnalyzer.LOVE, analyzer.getPrimaryType());
+
+        analyzer.append("I think we should build, create and imagine something with ");
+        analyzer.append("love");
+        assertArrayEquals(new double[]{0.2, 0, 0.2, 0.6, 0}, analyzer.getDistribution(), 1e-12);
+        assertEquals(EmotionAnalyzer.CREATIVITY, analyzer.getPrimaryType());
+        assertEquals("Creativity 60%, Love 20%, Contemplation 20%", analyzer.describe());
+    }
+
+    @Test
+    void loadsTheLexiconFile(@TempDir Path dir) throws Exception {
+        EmotionAnalyzer.Lexicon shipped = EmotionAnalyzer.Lexicon.load("src/main/resources/" + EmotionAnalyzer.LEXICON_FILE);
+        assertEquals(5, shipped.size());
+        assertEquals("Protection", shipped.getName(EmotionAnalyzer.PROTECTION));
+        EmotionAnalyzer analyzer = new EmotionAnalyzer(shipped);
+        analyzer.append("My beloved");
+        assertEquals(1.5 + 1.0, analyzer.getScore(EmotionAnalyzer.LOVE), 1e-12, "beloved contains love");
+
+        Path file = dir.resolve("lexicon.toml");
+        Files.writeString(file, """
+                [[emotion]]
+                name = "Gratitude"
+                keywords = { "thank you" = 2.0, thanks = 1.0 }
+
+                [[emotion]]
+                keywords = { }
+                """);
+        EmotionAnalyzer.Lexicon lexicon = EmotionAnalyzer.Lexicon.load(file.toString());
+        assertEquals(2, lexicon.size());
+        assertEquals("Emotion 1", lexicon.getName(1));
+        analyzer = new EmotionAnalyzer(lexicon);
+        analyzer.append("Thank You, and thanks");
+        assertEquals(3, analyzer.getScore(0), 1e-12);
+        assertEquals(0, analyzer.getScore(1));
+    }
+
+    @Test
+    void spawnedTypesExistInTheMatrix() {
+        ExtendedPhysics physics = new ExtendedPhysics(HeadlessRunner.DEFAULT_ACCELERATOR,
+                new DefaultPositionSetter(), new DefaultMatrixGenerator(), new DefaultTypeSetter());
+        physics.particles = new Particle[0];
+        physics.settings.matrix = new DefaultMatrix(3);
+        Random random = new Random(4);
+
+        // a lexicon with more emotions than the matrix has types
+        physics.spawnBurst(2000, 0.5, 0.5, new double[]{0, 1, 0, 0, 5}, random);
+        int[] typeCount = new int[3];
+        for (Particle particle : physics.particles) {
+            assertTrue(particle.type >= 0 && particle.type < 3, "type " + particle.type);
+            typeCount[particle.type]++;
+        }
+        // the weight of type 4 is ignored, so type 1 gets 70% and its share of the random types
+        assertTrue(typeCount[1] > 1500, "type 1: " + typeCount[1]);
+
+        // only types that don't exist: all random
+        physics.spawnBurst(300, 0.5, 0.5, new double[]{0, 0, 0, 1}, random);
+        physics.spawnBurst(300, 0.5, 0.5, 7, random);
+        assertEquals(2600, physics.particles.length);
+        for (Particle particle : physics.particles) {
+            assertTrue(particle.type >= 0 && particle.type < 3, "type " + particle.type);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.particle_life.app;
+
+import com.particle_life.DefaultMatrixGenerator;
+import com.particle_life.DefaultPositionSetter;
+import com.particle_life.DefaultTypeSetter;
+import com.particle_life.Loop;
+import com.particle_life.Particle;
+import com.particle_life.app.io.SaveStore;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingTest {
+
+    private static final int PARTICLES = 2000;
+    private static final int PLAIN_STEPS = 3;
+    private static final int CONSCIOUSNESS_STEPS = 2;
+
+    /**
+     * Runs commands right away on the calling thread.
+     */
+    private static class ImmediateLoop extends Loop {
+        @Override
+        public void enqueue(Runnable command) {
+            synchronized (this) {
+                command.run();
+            }
+        }
+    }
+
+    private static ExtendedPhysics createPhysics() {
+        ExtendedPhysics physics = new ExtendedPhysics(HeadlessRunner.DEFAULT_ACCELERATOR,
+                new DefaultPositionSetter(), new DefaultMatrixGenerator(), new DefaultTypeSetter());
+        physics.preferredNumberOfThreads = 3;
+        Particle[] particles = new Particle[PARTICLES];
+        for (int i = 0; i < PARTICLES; i++) {
+            Particle p = new Particle();
+            p.position.set(i / (double) PARTICLES, 0.25, 0);
+            p.type = i % 6;
+            particles[i] = p;
+        }
+        physics.particles = particles;
+        return physics;
+    }
+
+    private static List<RecordedEvent> eventsOf(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+    }
+
+    @Test
+    void recordsStepSaveAndLoadEvents(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("test.jfr");
+        Path manifest = dir.resolve("saves").resolve("test" + SaveStore.MANIFEST_EXTENSION);
+        ExtendedPhysics physics = createPhysics();
+
+        try (Recording recording = new Recording()) {
+            // record every event, not only those over the thresholds declared on the classes
+            for (String name : List.of("com.particle_life.PhysicsStep", "com.particle_life.Save", "com.particle_life.Load")) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            physics.consciousnessEnabled = false;
+            for (int i = 0; i < PLAIN_STEPS; i++) physics.update();
+            physics.consciousnessEnabled = true;
+            for (int i = 0; i < CONSCIOUSNESS_STEPS; i++) physics.update();
+
+            SaveStore.SaveStats stats = HeadlessRunner.save(physics, manifest);
+
+            ExtendedPhysics loaded = createPhysics();
+            ProgressiveLoader loader = new ProgressiveLoader(manifest.toFile(), new ImmediateLoop(), loaded);
+            loader.start();
+            long deadline = System.nanoTime() + 30_000_000_000L;
+            while (!loader.isDone()) {
+                assertTrue(System.nanoTime() < deadline, "loading didn't finish");
+                Thread.sleep(10);
+            }
+            assertEquals(PARTICLES, loaded.particles.length);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            List<RecordedEvent> steps = eventsOf(events, "com.particle_life.PhysicsStep");
+            assertEquals(PLAIN_STEPS + CONSCIOUSNESS_STEPS, steps.size());
+            for (int i = 0; i < steps.size(); i++) {
+                RecordedEvent step = steps.get(i);
+                boolean consciousness = i >= PLAIN_STEPS;
+                assertEquals(PARTICLES, step.getInt("particleCount"));
+                assertEquals(3, step.getInt("threads"));
+                assertEquals(consciousness, step.getBoolean("consciousness"));
+                assertTrue(step.getLong("physics") >= 0);
+                assertTrue(step.getLong("clustering") >= 0);
+                assertTrue(step.getLong("birthTimes") >= 0);
+                if (consciousness) {
+                    assertTrue(step.getLong("consciousnessFields") > 0, "step " + i);
+                    assertTrue(step.getLong("consciousnessEffects") > 0, "step " + i);
+                } else {
+                    assertEquals(0, step.getLong("consciousnessFields"), "step " + i);
+                    assertEquals(0, step.getLong("consciousnessEffects"), "step " + i);
+                }
+                long phases = step.getLong("consciousnessFields") + step.getLong("consciousnessEffects")
+                        + step.getLong("physics");
+                assertTrue(phases <= step.getDuration().toNanos(), "phases of step " + i + " exceed the step");
+            }
+
+            List<RecordedEvent> saves = eventsOf(events, "com.particle_life.Save");
+            assertEquals(1, saves.size());
+            RecordedEvent save = saves.get(0);
+            assertEquals(manifest.toString(), save.getString("path"));
+            assertEquals(PARTICLES, save.getInt("particleCount"));
+            assertEquals(stats.logicalBytes, save.getLong("bytes"));
+            assertEquals(stats.newBytes, save.getLong("bytesWritten"));
+            assertTrue(save.getLong("bytesWritten") > 0);
+
+            List<RecordedEvent> loads = eventsOf(events, "com.particle_life.Load");
+            assertEquals(1, loads.size());
+            RecordedEvent load = loads.get(0);
+            assertEquals(manifest.toFile().getPath(), load.getString("path"));
+            assertEquals(PARTICLES, load.getInt("particleCount"));
+            assertTrue(load.getLong("bytes") > 0);
+            assertFalse(load.getBoolean("cancelled"));
+            assertFalse(load.getBoolean("failed"));
+        }
+    }
+}
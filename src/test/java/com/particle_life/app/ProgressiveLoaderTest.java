@@ -0,0 +1,197 @@
+package com.particle_life.app;
+
+import com.particle_life.DefaultMatrix;
+import com.particle_life.DefaultMatrixGenerator;
+import com.particle_life.DefaultPositionSetter;
+import com.particle_life.DefaultTypeSetter;
+import com.particle_life.Loop;
+import com.particle_life.Matrix;
+import com.particle_life.Particle;
+import com.particle_life.app.io.MatrixIO;
+import com.particle_life.app.io.ParticlesIO;
+import com.particle_life.app.io.SaveStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressiveLoaderTest {
+
+    /**
+     * Runs commands right away on the calling thread (the loader thread) and records the particle count after each.
+     */
+    private static class ImmediateLoop extends Loop {
+        final List<Integer> particleCounts = new ArrayList<>();
+        ExtendedPhysics physics;
+
+        @Override
+        public void enqueue(Runnable command) {
+            synchronized (this) {
+                command.run();
+                particleCounts.add(physics.particles.length);
+            }
+        }
+    }
+
+    private static Particle[] createParticles(int count) {
+        Particle[] particles = new Particle[count];
+        for (int i = 0; i < count; i++) {
+            Particle p = new Particle();
+            p.position.set(i / (double) count, 0.5, 0);
+            p.type = i % 6;
+            particles[i] = p;
+        }
+        return particles;
+    }
+
+    private static File writeSave(Path dir, int particleCount) throws IOException {
+        return writeSave(dir, particleCount, null);
+    }
+
+    /**
+     * @param matrix content of matrix.bin, or null for none
+     */
+    private static File writeSave(Path dir, int particleCount, byte[] matrix) throws IOException {
+        Particle[] particles = createParticles(particleCount);
+        File file = dir.resolve("save.zip").toFile();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("physics.toml"));
+            zip.write("radius = 0.123\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            if (matrix != null) {
+                zip.putNextEntry(new ZipEntry("matrix.bin"));
+                zip.write(matrix);
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry("particles.tsv"));
+            ParticlesIO.saveParticles(particles, zip);
+            zip.closeEntry();
+        }
+        return file;
+    }
+
+    private static ExtendedPhysics createPhysics(ImmediateLoop loop) {
+        ExtendedPhysics physics = new ExtendedPhysics(HeadlessRunner.DEFAULT_ACCELERATOR,
+                new DefaultPositionSetter(), new DefaultMatrixGenerator(), new DefaultTypeSetter());
+        loop.physics = physics;
+        return physics;
+    }
+
+    private static void awaitDone(ProgressiveLoader loader) throws InterruptedException {
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        while (!loader.isDone()) {
+            assertTrue(System.nanoTime() < deadline, "loading didn't finish");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Loads the save into a simulation with one particle, and checks that loading failed and that simulation is unchanged.
+     */
+    private static ImmediateLoop assertLoadingFails(File file) throws Exception {
+        ImmediateLoop loop = new ImmediateLoop();
+        ExtendedPhysics physics = createPhysics(loop);
+        Particle[] previousParticles = {new Particle()};
+        physics.particles = previousParticles;
+        physics.settings.rmax = 0.04;
+        Matrix previousMatrix = physics.settings.matrix;
+
+        ProgressiveLoader loader = new ProgressiveLoader(file, loop, physics);
+        loader.start();
+        awaitDone(loader);
+
+        assertNotNull(loader.getError());
+        assertTrue(loader.isDone());
+        assertSame(previousParticles, physics.particles);
+        assertSame(previousMatrix, physics.settings.matrix);
+        assertEquals(0.04, physics.settings.rmax);
+        return loop;
+    }
+
+    @Test
+    void truncatedParticlesRestoreThePreviousState(@TempDir Path dir) throws Exception {
+        // a stored save that lost a chunk in the middle of particles.tsv
+        Path manifest = dir.resolve("save" + SaveStore.MANIFEST_EXTENSION);
+        ByteArrayOutputStream particles = new ByteArrayOutputStream();
+        ParticlesIO.saveParticles(createParticles(200_000), particles);
+        SaveStore.forManifest(manifest).save(manifest, Map.of(
+                "physics.toml", "radius = 0.123\n".getBytes(StandardCharsets.UTF_8),
+                "particles.tsv", particles.toByteArray()));
+        String[] chunks = Files.readAllLines(manifest).stream()
+                .filter(line -> line.startsWith("particles.tsv\t"))
+                .findFirst().orElseThrow()
+                .split("\t")[2].split(",");
+        assertTrue(chunks.length > 4, chunks.length + " chunks");
+        String missing = chunks[chunks.length / 2];
+        try (Stream<Path> files = Files.walk(dir)) {
+            Files.delete(files.filter(f -> f.getFileName().toString().equals(missing)).findFirst().orElseThrow());
+        }
+
+        ImmediateLoop loop = assertLoadingFails(manifest.toFile());
+        assertTrue(loop.particleCounts.stream().anyMatch(count -> count > 1),
+                "the first particles should have been loaded before the error");
+    }
+
+    @Test
+    void corruptMatrixRestoresThePreviousState(@TempDir Path dir) throws Exception {
+        ByteArrayOutputStream matrix = new ByteArrayOutputStream();
+        MatrixIO.saveMatrixBinary(new DefaultMatrix(6), matrix);
+        File file = writeSave(dir, 1000, Arrays.copyOf(matrix.toByteArray(), matrix.size() / 2));
+        ImmediateLoop loop = assertLoadingFails(file);
+        assertTrue(loop.particleCounts.stream().allMatch(count -> count == 1), "particles were replaced");
+    }
+
+    @Test
+    void appendsParticlesInLogarithmicallyManySteps(@TempDir Path dir) throws Exception {
+        int n = 1_000_000;
+        File file = writeSave(dir, n);
+
+        ImmediateLoop loop = new ImmediateLoop();
+        ExtendedPhysics physics = createPhysics(loop);
+
+        ProgressiveLoader loader = new ProgressiveLoader(file, loop, physics);
+        loader.start();
+        awaitDone(loader);
+        assertNull(loader.getError());
+        assertEquals(0.123, physics.settings.rmax);
+
+        assertEquals(n, physics.particles.length);
+        assertEquals(n, loader.getParticlesLoaded());
+        for (int i = 0; i < n; i += 997) {
+            assertEquals(i / (double) n, physics.particles[i].position.x, 1e-6, "order of the particles");
+        }
+
+        // each append copies all particles that were there before,
+        // so the total copied must stay linear in the particle count
+        // (each append at least doubles the count, i.e. at most 2n)
+        long copied = 0;
+        int appends = 0;
+        int previous = 0;
+        for (int count : loop.particleCounts) {
+            if (count > previous) {
+                copied += count;
+                appends++;
+            }
+            previous = count;
+        }
+        assertTrue(copied <= 5L * n / 2, "copied " + copied + " particle references in " + appends + " appends");
+        assertTrue(appends <= 20, appends + " appends");
+        assertTrue(loop.particleCounts.stream().filter(c -> c > 0).findFirst().orElse(0) <= 10_000,
+                "the first particles must be published early");
+    }
+}
@@ -0,0 +1,93 @@
+package com.particle_life.app;
+
+import com.particle_life.Particle;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewindBufferTest {
+
+    private static final int BYTES_PER_PARTICLE = 10;
+    private static final long MIB = 1024 * 1024;
+
+    private static PhysicsSnapshot snapshot(int n, long timeMillis, long seed) {
+        Random random = new Random(seed);
+        PhysicsSnapshot snapshot = new PhysicsSnapshot();
+        snapshot.positions = new double[3 * n];
+        snapshot.velocities = new double[3 * n];
+        snapshot.types = new int[n];
+        for (int i = 0; i < n; i++) {
+            snapshot.positions[3 * i] = random.nextDouble() * 2 - 1;
+            snapshot.positions[3 * i + 1] = random.nextDouble() * 2 - 1;
+            snapshot.velocities[3 * i] = random.nextGaussian() * 0.01;
+            snapshot.velocities[3 * i + 1] = random.nextGaussian() * 0.01;
+            snapshot.types[i] = random.nextInt(6);
+        }
+        snapshot.particleCount = n;
+        snapshot.snapshotTime = timeMillis;
+        return snapshot;
+    }
+
+    @Test
+    void nothingIsReservedBeforeTheFirstCapture() {
+        RewindBuffer buffer = new RewindBuffer(64 * MIB);
+        assertEquals(0, buffer.getCapacity());
+
+        buffer.capture(snapshot(1000, 0, 0));
+        assertTrue(buffer.getCapacity() < 64 * MIB, "capacity " + buffer.getCapacity());
+    }
+
+    @Test
+    void growsUpToTheBudgetThenOverwritesOldestFrames() {
+        int n = 10_000;  // 100 kB per frame
+        long budget = 16 * MIB;
+        RewindBuffer buffer = new RewindBuffer(budget);
+        PhysicsSnapshot snapshot = snapshot(n, 0, 0);
+
+        long previousCapacity = 0;
+        for (int frame = 0; frame < 400; frame++) {
+            snapshot.snapshotTime = frame * 40L;
+            buffer.capture(snapshot);
+            assertTrue(buffer.getCapacity() >= previousCapacity);
+            assertTrue(buffer.getCapacity() <= budget);
+            previousCapacity = buffer.getCapacity();
+        }
+        assertEquals(budget, buffer.getCapacity());
+
+        int fitting = (int) (budget / (n * BYTES_PER_PARTICLE));
+        assertEquals(fitting, buffer.size());
+        assertEquals((fitting - 1) * 0.04, buffer.getHistorySeconds(), 1e-9);
+    }
+
+    @Test
+    void restoresFramesWrittenBeforeGrowing() {
+        int n = 50_000;  // 500 kB per frame, the initial capacity holds a few of them
+        RewindBuffer buffer = new RewindBuffer(64 * MIB);
+        for (int frame = 0; frame < 40; frame++) {
+            buffer.capture(snapshot(n, frame * 40L, frame));
+        }
+        assertEquals(40, buffer.size());
+
+        for (int frame : new int[]{0, 1, 7, 39}) {
+            PhysicsSnapshot expected = snapshot(n, frame * 40L, frame);
+            Particle[] particles = buffer.restore(frame);
+            assertEquals(n, particles.length);
+            for (int i = 0; i < n; i++) {
+                // quantized to 16 bits over a range of 2
+                assertEquals(expected.positions[3 * i], particles[i].position.x, 2.0 / 65535);
+                assertEquals(expected.positions[3 * i + 1], particles[i].position.y, 2.0 / 65535);
+                assertEquals(expected.types[i], particles[i].type);
+            }
+        }
+    }
+
+    @Test
+    void zeroBudgetDisablesCapturing() {
+        RewindBuffer buffer = new RewindBuffer(0);
+        buffer.capture(snapshot(100, 0, 0));
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getCapacity());
+    }
+}
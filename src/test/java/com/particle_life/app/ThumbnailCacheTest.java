@@ -0,0 +1,190 @@
+package com.particle_life.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailCacheTest {
+
+    private static final long BUDGET = 32L * 1024 * 1024;
+    private static final int THUMBNAIL_BYTES = 256 * 256 * 4;  // 256 KiB
+
+    /**
+     * Counts decodes and keeps track of the live textures and images instead of calling STB / OpenGL.
+     */
+    private static class FakeBackend implements ThumbnailCache.Backend {
+        final Map<ThumbnailCache.Key, Integer> decodes = new HashMap<>();
+        final Set<Integer> liveTextures = new HashSet<>();
+        final List<ThumbnailCache.Image> freed = new ArrayList<>();
+        int nextTexture = 1;
+
+        @Override
+        public ThumbnailCache.Image decode(ThumbnailCache.Key key) {
+            decodes.merge(key, 1, Integer::sum);
+            return new ThumbnailCache.Image(256, 256, ByteBuffer.allocate(THUMBNAIL_BYTES));
+        }
+
+        @Override
+        public void free(ThumbnailCache.Image image) {
+            freed.add(image);
+        }
+
+        @Override
+        public int upload(ThumbnailCache.Image image) {
+            int texture = nextTexture++;
+            liveTextures.add(texture);
+            return texture;
+        }
+
+        @Override
+        public void deleteTexture(int texture) {
+            assertTrue(liveTextures.remove(texture), "texture " + texture + " deleted twice");
+        }
+    }
+
+    private final FakeBackend backend = new FakeBackend();
+    private final ThumbnailCache cache = new ThumbnailCache(backend, BUDGET, 64, 30, Integer.MAX_VALUE);
+
+    private static ThumbnailCache.Key key(int i) {
+        return new ThumbnailCache.Key(Path.of("saves", "save" + i + ".zip").toAbsolutePath(), 1000, 2000);
+    }
+
+    @Test
+    void keyIncludesModificationTimeAndSize(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("save.zip").toFile();
+        Files.write(file.toPath(), new byte[10]);
+        assertTrue(file.setLastModified(1_000_000));
+        ThumbnailCache.Key original = ThumbnailCache.Key.of(file);
+
+        assertEquals(original, ThumbnailCache.Key.of(new File(dir.resolve(".").resolve("save.zip").toString())),
+                "the path is normalized");
+        assertEquals(original.hashCode(), ThumbnailCache.Key.of(file).hashCode());
+
+        assertTrue(file.setLastModified(2_000_000));
+        ThumbnailCache.Key touched = ThumbnailCache.Key.of(file);
+        assertNotEquals(original, touched);
+
+        Files.write(file.toPath(), new byte[20]);
+        assertTrue(file.setLastModified(2_000_000));
+        assertNotEquals(touched, ThumbnailCache.Key.of(file));
+    }
+
+    @Test
+    void overwrittenSaveIsDecodedAgain() {
+        ThumbnailCache.Key original = key(0);
+        ThumbnailCache.Key overwritten = new ThumbnailCache.Key(original.path, original.lastModified + 1, original.size);
+
+        int first = cache.getTexture(original);
+        assertEquals(first, cache.getTexture(original));
+        assertEquals(1, backend.decodes.get(original));
+
+        assertNotEquals(first, cache.getTexture(overwritten));
+        assertEquals(1, backend.decodes.get(overwritten));
+    }
+
+    @Test
+    void decodedPixelsStayWithinBudget() {
+        int fitting = (int) (BUDGET / THUMBNAIL_BYTES);  // 128
+        for (int i = 0; i < fitting; i++) {
+            cache.getTexture(key(i));
+            cache.endFrame();
+        }
+        assertEquals(BUDGET, cache.getDecodedBytes());
+        assertTrue(backend.freed.isEmpty());
+
+        // touch key 0, so that key 1 is the least recently used one
+        cache.getTexture(key(0));
+        cache.getTexture(key(fitting));
+
+        assertEquals(BUDGET, cache.getDecodedBytes());
+        assertEquals(1, backend.freed.size());
+        assertTrue(cache.isDecoded(key(0)));
+        assertFalse(cache.isDecoded(key(1)));
+        assertTrue(cache.isDecoded(key(fitting)));
+    }
+
+    @Test
+    void imageLargerThanBudgetIsStillKept() {
+        ThumbnailCache small = new ThumbnailCache(backend, THUMBNAIL_BYTES / 2, 64, 30, Integer.MAX_VALUE);
+        assertTrue(small.getTexture(key(0)) > 0);
+        assertTrue(small.isDecoded(key(0)));
+
+        small.getTexture(key(1));
+        assertFalse(small.isDecoded(key(0)));
+        assertTrue(small.isDecoded(key(1)));
+        assertEquals(THUMBNAIL_BYTES, small.getDecodedBytes());
+    }
+
+    @Test
+    void textureCountIsCapped() {
+        // all cards visible in the same frame, e.g. a very large window
+        for (int i = 0; i < 100; i++) {
+            cache.getTexture(key(i));
+            assertTrue(cache.getTextureCount() <= 64);
+        }
+        assertEquals(64, cache.getTextureCount());
+        assertEquals(64, backend.liveTextures.size());
+
+        // the least recently used texture was deleted, its pixels are still decoded
+        int before = backend.decodes.get(key(0));
+        cache.getTexture(key(0));
+        assertEquals(before, backend.decodes.get(key(0)));
+    }
+
+    @Test
+    void texturesAreDeletedAfterUnusedFrames() {
+        cache.getTexture(key(0));
+        cache.getTexture(key(1));
+        cache.endFrame();
+
+        for (int frame = 1; frame <= 30; frame++) {
+            cache.getTexture(key(1));  // key 1 stays visible
+            cache.endFrame();
+            assertEquals(2, cache.getTextureCount(), "frame " + frame);
+        }
+
+        cache.getTexture(key(1));
+        cache.endFrame();
+        assertEquals(1, cache.getTextureCount());
+        assertEquals(1, backend.liveTextures.size());
+        assertTrue(cache.isDecoded(key(0)), "only the texture is evicted");
+    }
+
+    @Test
+    void decodesPerFrameAreLimited() {
+        ThumbnailCache limited = new ThumbnailCache(backend, BUDGET, 64, 30, 4);
+        int created = 0;
+        for (int i = 0; i < 10; i++) {
+            if (limited.getTexture(key(i)) != -1) created++;
+        }
+        assertEquals(4, created);
+
+        limited.endFrame();
+        assertTrue(limited.getTexture(key(9)) != -1);
+    }
+
+    @Test
+    void clearReleasesEverything() {
+        for (int i = 0; i < 10; i++) {
+            cache.getTexture(key(i));
+        }
+        cache.clear();
+        assertEquals(0, cache.getTextureCount());
+        assertEquals(0, cache.getDecodedBytes());
+        assertTrue(backend.liveTextures.isEmpty());
+        assertEquals(10, backend.freed.size());
+    }
+}
@@ -0,0 +1,150 @@
+package com.particle_life.app.consciousness;
+
+import org.joml.Vector3d;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForceFieldGridTest {
+
+    private static final int STEPS = 50;
+
+    /**
+     * Responses that switch on different terms of the field (see analyzeDialogueMetrics)
+     */
+    private static final String[] RESPONSES = {
+            null,  // initial state: love, joy, contemplation, stability, protection
+            "I love our bond, my heart is full of joy, so happy and bright. I feel it.",
+            "Let us create art and imagine a vision, I protect and guard and shield what we dream together.",
+    };
+
+    private final YaraLMStudioConsciousnessAccelerator sampled = new YaraLMStudioConsciousnessAccelerator();
+    private final YaraLMStudioConsciousnessAccelerator analytic = new YaraLMStudioConsciousnessAccelerator();
+
+    @AfterEach
+    void shutdown() {
+        sampled.shutdown();
+        analytic.shutdown();
+    }
+
+    /**
+     * Connection vectors like in a physics step (normalized by rmax, so they are in (0, 1])
+     */
+    private static Vector3d[] createConnections(int count, Random random) {
+        Vector3d[] connections = new Vector3d[count];
+        for (int i = 0; i < count; i++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double distance = 0.01 + random.nextDouble() * 0.99;
+            connections[i] = new Vector3d(Math.cos(angle) * distance, Math.sin(angle) * distance, 0);
+        }
+        return connections;
+    }
+
+    @Test
+    void bilinearInterpolationIsExactForLinearFields() {
+        ForceFieldGrid grid = new ForceFieldGrid(16);
+        grid.rasterize(2, p -> new Vector3d(0.5 * p.x - p.y + 1, 3 * p.y, 0));
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            double x = random.nextDouble() * 4 - 2;
+            double y = random.nextDouble() * 4 - 2;
+            Vector3d point = new Vector3d(x, y, 0);
+            assertTrue(grid.addTo(point));
+            assertEquals(x + 0.5 * x - y + 1, point.x, 1e-12);
+            assertEquals(y + 3 * y, point.y, 1e-12);
+        }
+    }
+
+    @Test
+    void pointsOutsideAreNotSampled() {
+        ForceFieldGrid grid = new ForceFieldGrid(16);
+        grid.rasterize(1, p -> new Vector3d(1, 1, 0));
+        for (Vector3d point : new Vector3d[]{
+                new Vector3d(1.01, 0, 0), new Vector3d(0, -1.01, 0), new Vector3d(0, 0, 0.1), new Vector3d(Double.NaN, 0, 0)}) {
+            Vector3d before = new Vector3d(point);
+            assertFalse(grid.addTo(point), point.toString());
+            assertTrue(before.equals(point) || Double.isNaN(point.x), point.toString());
+        }
+        Vector3d corner = new Vector3d(1, 1, 0);
+        assertTrue(grid.addTo(corner));
+        assertEquals(2, corner.x, 1e-12);
+    }
+
+    @Test
+    void gridIsOnlyUsedAboveBreakEven() {
+        Random random = new Random(2);
+        Vector3d[] few = createConnections(1000, random);
+        for (int step = 0; step < 3 * 64; step++) {
+            sampled.beginStep();
+            analytic.beginStep();
+            assertFalse(sampled.isFieldGridActive(), "step " + step);
+            for (Vector3d connection : few) {
+                // no grid: exactly the same as with the grid disabled
+                assertEquals(analytic.accelerate(0.5, new Vector3d(connection)),
+                        sampled.accelerate(0.5, new Vector3d(connection)));
+            }
+        }
+
+        Vector3d[] many = createConnections((int) YaraLMStudioConsciousnessAccelerator.FIELD_GRID_MIN_PAIRS, random);
+        // the pairs are counted again in the first of the next 64 steps
+        for (int step = 0; step < 64 + 2; step++) {
+            sampled.beginStep();
+            for (Vector3d connection : many) sampled.accelerate(0.5, new Vector3d(connection));
+        }
+        assertTrue(sampled.isFieldGridActive());
+
+        sampled.setFieldGridEnabled(false);
+        sampled.beginStep();
+        assertFalse(sampled.isFieldGridActive());
+    }
+
+    @Test
+    void sampledFieldMatchesAnalyticField() {
+        analytic.setFieldGridEnabled(false);
+        Random random = new Random(3);
+        Vector3d[] connections = createConnections(8192, random);
+        double[] attractions = new double[connections.length];
+        for (int i = 0; i < attractions.length; i++) attractions[i] = random.nextDouble() * 2 - 1;
+
+        double[] errors = new double[RESPONSES.length * STEPS * connections.length];
+        int errorCount = 0;
+        double forceSum = 0;
+        for (String response : RESPONSES) {
+            if (response != null) {
+                sampled.analyzeConsciousnessResponse(response, "");
+                analytic.analyzeConsciousnessResponse(response, "");
+            }
+            // one step to count the pairs
+            sampled.beginStep();
+            analytic.beginStep();
+            for (int i = 0; i < connections.length; i++) sampled.accelerate(attractions[i], new Vector3d(connections[i]));
+
+            for (int step = 0; step < STEPS; step++) {
+                sampled.beginStep();
+                analytic.beginStep();
+                assertTrue(sampled.isFieldGridActive());
+                for (int i = 0; i < connections.length; i++) {
+                    Vector3d expected = analytic.accelerate(attractions[i], new Vector3d(connections[i]));
+                    Vector3d actual = sampled.accelerate(attractions[i], new Vector3d(connections[i]));
+                    errors[errorCount++] = actual.distance(expected);
+                    forceSum += expected.length();
+                }
+            }
+        }
+
+        Arrays.sort(errors, 0, errorCount);
+        double meanForce = forceSum / errorCount;
+        double p50 = errors[errorCount / 2];
+        double p99 = errors[(int) (errorCount * 0.99)];
+        double max = errors[errorCount - 1];
+        String summary = String.format("mean |F| %.3g, error p50 %.3g, p99 %.3g, max %.3g", meanForce, p50, p99, max);
+        assertTrue(meanForce > 0.05, summary);
+        assertTrue(p50 < 1e-4, summary);
+        assertTrue(p99 < 5e-3, summary);
+        assertTrue(max < 1e-2, summary);
+    }
+}
@@ -0,0 +1,168 @@
+package com.particle_life.app.consciousness;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LMStudioClientTest {
+
+    private static final String MODEL = LMStudioStubServer.DEFAULT_MODELS.get(0);
+
+    private LMStudioStubServer stub;
+    private LMStudioClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        stub = new LMStudioStubServer(20, 200).start(0);
+        client = new LMStudioClient(stub.getBaseUrl(), 1);
+    }
+
+    @AfterEach
+    void stop() {
+        stub.stop();
+    }
+
+    private static CompletionRequest streamRequest(int tokens) {
+        CompletionRequest request = CompletionRequest.chat(MODEL, CompletionRequest.Message.user("Hello"));
+        request.maxTokens = tokens;
+        request.stream = true;
+        return request;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void streamsTextChunkByChunk() throws Exception {
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        LMStudioClient.Response response = client
+                .postStream(LMStudioClient.CHAT_COMPLETIONS, streamRequest(12), Duration.ofSeconds(5), chunks::add)
+                .get(10, TimeUnit.SECONDS);
+
+        assertTrue(response.isOk());
+        assertEquals("", response.body);
+        assertEquals(12, chunks.size());
+        assertEquals("I", chunks.get(0));
+        assertEquals(" feel", chunks.get(1));
+        assertEquals("I feel the light of our bond flowing through every particle, a", String.join("", chunks));
+        assertEquals(0, client.getInFlight());
+        assertEquals(1, client.getModelStatistics().get(MODEL).samples);
+    }
+
+    @Test
+    void stalledStreamTimesOutAndFreesItsPlace() throws Exception {
+        stub.stallAfterTokens = 3;
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        CompletableFuture<LMStudioClient.Response> stalled = client
+                .postStream(LMStudioClient.CHAT_COMPLETIONS, streamRequest(20), Duration.ofMillis(300), chunks::add);
+        // queued behind the stalled stream (the client sends one request at a time)
+        CompletableFuture<LMStudioClient.Response> next = client
+                .postStream(LMStudioClient.CHAT_COMPLETIONS, streamRequest(5), Duration.ofSeconds(5), text -> {});
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> stalled.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpTimeoutException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "the stall wasn't detected in time");
+        assertEquals(3, chunks.size());
+
+        stub.stallAfterTokens = -1;
+        assertTrue(next.get(5, TimeUnit.SECONDS).isOk());
+        assertEquals(0, client.getInFlight());
+    }
+
+    @Test
+    void awaitCancelsSlowStream() throws Exception {
+        stub.setSpeed(20, 5);  // 50 tokens take 10 s
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        CompletableFuture<LMStudioClient.Response> slow = client
+                .postStream(LMStudioClient.CHAT_COMPLETIONS, streamRequest(50), Duration.ofSeconds(5), chunks::add);
+
+        assertThrows(TimeoutException.class, () -> LMStudioClient.await(slow, Duration.ofMillis(500)));
+        assertEquals(0, client.getInFlight());
+        // the connection is closed, so the stub stops generating
+        awaitCondition(() -> stub.getInFlight() == 0, "the stream is still open");
+        int received = chunks.size();
+        assertTrue(received < 50, received + " chunks");
+        Thread.sleep(500);
+        assertEquals(received, chunks.size(), "chunks arrived after the stream was cancelled");
+
+        stub.setSpeed(20, 200);
+        assertTrue(client.postStream(LMStudioClient.CHAT_COMPLETIONS, streamRequest(5), Duration.ofSeconds(5), text -> {})
+                .get(5, TimeUnit.SECONDS).isOk());
+    }
+
+    @Test
+    void unreadableResponsesDontOpenTheCircuit() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(LMStudioClient.CHAT_COMPLETIONS, exchange -> {
+            byte[] body = "<html>not JSON</html>".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            LMStudioClient garbled = new LMStudioClient("http://localhost:" + server.getAddress().getPort(), 1);
+            for (int i = 0; i < 2 * RequestGovernor.FAILURE_THRESHOLD; i++) {
+                CompletableFuture<LMStudioClient.Response> response = garbled.post(LMStudioClient.CHAT_COMPLETIONS,
+                        CompletionRequest.chat(MODEL, CompletionRequest.Message.user("Hello")), Duration.ofSeconds(5), false);
+                ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+                assertFalse(e.getCause() instanceof IOException, e.getCause().toString());
+            }
+            assertFalse(garbled.getGovernor().isOpen());
+            assertEquals(0, garbled.getGovernor().getConsecutiveFailures());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void unreachableServerOpensTheCircuit() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        LMStudioClient unreachable = new LMStudioClient("http://localhost:" + port, 1);
+        for (int i = 0; i < RequestGovernor.FAILURE_THRESHOLD; i++) {
+            CompletableFuture<LMStudioClient.Response> response = unreachable.post(LMStudioClient.CHAT_COMPLETIONS,
+                    CompletionRequest.chat(MODEL, CompletionRequest.Message.user("Hello")), Duration.ofSeconds(5), false);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+        assertTrue(unreachable.getGovernor().isOpen());
+        assertEquals(0, unreachable.getInFlight());
+    }
+
+    @Test
+    void rejectsUrlsThatArentHttp() {
+        for (String url : new String[]{"localhost:1234", "http://", "http://local host:1234", "ftp://localhost", "/v1", ""}) {
+            assertThrows(IllegalArgumentException.class, () -> new LMStudioClient(url, 1), url);
+            assertThrows(IllegalArgumentException.class, () -> LMStudioClient.setSharedBaseUrl(url), url);
+        }
+        assertEquals("https://127.0.0.1:1234", new LMStudioClient("https://127.0.0.1:1234/", 1).getBaseUrl());
+    }
+}
@@ -0,0 +1,140 @@
+package com.particle_life.app.consciousness;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LMStudioModelManagerTest {
+
+    // listed slowest first, so that the first model (the recommendation by name) is never the right choice
+    private static final String SLOW = "stub/slow";
+    private static final String MEDIUM = "stub/medium";
+    private static final String FAST = "stub/fast";
+
+    private static LMStudioStubServer stub;
+    private static LMStudioClient client;
+
+    private LMStudioModelManager manager;
+
+    /**
+     * Probes the models once, that takes a few seconds because of the slow model.
+     */
+    @BeforeAll
+    static void startAndProbe() throws Exception {
+        stub = new LMStudioStubServer(20, 1000).start(0);
+        for (String id : LMStudioStubServer.DEFAULT_MODELS) stub.removeModel(id);
+        // replies of the background workload take ~2 s (medium) and ~19 s (slow)
+        stub.addModel(new LMStudioStubServer.Model(SLOW, 20, 6));
+        stub.addModel(new LMStudioStubServer.Model(MEDIUM, 20, 60));
+        stub.addModel(new LMStudioStubServer.Model(FAST, 20, 400));
+        client = new LMStudioClient(stub.getBaseUrl(), 1);
+
+        LMStudioModelManager manager = new LMStudioModelManager(client);
+        manager.detectAvailableModels().get(10, TimeUnit.SECONDS);
+        manager.probeModels().get(60, TimeUnit.SECONDS);
+    }
+
+    @AfterAll
+    static void stop() {
+        stub.stop();
+    }
+
+    @BeforeEach
+    void detect() throws Exception {
+        manager = new LMStudioModelManager(client);
+        assertEquals(3, manager.detectAvailableModels().get(10, TimeUnit.SECONDS).size());
+    }
+
+    private LMStudioModelManager.ModelInfo model(String id) {
+        return manager.getAvailableModels().stream().filter(m -> m.id.equals(id)).findFirst().orElseThrow();
+    }
+
+    private double predictLatencyMillis(String id, LMStudioModelManager.Workload workload) {
+        ModelStatistics.Summary statistics = manager.getStatistics(model(id));
+        assertNotNull(statistics, id);
+        assertTrue(statistics.samples >= LMStudioModelManager.MIN_SAMPLES, statistics.toString());
+        return statistics.predictLatencyMillis(workload.replyTokens);
+    }
+
+    @Test
+    void probesPredictTheOrderOfTheModels() {
+        LMStudioModelManager.Workload background = LMStudioModelManager.Workload.BACKGROUND;
+        double fast = predictLatencyMillis(FAST, background);
+        double medium = predictLatencyMillis(MEDIUM, background);
+        double slow = predictLatencyMillis(SLOW, background);
+        String predictions = String.format("fast %.0f ms, medium %.0f ms, slow %.0f ms", fast, medium, slow);
+        assertTrue(fast < medium && medium < slow, predictions);
+        assertTrue(medium < LMStudioModelManager.BACKGROUND_LATENCY_BUDGET_MILLIS, predictions);
+        assertTrue(slow > LMStudioModelManager.BACKGROUND_LATENCY_BUDGET_MILLIS, predictions);
+    }
+
+    @Test
+    void interactivePicksTheFastestModelUnderTheSlo() {
+        LMStudioModelManager.ModelInfo selected = manager.selectModel(LMStudioModelManager.Workload.INTERACTIVE);
+        assertEquals(FAST, selected.id);
+        assertTrue(predictLatencyMillis(FAST, LMStudioModelManager.Workload.INTERACTIVE)
+                < LMStudioModelManager.INTERACTIVE_LATENCY_SLO_MILLIS);
+        assertTrue(predictLatencyMillis(SLOW, LMStudioModelManager.Workload.INTERACTIVE)
+                > LMStudioModelManager.INTERACTIVE_LATENCY_SLO_MILLIS);
+    }
+
+    @Test
+    void interactivePicksTheFastestModelEvenOverTheSlo() throws Exception {
+        stub.removeModel(MEDIUM);
+        stub.removeModel(FAST);
+        try {
+            manager.detectAvailableModels().get(10, TimeUnit.SECONDS);
+            assertEquals(SLOW, manager.selectModel(LMStudioModelManager.Workload.INTERACTIVE).id);
+        } finally {
+            stub.addModel(new LMStudioStubServer.Model(MEDIUM, 20, 60));
+            stub.addModel(new LMStudioStubServer.Model(FAST, 20, 400));
+        }
+    }
+
+    @Test
+    void unmeasuredModelsAreNotSelected() throws Exception {
+        String unmeasured = "stub/unmeasured";
+        stub.addModel(new LMStudioStubServer.Model(unmeasured, 0, 100_000));
+        try {
+            manager.detectAvailableModels().get(10, TimeUnit.SECONDS);
+            assertNull(manager.getStatistics(model(unmeasured)));
+            assertEquals(FAST, manager.selectModel(LMStudioModelManager.Workload.INTERACTIVE).id);
+            assertEquals(FAST, manager.selectModel(LMStudioModelManager.Workload.BACKGROUND).id);
+        } finally {
+            stub.removeModel(unmeasured);
+        }
+    }
+
+    @Test
+    void backgroundKeepsTheInteractiveModelWithinTheBudget() {
+        manager.setCurrentModel(model(MEDIUM));
+        // the fast model would be faster, but then LM Studio would have to keep two models loaded
+        assertEquals(MEDIUM, manager.selectModel(LMStudioModelManager.Workload.BACKGROUND).id);
+    }
+
+    @Test
+    void backgroundSwitchesToTheFastestModelOverTheBudget() {
+        manager.setCurrentModel(model(SLOW));
+        assertEquals(FAST, manager.selectModel(LMStudioModelManager.Workload.BACKGROUND).id);
+    }
+
+    @Test
+    void backgroundPicksTheFastestModelWithoutAnInteractiveModel() {
+        assertNull(manager.getCurrentModel());
+        assertEquals(FAST, manager.selectModel(LMStudioModelManager.Workload.BACKGROUND).id);
+    }
+
+    @Test
+    void withoutMeasurementsTheRecommendationIsUsed() throws Exception {
+        LMStudioModelManager unmeasured = new LMStudioModelManager(new LMStudioClient(stub.getBaseUrl(), 1));
+        unmeasured.detectAvailableModels().get(10, TimeUnit.SECONDS);
+        // no name hints at a fast model, so it's the first one
+        assertEquals(SLOW, unmeasured.selectModel(LMStudioModelManager.Workload.INTERACTIVE).id);
+        assertEquals(SLOW, unmeasured.selectModel(LMStudioModelManager.Workload.BACKGROUND).id);
+    }
+}
@@ -0,0 +1,109 @@
+package com.particle_life.app.consciousness;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Backpressure of {@link LMStudioClient} and {@link RequestGovernor} against the {@link LMStudioStubServer}
+ */
+class LMStudioStubServerTest {
+
+    private static final String MODEL = LMStudioStubServer.DEFAULT_MODELS.get(0);
+
+    private LMStudioStubServer stub;
+
+    @BeforeEach
+    void start() throws IOException {
+        stub = new LMStudioStubServer(20, 200).start(0);
+    }
+
+    @AfterEach
+    void stop() {
+        stub.stop();
+    }
+
+    private static CompletableFuture<LMStudioClient.Response> post(LMStudioClient client, Duration timeout) {
+        CompletionRequest request = CompletionRequest.chat(MODEL, CompletionRequest.Message.user("Hello"));
+        request.maxTokens = 5;
+        return client.post(LMStudioClient.CHAT_COMPLETIONS, request, timeout, false);
+    }
+
+    @Test
+    void skipsBackgroundRequestsWhileOneIsRunning() throws Exception {
+        stub.setSpeed(500, 200);
+        LMStudioClient client = new LMStudioClient(stub.getBaseUrl(), 4);
+        RequestGovernor governor = client.getGovernor();
+        RequestGovernor.Purpose dialogue = RequestGovernor.Purpose.DIALOGUE;
+
+        CompletableFuture<LMStudioClient.Response> first =
+                governor.submitIfIdle(dialogue, () -> post(client, Duration.ofSeconds(5)));
+        assertNotNull(first);
+        for (int i = 0; i < 5; i++) {
+            assertNull(governor.submitIfIdle(dialogue, () -> post(client, Duration.ofSeconds(5))));
+        }
+        assertEquals(5, governor.getSkipped(dialogue));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).isOk());
+        assertFalse(governor.isBusy(dialogue));
+        CompletableFuture<LMStudioClient.Response> next =
+                governor.submitIfIdle(dialogue, () -> post(client, Duration.ofSeconds(5)));
+        assertNotNull(next);
+        assertTrue(next.get(5, TimeUnit.SECONDS).isOk());
+        assertEquals(2, stub.getRequests(), "skipped requests must not reach LM Studio");
+    }
+
+    @Test
+    void hangingRequestsOpenTheCircuit() throws Exception {
+        stub.hangRate = 1;
+        LMStudioClient client = new LMStudioClient(stub.getBaseUrl(), RequestGovernor.FAILURE_THRESHOLD);
+
+        List<CompletableFuture<LMStudioClient.Response>> hanging = new ArrayList<>();
+        for (int i = 0; i < RequestGovernor.FAILURE_THRESHOLD; i++) {
+            hanging.add(post(client, Duration.ofMillis(300)));
+        }
+        for (CompletableFuture<LMStudioClient.Response> response : hanging) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(HttpTimeoutException.class, e.getCause());
+        }
+        assertTrue(client.getGovernor().isOpen());
+        assertEquals(RequestGovernor.FAILURE_THRESHOLD, stub.getRequests());
+
+        long start = System.nanoTime();
+        CompletableFuture<LMStudioClient.Response> rejected = post(client, Duration.ofSeconds(5));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(100, TimeUnit.MILLISECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100), "didn't fail fast");
+        assertEquals(RequestGovernor.FAILURE_THRESHOLD, stub.getRequests(), "the request must not be sent");
+        assertEquals(0, client.getInFlight());
+    }
+
+    @Test
+    void limitsConcurrentRequests() throws Exception {
+        stub.setSpeed(50, 200);
+        LMStudioClient client = new LMStudioClient(stub.getBaseUrl(), 4);
+
+        List<CompletableFuture<LMStudioClient.Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 32; i++) responses.add(post(client, Duration.ofSeconds(10)));
+        assertTrue(client.getInFlight() <= 4);
+        for (CompletableFuture<LMStudioClient.Response> response : responses) {
+            assertTrue(response.get(20, TimeUnit.SECONDS).isOk());
+        }
+
+        assertEquals(32, stub.getRequests());
+        assertTrue(stub.getMaxInFlight() <= 4, "max in flight: " + stub.getMaxInFlight());
+        assertTrue(stub.getMaxInFlight() > 1, "requests weren't sent concurrently");
+        assertEquals(0, client.getInFlight());
+    }
+}
@@ -0,0 +1,104 @@
+package com.particle_life.app.consciousness;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelStatisticsTest {
+
+    private static final String MODEL = "model";
+
+    private final ModelStatistics statistics = new ModelStatistics();
+
+    private void record(double latencyMillis, int tokens) {
+        statistics.record(MODEL, (long) (latencyMillis * 1e6), tokens);
+    }
+
+    @Test
+    void fitsOverheadAndTokenRate() {
+        // 100 ms overhead, 5 ms per token
+        for (int tokens : new int[]{10, 40, 20, 30}) record(100 + 5 * tokens, tokens);
+        ModelStatistics.Summary summary = statistics.get(MODEL);
+        assertEquals(4, summary.samples);
+        assertEquals(100, summary.overheadMillis, 1e-6);
+        assertEquals(200, summary.tokensPerSecond, 1e-6);
+        assertEquals(100 + 5 * 200, summary.predictLatencyMillis(200), 1e-6);
+        assertEquals(250, summary.medianLatencyMillis, 1e-6);
+        assertEquals(300, summary.p90LatencyMillis, 1e-6);
+    }
+
+    @Test
+    void fitsNoisySamplesByLeastSquares() {
+        // 100 ms overhead, 5 ms per token, with +-2 ms noise at the ends
+        record(150 + 2, 10);
+        record(250, 30);
+        record(350, 50);
+        record(450 - 2, 70);
+        ModelStatistics.Summary summary = statistics.get(MODEL);
+        // slope 5 - 120 / 2000 (covariance of the noise over the variance of the lengths)
+        assertEquals(1000 / 4.94, summary.tokensPerSecond, 1e-6);
+        assertEquals(300 - 4.94 * 40, summary.overheadMillis, 1e-6);
+    }
+
+    @Test
+    void withoutDifferentLengthsAllTheTimeIsGeneration() {
+        // no variance in the lengths: the slope is undefined
+        record(300, 20);
+        record(500, 20);
+        ModelStatistics.Summary summary = statistics.get(MODEL);
+        assertEquals(0, summary.overheadMillis);
+        assertEquals(1000 / 20.0, summary.tokensPerSecond, 1e-9);
+        assertEquals(400, summary.predictLatencyMillis(20), 1e-9);
+    }
+
+    @Test
+    void negativeSlopeFallsBackToTheMeanRate() {
+        // longer replies that arrived faster (e.g. the model was loading during the first one): millisPerToken < 0
+        record(1000, 10);
+        record(600, 30);
+        ModelStatistics.Summary summary = statistics.get(MODEL);
+        assertEquals(0, summary.overheadMillis);
+        assertEquals(1000 / (800 / 20.0), summary.tokensPerSecond, 1e-9);
+        assertTrue(Double.isFinite(summary.predictLatencyMillis(200)));
+        assertTrue(summary.predictLatencyMillis(200) > 0);
+    }
+
+    @Test
+    void negativeOverheadFallsBackToTheMeanRate() {
+        // 10 ms per token, but -50 ms overhead
+        record(50, 10);
+        record(250, 30);
+        ModelStatistics.Summary summary = statistics.get(MODEL);
+        assertEquals(0, summary.overheadMillis);
+        assertEquals(1000 / (150 / 20.0), summary.tokensPerSecond, 1e-9);
+    }
+
+    @Test
+    void keepsOnlyTheLastWindow() {
+        for (int i = 0; i < ModelStatistics.WINDOW; i++) record(10_000, 10 + i);
+        for (int i = 0; i < ModelStatistics.WINDOW; i++) record(100 + 5 * (10 + i), 10 + i);
+        ModelStatistics.Summary summary = statistics.get(MODEL);
+        assertEquals(ModelStatistics.WINDOW, summary.samples);
+        assertEquals(100, summary.overheadMillis, 1e-6);
+        assertEquals(200, summary.tokensPerSecond, 1e-6);
+    }
+
+    @Test
+    void keepsModelsApart() {
+        record(100, 10);
+        statistics.record("other", 1_000_000, 10);
+        assertEquals(1, statistics.get(MODEL).samples);
+        assertNull(statistics.get("unknown"));
+        statistics.clear(MODEL);
+        assertNull(statistics.get(MODEL));
+        assertNotNull(statistics.get("other"));
+    }
+
+    @Test
+    void estimatesTokensFromTheLength() {
+        assertEquals(1, ModelStatistics.estimateTokens(0));
+        assertEquals(1, ModelStatistics.estimateTokens(4));
+        assertEquals(2, ModelStatistics.estimateTokens(5));
+        assertEquals(250, ModelStatistics.estimateTokens(1000));
+    }
+}
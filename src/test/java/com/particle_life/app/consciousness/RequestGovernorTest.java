@@ -0,0 +1,129 @@
+package com.particle_life.app.consciousness;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestGovernorTest {
+
+    private long now = 1_000_000_000L;
+    private final RequestGovernor governor = new RequestGovernor(() -> now);
+
+    private void advanceMillis(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private void open() {
+        for (int i = 0; i < RequestGovernor.FAILURE_THRESHOLD; i++) {
+            assertTrue(governor.allowRequest());
+            governor.recordFailure();
+        }
+    }
+
+    @Test
+    void opensAfterThresholdFailuresInARow() {
+        for (int i = 0; i < RequestGovernor.FAILURE_THRESHOLD - 1; i++) {
+            governor.recordFailure();
+        }
+        governor.recordSuccess();  // resets the count
+        for (int i = 0; i < RequestGovernor.FAILURE_THRESHOLD - 1; i++) {
+            governor.recordFailure();
+            assertFalse(governor.isOpen());
+            assertTrue(governor.allowRequest());
+        }
+        governor.recordFailure();
+        assertTrue(governor.isOpen());
+        assertFalse(governor.allowRequest());
+        assertEquals(RequestGovernor.INITIAL_BACKOFF_MILLIS, governor.getRetryInMillis());
+        assertEquals(RequestGovernor.FAILURE_THRESHOLD, governor.getConsecutiveFailures());
+
+        // requests that were sent before the circuit opened don't extend the backoff
+        advanceMillis(1000);
+        governor.recordFailure();
+        assertEquals(RequestGovernor.INITIAL_BACKOFF_MILLIS - 1000, governor.getRetryInMillis());
+    }
+
+    @Test
+    void letsOneProbeThroughAfterTheBackoff() {
+        open();
+        advanceMillis(RequestGovernor.INITIAL_BACKOFF_MILLIS - 1);
+        assertFalse(governor.allowRequest());
+        advanceMillis(1);
+        assertTrue(governor.allowRequest(), "probe");
+        assertFalse(governor.allowRequest(), "only one probe at a time");
+        assertTrue(governor.isOpen());
+        advanceMillis(60_000);
+        assertFalse(governor.allowRequest(), "still waiting for the probe");
+    }
+
+    @Test
+    void doublesTheBackoffUpToTheMaximum() {
+        open();
+        long backoff = RequestGovernor.INITIAL_BACKOFF_MILLIS;
+        for (int i = 0; i < 10; i++) {
+            advanceMillis(backoff);
+            assertTrue(governor.allowRequest(), "probe " + i);
+            governor.recordFailure();
+            backoff = Math.min(2 * backoff, RequestGovernor.MAX_BACKOFF_MILLIS);
+            assertEquals(backoff, governor.getRetryInMillis(), "after probe " + i);
+            assertFalse(governor.allowRequest());
+        }
+        assertEquals(RequestGovernor.MAX_BACKOFF_MILLIS, backoff);
+    }
+
+    @Test
+    void closesWhenTheProbeSucceeds() {
+        open();
+        advanceMillis(RequestGovernor.INITIAL_BACKOFF_MILLIS);
+        assertTrue(governor.allowRequest());
+        governor.recordFailure();
+        advanceMillis(2 * RequestGovernor.INITIAL_BACKOFF_MILLIS);
+        assertTrue(governor.allowRequest());
+        governor.recordSuccess();
+
+        assertFalse(governor.isOpen());
+        assertEquals(0, governor.getRetryInMillis());
+        assertEquals(0, governor.getConsecutiveFailures());
+        for (int i = 0; i < 10; i++) assertTrue(governor.allowRequest());
+
+        // the backoff starts over
+        open();
+        assertEquals(RequestGovernor.INITIAL_BACKOFF_MILLIS, governor.getRetryInMillis());
+    }
+
+    @Test
+    void skipsBackgroundRequestsWhileBusyOrOpen() {
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> running = new CompletableFuture<>();
+        assertSame(running, governor.submitIfIdle(RequestGovernor.Purpose.DIALOGUE, () -> {
+            sent.incrementAndGet();
+            return running;
+        }));
+        assertTrue(governor.isBusy(RequestGovernor.Purpose.DIALOGUE));
+        assertNull(governor.submitIfIdle(RequestGovernor.Purpose.DIALOGUE, () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        }));
+        // other purposes are independent
+        assertNotNull(governor.submitIfIdle(RequestGovernor.Purpose.HEALTH_CHECK, () -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture("ok");
+        }));
+        assertEquals(2, sent.get());
+        assertEquals(1, governor.getSkipped(RequestGovernor.Purpose.DIALOGUE));
+
+        running.complete("done");
+        assertFalse(governor.isBusy(RequestGovernor.Purpose.DIALOGUE));
+        open();
+        assertNull(governor.submitIfIdle(RequestGovernor.Purpose.DIALOGUE, () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        }));
+        assertEquals(2, sent.get());
+        assertEquals(2, governor.getSkipped(RequestGovernor.Purpose.DIALOGUE));
+    }
+}
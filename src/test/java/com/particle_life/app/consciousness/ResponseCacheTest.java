@@ -0,0 +1,151 @@
+package com.particle_life.app.consciousness;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    /**
+     * Stands in for the HTTP request: counts how often it is sent and completes when the test says so.
+     */
+    private static class FakeRequest implements Supplier<CompletableFuture<LMStudioClient.Response>> {
+        final AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<LMStudioClient.Response> pending;
+
+        @Override
+        public CompletableFuture<LMStudioClient.Response> get() {
+            sent.incrementAndGet();
+            pending = new CompletableFuture<>();
+            return pending;
+        }
+
+        void respond(int statusCode, String body) {
+            pending.complete(new LMStudioClient.Response(statusCode, body, 0));
+        }
+    }
+
+    /**
+     * A request that is answered right away with its key as the body.
+     */
+    private static Supplier<CompletableFuture<LMStudioClient.Response>> answering(String key, AtomicInteger sent) {
+        return () -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(new LMStudioClient.Response(200, key, 0));
+        };
+    }
+
+    @Test
+    void answersRepeatedRequestsFromTheCache() throws Exception {
+        ResponseCache cache = new ResponseCache(8, Duration.ofMinutes(1));
+        AtomicInteger sent = new AtomicInteger();
+        assertEquals("a", cache.get("a", answering("a", sent)).get().body);
+        assertEquals("a", cache.get("a", answering("a", sent)).get().body);
+        assertEquals("b", cache.get("b", answering("b", sent)).get().body);
+        assertEquals(2, sent.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1 / 3.0, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws Exception {
+        ResponseCache cache = new ResponseCache(3, Duration.ofMinutes(1));
+        AtomicInteger sent = new AtomicInteger();
+        for (String key : new String[]{"a", "b", "c"}) cache.get(key, answering(key, sent)).get();
+        cache.get("a", answering("a", sent)).get();  // "b" is now the least recently used
+        cache.get("d", answering("d", sent)).get();
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(4, sent.get());
+
+        cache.get("a", answering("a", sent)).get();
+        cache.get("c", answering("c", sent)).get();
+        cache.get("d", answering("d", sent)).get();
+        assertEquals(4, sent.get(), "a, c and d must still be cached");
+        cache.get("b", answering("b", sent)).get();
+        assertEquals(5, sent.get(), "b must have been evicted");
+    }
+
+    @Test
+    void expiresEntriesAfterTheTtl() throws Exception {
+        ResponseCache cache = new ResponseCache(8, Duration.ofMillis(100));
+        AtomicInteger sent = new AtomicInteger();
+        cache.get("a", answering("a", sent)).get();
+        cache.get("a", answering("a", sent)).get();
+        assertEquals(1, sent.get());
+
+        Thread.sleep(150);
+        cache.get("b", answering("b", sent)).get();
+        cache.removeExpired();
+        assertEquals(1, cache.size(), "only b is left");
+        cache.get("a", answering("a", sent)).get();
+        assertEquals(3, sent.get(), "a must be sent again after the TTL");
+    }
+
+    @Test
+    void coalescesRequestsWhileTheFirstIsRunning() throws Exception {
+        ResponseCache cache = new ResponseCache(8, Duration.ofMinutes(1));
+        FakeRequest request = new FakeRequest();
+        CompletableFuture<LMStudioClient.Response> first = cache.get("a", request);
+        CompletableFuture<LMStudioClient.Response> second = cache.get("a", request);
+        CompletableFuture<LMStudioClient.Response> third = cache.get("a", request);
+        assertEquals(1, request.sent.get());
+        assertFalse(second.isDone());
+
+        request.respond(200, "answer");
+        assertEquals("answer", first.get().body);
+        assertEquals("answer", second.get().body);
+        assertEquals("answer", third.get().body);
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void doesNotKeepFailures() throws Exception {
+        ResponseCache cache = new ResponseCache(8, Duration.ofMinutes(1));
+        FakeRequest request = new FakeRequest();
+
+        CompletableFuture<LMStudioClient.Response> error = cache.get("a", request);
+        CompletableFuture<LMStudioClient.Response> waiting = cache.get("a", request);
+        request.respond(500, "error");
+        // requests that waited for it get the same response
+        assertEquals(500, error.get().statusCode);
+        assertEquals(500, waiting.get().statusCode);
+        assertEquals(0, cache.size());
+
+        CompletableFuture<LMStudioClient.Response> failed = cache.get("a", request);
+        request.pending.completeExceptionally(new IOException("connection refused"));
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals(0, cache.size());
+
+        cache.get("a", request);
+        request.respond(200, "answer");
+        assertEquals(3, request.sent.get());
+        assertEquals("answer", cache.get("a", request).get().body);
+        assertEquals(3, request.sent.get());
+    }
+
+    @Test
+    void doesNotKeepRequestsThatFailedToStart() throws Exception {
+        ResponseCache cache = new ResponseCache(8, Duration.ofMinutes(1));
+        CompletableFuture<LMStudioClient.Response> failed = cache.get("a", () -> {
+            throw new IllegalArgumentException("invalid URI");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals(0, cache.size());
+
+        AtomicInteger sent = new AtomicInteger();
+        assertEquals("a", cache.get("a", answering("a", sent)).get(1, TimeUnit.SECONDS).body);
+        assertEquals(1, sent.get());
+    }
+}
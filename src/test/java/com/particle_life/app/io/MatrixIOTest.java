@@ -0,0 +1,61 @@
+package com.particle_life.app.io;
+
+import com.particle_life.DefaultMatrix;
+import com.particle_life.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixIOTest {
+
+    private static Matrix randomMatrix(int size) {
+        Random random = new Random(42);
+        Matrix matrix = new DefaultMatrix(size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                matrix.set(i, j, random.nextDouble() * 2 - 1);
+            }
+        }
+        return matrix;
+    }
+
+    private static byte[] saveBinary(Matrix matrix) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixIO.saveMatrixBinary(matrix, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void binaryRoundTripIsLossless() throws IOException {
+        for (int size : new int[]{1, 8, 256}) {
+            Matrix matrix = randomMatrix(size);
+            Matrix loaded = MatrixIO.loadMatrix(new ByteArrayInputStream(saveBinary(matrix)));
+            assertEquals(size, loaded.size());
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    assertEquals(matrix.get(i, j), loaded.get(i, j));
+                }
+            }
+        }
+    }
+
+    @Test
+    void truncatedBinaryMatrixFails() throws IOException {
+        byte[] bytes = saveBinary(randomMatrix(8));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length / 2);
+        assertThrows(IOException.class, () -> MatrixIO.loadMatrix(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    void unsupportedBinaryVersionFails() throws IOException {
+        byte[] bytes = saveBinary(randomMatrix(8));
+        bytes[4] = 99;  // version
+        assertThrows(IOException.class, () -> MatrixIO.loadMatrix(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,151 @@
+package com.particle_life.app.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveStoreTest {
+
+    /**
+     * Lines like in particles.tsv
+     */
+    private static List<String> createLines(int count, Random random) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(createLine(random));
+        }
+        return lines;
+    }
+
+    private static String createLine(Random random) {
+        return String.format(Locale.ROOT, "%f\t%f\t0.0\t%f\t%f\t0.0\t%d",
+                random.nextDouble(), random.nextDouble(), random.nextGaussian(), random.nextGaussian(), random.nextInt(6));
+    }
+
+    private static byte[] toBytes(List<String> lines) {
+        return (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<Integer> chunkEnds(byte[] content) {
+        List<Integer> ends = new ArrayList<>();
+        for (int offset = 0; offset < content.length; offset = ends.get(ends.size() - 1)) {
+            ends.add(SaveStore.chunkEnd(content, offset));
+        }
+        return ends;
+    }
+
+    @Test
+    void chunksEndAtLineBreaksWithinSizeLimits() {
+        byte[] content = toBytes(createLines(200_000, new Random(1)));  // about 13 MiB
+        List<Integer> ends = chunkEnds(content);
+        assertEquals(content.length, ends.get(ends.size() - 1));
+        assertTrue(ends.size() > 5, ends.size() + " chunks");
+
+        int start = 0;
+        for (int i = 0; i < ends.size(); i++) {
+            int end = ends.get(i);
+            int length = end - start;
+            assertTrue(length <= SaveStore.MAX_CHUNK_BYTES, "chunk " + i + " has " + length + " bytes");
+            if (i < ends.size() - 1) {
+                assertTrue(length > SaveStore.MIN_CHUNK_BYTES, "chunk " + i + " has " + length + " bytes");
+                assertEquals('\n', content[end - 1], "chunk " + i + " doesn't end with a whole line");
+            }
+            start = end;
+        }
+    }
+
+    @Test
+    void binaryContentIsCutAtMaximumSize() {
+        byte[] content = new byte[3 * SaveStore.MAX_CHUNK_BYTES + 10];
+        new Random(2).nextBytes(content);
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') content[i] = 0;
+        }
+        assertEquals(List.of(SaveStore.MAX_CHUNK_BYTES, 2 * SaveStore.MAX_CHUNK_BYTES, 3 * SaveStore.MAX_CHUNK_BYTES,
+                content.length), chunkEnds(content));
+    }
+
+    @Test
+    void insertionOnlyChangesNearbyChunks() {
+        Random random = new Random(3);
+        List<String> lines = createLines(200_000, random);
+        byte[] before = toBytes(lines);
+        lines.add(1000, createLine(random));  // near the start, so that a fixed grid would shift all chunks
+        lines.remove(150_000);
+        byte[] after = toBytes(lines);
+
+        Set<String> chunksBefore = new HashSet<>();
+        int start = 0;
+        for (int end : chunkEnds(before)) {
+            chunksBefore.add(new String(before, start, end - start, StandardCharsets.UTF_8));
+            start = end;
+        }
+        int changed = 0;
+        start = 0;
+        List<Integer> endsAfter = chunkEnds(after);
+        for (int end : endsAfter) {
+            if (!chunksBefore.contains(new String(after, start, end - start, StandardCharsets.UTF_8))) changed++;
+            start = end;
+        }
+        // one chunk around each edit, maybe one more if the edit touched a cut point
+        assertTrue(changed <= 4, changed + " of " + endsAfter.size() + " chunks changed");
+    }
+
+    @Test
+    void storesSharedChunksOnce(@TempDir Path dir) throws IOException {
+        SaveStore store = new SaveStore(dir);
+        Random random = new Random(4);
+        List<String> lines = createLines(100_000, random);
+        byte[] matrix = new byte[8 * 36];
+        random.nextBytes(matrix);
+
+        Map<String, byte[]> first = new LinkedHashMap<>();
+        first.put("particles.tsv", toBytes(lines));
+        first.put("matrix.bin", matrix);
+        SaveStore.SaveStats firstStats = store.save(dir.resolve("a" + SaveStore.MANIFEST_EXTENSION), first);
+        assertEquals(firstStats.chunks, firstStats.newChunks);
+
+        lines.add(500, createLine(random));
+        Map<String, byte[]> second = new LinkedHashMap<>();
+        second.put("particles.tsv", toBytes(lines));
+        second.put("matrix.bin", matrix);
+        SaveStore.SaveStats secondStats = store.save(dir.resolve("b" + SaveStore.MANIFEST_EXTENSION), second);
+        assertTrue(secondStats.newChunks <= 2, secondStats.toString());
+        assertTrue(secondStats.newBytes < firstStats.newBytes / 4, secondStats + " vs. " + firstStats);
+
+        // both saves read back exactly
+        assertEntries(first, store, dir.resolve("a" + SaveStore.MANIFEST_EXTENSION));
+        assertEntries(second, store, dir.resolve("b" + SaveStore.MANIFEST_EXTENSION));
+
+        // deleting a save keeps the chunks that the other one still uses
+        Files.delete(dir.resolve("a" + SaveStore.MANIFEST_EXTENSION));
+        assertTrue(store.collectGarbage() >= 1);
+        assertEntries(second, store, dir.resolve("b" + SaveStore.MANIFEST_EXTENSION));
+    }
+
+    private static void assertEntries(Map<String, byte[]> expected, SaveStore store, Path manifest) throws IOException {
+        try (SaveArchive save = store.open(manifest)) {
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                assertEquals(entry.getValue().length, save.getSize(entry.getKey()));
+                try (InputStream in = save.openEntry(entry.getKey())) {
+                    assertArrayEquals(entry.getValue(), in.readAllBytes(), entry.getKey());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.particle_life.app.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SavesIndexTest {
+
+    private static final long DEBOUNCE_MILLIS = 50;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Records the reported changes, e.g. "changed a.toml" or "deleted b.toml".
+     */
+    private static class Events implements SavesIndex.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void fileChanged(Path path) {
+            events.add("changed " + path.getFileName());
+        }
+
+        @Override
+        public void fileDeleted(Path path) {
+            events.add("deleted " + path.getFileName());
+        }
+    }
+
+    /**
+     * Polls until the listener received the given number of events in total,
+     * and then for a while longer to catch events that shouldn't come.
+     */
+    private static void pollUntil(SavesIndex index, Events listener, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (listener.events.size() < count) {
+            assertTrue(System.currentTimeMillis() < deadline, "only got " + listener.events);
+            index.poll(listener);
+            Thread.sleep(10);
+        }
+        long end = System.currentTimeMillis() + 3 * DEBOUNCE_MILLIS;
+        while (System.currentTimeMillis() < end) {
+            index.poll(listener);
+            Thread.sleep(10);
+        }
+        assertEquals(count, listener.events.size(), listener.events.toString());
+    }
+
+    @Test
+    void reportsCreatedModifiedAndDeletedFiles(@TempDir Path dir) throws Exception {
+        Path a = dir.resolve("a.toml");
+        Files.writeString(a, "a");
+        Events listener = new Events();
+        try (SavesIndex index = new SavesIndex(dir.toString(), DEBOUNCE_MILLIS)) {
+            assertTrue(index.poll(listener));
+            assertEquals(List.of("changed a.toml"), listener.events);
+            pollUntil(index, listener, 1);
+
+            Path b = dir.resolve("b.toml");
+            Files.writeString(b, "b");
+            pollUntil(index, listener, 2);
+            assertEquals("changed b.toml", listener.events.get(1));
+
+            Files.writeString(a, "modified");
+            pollUntil(index, listener, 3);
+            assertEquals("changed a.toml", listener.events.get(2));
+
+            Files.delete(b);
+            pollUntil(index, listener, 4);
+            assertEquals("deleted b.toml", listener.events.get(3));
+
+            assertEquals(Set.of(a), index.getFiles());
+            assertFalse(index.poll(listener));
+        }
+    }
+
+    @Test
+    void reportsABurstOfWritesOnceAfterTheDebounce(@TempDir Path dir) throws Exception {
+        long debounceMillis = 300;
+        Events listener = new Events();
+        try (SavesIndex index = new SavesIndex(dir.toString(), debounceMillis)) {
+            index.poll(listener);
+            assertEquals(List.of(), listener.events);
+
+            // a save that is written in many small parts
+            Path save = dir.resolve("save.zip");
+            Files.writeString(save, "");
+            long lastWrite = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                Files.writeString(save, "part " + i + "\n", StandardOpenOption.APPEND);
+                lastWrite = System.nanoTime();
+                index.poll(listener);
+                assertEquals(List.of(), listener.events, "reported while still being written");
+                Thread.sleep(20);
+            }
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!index.poll(listener)) {
+                assertTrue(System.currentTimeMillis() < deadline, "the save was never reported");
+                Thread.sleep(10);
+            }
+            assertTrue(System.nanoTime() - lastWrite >= debounceMillis * 1_000_000, "reported before the debounce");
+            pollUntil(index, listener, 1);
+            assertEquals(List.of("changed save.zip"), listener.events);
+        }
+    }
+
+    @Test
+    void rescansWhenTheDirectoryIsDeletedAndRecreated(@TempDir Path parent) throws Exception {
+        Path dir = parent.resolve("saves");
+        Events listener = new Events();
+        try (SavesIndex index = new SavesIndex(dir.toString(), DEBOUNCE_MILLIS)) {
+            // doesn't exist yet
+            assertFalse(index.poll(listener));
+
+            Files.createDirectory(dir);
+            Path old = Files.writeString(dir.resolve("old.toml"), "old");
+            pollUntil(index, listener, 1);
+            assertEquals("changed old.toml", listener.events.get(0));
+
+            Files.delete(old);
+            Files.delete(dir);
+            pollUntil(index, listener, 2);
+            assertEquals("deleted old.toml", listener.events.get(1));
+            assertEquals(Set.of(), index.getFiles());
+
+            // recreated, e.g. restored from a backup
+            Files.createDirectory(dir);
+            Path restored = Files.writeString(dir.resolve("restored.toml"), "restored");
+            pollUntil(index, listener, 3);
+            assertEquals("changed restored.toml", listener.events.get(2));
+            assertEquals(Set.of(restored), index.getFiles());
+
+            // and it's watched again
+            Files.writeString(dir.resolve("new.toml"), "new");
+            pollUntil(index, listener, 4);
+            assertEquals("changed new.toml", listener.events.get(3));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.particle_life.app.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedSnapshotFileTest {
+
+    private static final int FRAMES = 3000;
+    private static final int READERS = 3;
+
+    /**
+     * Every value of a frame is derived from its generation,
+     * so a reader can tell whether all values belong to the same frame.
+     * The particle count changes with each frame and exceeds the initial capacity, so that the file is grown.
+     */
+    private static int particleCount(int generation) {
+        return 1 + (generation * 7919) % 5000;
+    }
+
+    private static double position(int generation, int k) {
+        return generation * 100_000.0 + k;
+    }
+
+    private static double velocity(int generation, int k) {
+        return -(generation * 100_000.0 + k);
+    }
+
+    private static void fill(int generation, double[] positions, double[] velocities, int[] types) {
+        int n = particleCount(generation);
+        for (int k = 0; k < 3 * n; k++) {
+            positions[k] = position(generation, k);
+            velocities[k] = velocity(generation, k);
+        }
+        for (int i = 0; i < n; i++) {
+            types[i] = generation;
+        }
+    }
+
+    /**
+     * @return a description of the first inconsistency, or null if the frame is consistent
+     */
+    private static String checkFrame(SharedSnapshotFile.Reader reader) {
+        int generation = (int) reader.getTimeMillis();
+        int n = reader.getParticleCount();
+        if (n != particleCount(generation)) {
+            return "generation " + generation + " has " + n + " particles instead of " + particleCount(generation);
+        }
+        if (reader.positions.length < 3 * n || reader.velocities.length < 3 * n || reader.types.length < n) {
+            return "arrays too short for " + n + " particles";
+        }
+        for (int k = 0; k < 3 * n; k++) {
+            if (reader.positions[k] != position(generation, k)) {
+                return "generation " + generation + ": position " + k + " is " + reader.positions[k];
+            }
+            if (reader.velocities[k] != velocity(generation, k)) {
+                return "generation " + generation + ": velocity " + k + " is " + reader.velocities[k];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (reader.types[i] != generation) {
+                return "generation " + generation + ": type " + i + " is " + reader.types[i];
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void readersNeverSeeTornFrames(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("snapshot.bin");
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch firstFrame = new CountDownLatch(1);
+        int[] framesRead = new int[READERS];
+
+        try (SharedSnapshotFile file = new SharedSnapshotFile(path)) {
+            Thread writer = new Thread(() -> {
+                int maxN = 5000;
+                double[] positions = new double[3 * maxN];
+                double[] velocities = new double[3 * maxN];
+                int[] types = new int[maxN];
+                try {
+                    for (int generation = 1; generation <= FRAMES && failure.get() == null; generation++) {
+                        fill(generation, positions, velocities, types);
+                        file.write(positions, velocities, types, particleCount(generation), generation);
+                        firstFrame.countDown();
+                        if (generation % 16 == 0) Thread.yield();  // let the readers catch up on few cores
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    writing.set(false);
+                    firstFrame.countDown();
+                }
+            }, "writer");
+
+            List<Thread> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                int readerIndex = r;
+                readers.add(new Thread(() -> {
+                    try (SharedSnapshotFile.Reader reader = new SharedSnapshotFile.Reader(path)) {
+                        firstFrame.await();
+                        long lastGeneration = 0;
+                        boolean lastRead = false;
+                        while (!lastRead) {
+                            lastRead = !writing.get();  // one more read after the writer finished
+                            if (!reader.read()) {
+                                Thread.yield();
+                                continue;
+                            }
+                            long generation = reader.getTimeMillis();
+                            if (generation == 0) continue;  // initial empty frame
+                            assertTrue(generation >= lastGeneration,
+                                    "generation " + generation + " after " + lastGeneration);
+                            lastGeneration = generation;
+                            String error = checkFrame(reader);
+                            assertNull(error, error);
+                            framesRead[readerIndex]++;
+                        }
+                        assertEquals(FRAMES, lastGeneration, "the last frame was not read");
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }, "reader-" + r));
+            }
+
+            readers.forEach(Thread::start);
+            writer.start();
+            writer.join(60_000);
+            for (Thread reader : readers) {
+                reader.join(60_000);
+                assertFalse(reader.isAlive(), reader.getName() + " didn't finish");
+            }
+        }
+
+        if (failure.get() != null) fail(failure.get());
+        for (int r = 0; r < READERS; r++) {
+            assertTrue(framesRead[r] > 0, "reader " + r + " didn't read any frame");
+        }
+    }
+
+    @Test
+    void readReturnsFalseWithoutNewFrame(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("snapshot.bin");
+        try (SharedSnapshotFile file = new SharedSnapshotFile(path);
+             SharedSnapshotFile.Reader reader = new SharedSnapshotFile.Reader(path)) {
+            assertTrue(reader.read());
+            assertEquals(0, reader.getParticleCount());
+            assertFalse(reader.read());
+
+            double[] positions = new double[3 * 5000];
+            double[] velocities = new double[3 * 5000];
+            int[] types = new int[5000];
+            fill(1, positions, velocities, types);
+            file.write(positions, velocities, types, particleCount(1), 1);
+            assertTrue(reader.read());
+            assertNull(checkFrame(reader));
+            assertFalse(reader.read());
+        }
+    }
+}
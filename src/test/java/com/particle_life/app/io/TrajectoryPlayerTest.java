@@ -0,0 +1,115 @@
+package com.particle_life.app.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryPlayerTest {
+
+    private static final int N = 1000;
+    private static final int FRAMES = 50;
+
+    /**
+     * Records a random walk and returns the recorded positions of each frame.
+     */
+    private static double[][] record(Path file) throws IOException {
+        Random random = new Random(42);
+        double[] positions = new double[3 * N];
+        double[] velocities = new double[3 * N];
+        int[] types = new int[N];
+        for (int i = 0; i < N; i++) {
+            positions[3 * i] = random.nextDouble();
+            positions[3 * i + 1] = random.nextDouble();
+            types[i] = random.nextInt(6);
+        }
+        double[][] recorded = new double[FRAMES][];
+        TrajectoryRecorder recorder = new TrajectoryRecorder(file, TrajectoryRecorder.DropPolicy.DROP_NEWEST,
+                4, 16, TrajectoryFormat.DEFAULT_POSITION_QUANTUM);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            for (int i = 0; i < 3 * N; i += 3) {
+                positions[i] = (positions[i] + random.nextGaussian() * 1e-3 + 1) % 1;
+                positions[i + 1] = (positions[i + 1] + random.nextGaussian() * 1e-3 + 1) % 1;
+            }
+            while (!recorder.offer(positions, velocities, types, N, true, frame * 16L)) {
+                Thread.yield();
+            }
+            recorded[frame] = positions.clone();
+        }
+        recorder.close();
+        return recorded;
+    }
+
+    private static TrajectoryPlayer.Frame next(TrajectoryPlayer player) throws IOException {
+        TrajectoryPlayer.Frame frame;
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while ((frame = player.poll()) == null) {
+            assertTrue(System.nanoTime() < deadline, "no frame decoded");
+            Thread.yield();
+        }
+        return frame;
+    }
+
+    private static void assertFrame(double[] expected, TrajectoryPlayer.Frame frame) {
+        assertEquals(N, frame.particleCount);
+        for (int i = 0; i < 3 * N; i++) {
+            double error = Math.abs(expected[i] - frame.positions[i]);
+            error = Math.min(error, 1 - error);  // wrapped
+            assertTrue(error <= 2 * TrajectoryFormat.DEFAULT_POSITION_QUANTUM,
+                    "frame " + frame.index + ", coordinate " + i + ": error " + error);
+        }
+    }
+
+    @Test
+    void playsAllFramesInOrder(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("test.pltraj");
+        double[][] recorded = record(file);
+        try (TrajectoryPlayer player = new TrajectoryPlayer(file)) {
+            assertEquals(FRAMES, player.getFrameCount());
+            for (int i = 0; i < FRAMES; i++) {
+                TrajectoryPlayer.Frame frame = next(player);
+                assertEquals(i, frame.index);
+                assertEquals(i * 16L, frame.timeMillis);
+                assertFrame(recorded[i], frame);
+                player.release(frame);
+            }
+        }
+    }
+
+    @Test
+    void seekDiscardsFramesDecodedAhead(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("test.pltraj");
+        double[][] recorded = record(file);
+        try (TrajectoryPlayer player = new TrajectoryPlayer(file)) {
+            player.release(next(player));
+            for (int target : new int[]{37, 5, 16, 49, 0}) {
+                player.seek(target);
+                TrajectoryPlayer.Frame frame = next(player);
+                assertEquals(target, frame.index);
+                assertFrame(recorded[target], frame);
+                player.release(frame);
+            }
+        }
+    }
+
+    @Test
+    void closeWaitsForTheDecoder(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("test.pltraj");
+        record(file);
+        for (int i = 0; i < 20; i++) {
+            TrajectoryPlayer player = new TrajectoryPlayer(file, 1);
+            player.seek(i);
+            player.close();
+            assertFalse(threadAlive("trajectory-decoder"), "decoder still running after close()");
+        }
+    }
+
+    private static boolean threadAlive(String name) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals(name) && thread.isAlive());
+    }
+}
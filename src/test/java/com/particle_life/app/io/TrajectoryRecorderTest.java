@@ -0,0 +1,174 @@
+package com.particle_life.app.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryRecorderTest {
+
+    private static final int N = 1000;
+
+    /**
+     * A file channel that fails like a full disk once a number of bytes was written.
+     */
+    private static class FailingChannel extends FileChannel {
+        final FileChannel file;
+        long bytesLeft;
+
+        FailingChannel(FileChannel file, long bytesLeft) {
+            this.file = file;
+            this.bytesLeft = bytesLeft;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (src.remaining() > bytesLeft) throw new IOException("No space left on device");
+            bytesLeft -= src.remaining();
+            return file.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return file.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return file.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            file.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+
+    private static boolean offer(TrajectoryRecorder recorder, int frame) {
+        double[] positions = new double[3 * N];
+        for (int i = 0; i < N; i++) {
+            positions[3 * i] = (i + frame * 0.01) / N;
+            positions[3 * i + 1] = 0.5;
+        }
+        return recorder.offer(positions, new double[3 * N], new int[N], N, true, frame * 16L);
+    }
+
+    @Test
+    void closeReportsWriteErrorsAndClosesTheFile(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("full.pltraj");
+        FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // room for the header and a few frames
+        FailingChannel channel = new FailingChannel(file, 50_000);
+        TrajectoryRecorder recorder = new TrajectoryRecorder(path, channel, TrajectoryRecorder.DropPolicy.DROP_NEWEST,
+                4, 16, TrajectoryFormat.DEFAULT_POSITION_QUANTUM);
+
+        // slow enough that no frame is dropped, until the writer stops at the error
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        for (int frame = 0; offer(recorder, frame); frame++) {
+            assertTrue(System.nanoTime() < deadline, "the write error didn't stop the recording");
+            Thread.sleep(20);
+        }
+        assertTrue(recorder.getStats().framesWritten > 0);
+        assertEquals(0, recorder.getStats().framesDropped);
+
+        IOException e = assertThrows(IOException.class, recorder::close);
+        assertEquals("No space left on device", e.getMessage());
+        assertFalse(channel.isOpen());
+        assertFalse(file.isOpen());
+
+        recorder.close();  // nothing left to report
+    }
+
+    @Test
+    void closeWritesTheIndex(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("ok.pltraj");
+        TrajectoryRecorder recorder = new TrajectoryRecorder(path, TrajectoryRecorder.DropPolicy.DROP_NEWEST,
+                4, 16, TrajectoryFormat.DEFAULT_POSITION_QUANTUM);
+        for (int frame = 0; frame < 10; frame++) {
+            while (!offer(recorder, frame)) Thread.yield();
+        }
+        recorder.close();
+        recorder.close();
+        assertEquals(10, recorder.getStats().framesWritten);
+        try (TrajectoryPlayer player = new TrajectoryPlayer(path)) {
+            assertEquals(10, player.getFrameCount());
+        }
+    }
+}